@@ -1,31 +1,40 @@
 package com.zlatko.packageselfservicebackend.clients;
 
 import com.zlatko.packageselfservicebackend.clients.dtos.ShippingOrder;
+import com.zlatko.packageselfservicebackend.clients.dtos.ShippingOrderChanges;
 import com.zlatko.packageselfservicebackend.clients.dtos.ShippingOrderDetails;
+import com.zlatko.packageselfservicebackend.diagnostics.DomainEvents;
 import com.zlatko.packageselfservicebackend.model.exceptions.DuplicatePackageNameException;
 import com.zlatko.packageselfservicebackend.utils.GlobalConstants;
+import com.zlatko.packageselfservicebackend.utils.ServerTiming;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.retry.annotation.Retry;
+import io.micrometer.core.annotation.Timed;
 import java.net.URI;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.function.Function;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.UriBuilder;
 import reactor.core.publisher.Mono;
 
 /**
- * Client class for the package-shipping-service API.
+ * Client class for the package-shipping-service API. <br>
+ * Every call attempt is recorded as a ShippingClientCall JFR event (see DomainEvents) while a flight recording is running.
  */
 @Service
 @Slf4j
 public class PackageShippingServiceClient {
 
     public static final String CREATE_SHIPPING_ORDER = "createShippingOrder";
+    public static final String GET_ORDER_DETAILS = "getOrderDetails";
+    public static final String GET_SHIPPING_ORDER_CHANGES = "getShippingOrderChanges";
     public static final String CREATE_SHIPPING_ORDER_FALLBACK = "createShippingOrderFallback";
     public static final String GET_ORDER_DETAILS_FALLBACK = "getOrderDetailsFallback";
     private final WebClient webClient;
@@ -41,25 +50,39 @@ public class PackageShippingServiceClient {
      * An X-Correlation-ID header is added to the request for tracing purposes. <br>
      * The method is annotated with @Retry and @CircuitBreaker annotations for resilience purposes. <br>
      * In case of a circuit breaker open state, the createShippingOrderFallback method is called. <br>
+     * Every attempt is timed, tagged with the operation and the exception (outcome) of the call. <br>
+     * The Server-Timing stages of the package-shipping-service are added to the ones of the current request. <br>
+     * The Idempotency-Key header, if any, lets the package-shipping-service return the order created by an earlier attempt
+     * (e.g. one that timed out after the order was committed) instead of a 409. <br>
      *
      * @param shippingOrder the shipping order
+     * @param idempotencyKey the Idempotency-Key of the shipping order, or null
      * @return the URI of the created shipping order
      */
     @Retry(name = CREATE_SHIPPING_ORDER)
     @CircuitBreaker(name = CREATE_SHIPPING_ORDER, fallbackMethod = CREATE_SHIPPING_ORDER_FALLBACK)
-    public URI createShippingOrder(ShippingOrder shippingOrder) {
+    @Timed(value = GlobalConstants.METRIC_SHIPPING_CLIENT, extraTags = {GlobalConstants.METRIC_TAG_OPERATION, CREATE_SHIPPING_ORDER})
+    public URI createShippingOrder(ShippingOrder shippingOrder, String idempotencyKey) {
         log.trace("Creating shipping order: {}", shippingOrder);
-        return Objects.requireNonNull(webClient.post()
-                        .uri(buildURI("shippingOrders"))
-                        .bodyValue(shippingOrder)
-                        .header(GlobalConstants.X_CORRELATION_ID, MDC.get(GlobalConstants.X_CORRELATION_ID))
-                        .retrieve()
-                        .onStatus(status -> status == HttpStatus.CONFLICT, response -> {
-                            // Handle 409 Conflict
-                            return Mono.error(new DuplicatePackageNameException(shippingOrder.packageName()));
-                        })
-                        .toBodilessEntity()
-                        .block())
+        DomainEvents.ShippingClientCall event = new DomainEvents.ShippingClientCall(CREATE_SHIPPING_ORDER, null, shippingOrder.packageName());
+        ResponseEntity<Void> response = ServerTiming.record(GlobalConstants.STAGE_SHIPPING, () -> DomainEvents.record(event, () -> webClient.post()
+                .uri(buildURI("shippingOrders"))
+                .bodyValue(shippingOrder)
+                .header(GlobalConstants.X_CORRELATION_ID, MDC.get(GlobalConstants.X_CORRELATION_ID))
+                .headers(headers -> {
+                    if (idempotencyKey != null) {
+                        headers.set(GlobalConstants.IDEMPOTENCY_KEY, idempotencyKey);
+                    }
+                })
+                .retrieve()
+                .onStatus(status -> status == HttpStatus.CONFLICT, clientResponse -> {
+                    // Handle 409 Conflict
+                    return Mono.error(new DuplicatePackageNameException(shippingOrder.packageName()));
+                })
+                .toBodilessEntity()
+                .doOnNext(entity -> event.setHttpStatus(entity.getStatusCode().value()))
+                .block()));
+        return recordDownstreamTimings(Objects.requireNonNull(response))
                 .getHeaders()
                 .getLocation();
     }
@@ -70,10 +93,11 @@ public class PackageShippingServiceClient {
      * It throws a RuntimeException which is afterward handled by the global exception handler.
      *
      * @param shippingOrder the shipping order
+     * @param idempotencyKey the Idempotency-Key of the shipping order, or null
      * @param err the error
      * @return nothing, throws a RuntimeException
      */
-    protected URI createShippingOrderFallback(ShippingOrder shippingOrder, Throwable err) {
+    protected URI createShippingOrderFallback(ShippingOrder shippingOrder, String idempotencyKey, Throwable err) {
         String message = "OPEN state circuitbreaker! Shipping order '%s', could not be processed!".formatted(shippingOrder);
         throw new RuntimeException(message, err);
     }
@@ -83,19 +107,27 @@ public class PackageShippingServiceClient {
      * An X-Correlation-ID header is added to the request for tracing purposes. <br>
      * The method is annotated with @Retry and @CircuitBreaker annotations for resilience purposes. <br>
      * In case of a circuit breaker open state, the getOrderDetailsFallback method is called. <br>
+     * Every attempt is timed, tagged with the operation and the exception (outcome) of the call. <br>
+     * The Server-Timing stages of the package-shipping-service are added to the ones of the current request. <br>
      *
      * @param orderId the order ID
      * @return the shipping order details
      */
     @Retry(name = CREATE_SHIPPING_ORDER)
     @CircuitBreaker(name = CREATE_SHIPPING_ORDER, fallbackMethod = GET_ORDER_DETAILS_FALLBACK)
+    @Timed(value = GlobalConstants.METRIC_SHIPPING_CLIENT, extraTags = {GlobalConstants.METRIC_TAG_OPERATION, GET_ORDER_DETAILS})
     public ShippingOrderDetails getOrderDetails(String orderId) {
         log.trace("Getting order details for order ID: {}", orderId);
-        return webClient.get()
+        DomainEvents.ShippingClientCall event = new DomainEvents.ShippingClientCall(GET_ORDER_DETAILS, orderId, null);
+        ResponseEntity<ShippingOrderDetails> response = ServerTiming.record(GlobalConstants.STAGE_SHIPPING, () -> DomainEvents.record(event, () -> webClient.get()
                 .uri(buildURI("shippingOrders", orderId))
+                .header(GlobalConstants.X_CORRELATION_ID, MDC.get(GlobalConstants.X_CORRELATION_ID))
                 .retrieve()
-                .bodyToMono(ShippingOrderDetails.class)
-                .block();
+                .toEntity(ShippingOrderDetails.class)
+                .doOnNext(entity -> event.setHttpStatus(entity.getStatusCode().value()))
+                .block()));
+        return recordDownstreamTimings(Objects.requireNonNull(response))
+                .getBody();
     }
 
     /**
@@ -112,6 +144,46 @@ public class PackageShippingServiceClient {
         throw new RuntimeException(message, err);
     }
 
+    /**
+     * Gets the shipping orders changed after the cursor by sending a GET request to the change feed of the package-shipping-service API.<br>
+     * Only used by the background ShippingOrderChangeSync, so there is no fallback: a failed sync is retried from the same cursor
+     * on its next run. <br>
+     * Every attempt is timed, tagged with the operation and the exception (outcome) of the call. <br>
+     *
+     * @param since the cursor returned by the previous call, null for the beginning of the feed
+     * @param limit the maximum number of changed orders
+     * @return the changed orders and the cursor to continue from
+     */
+    @Retry(name = GET_SHIPPING_ORDER_CHANGES)
+    @Timed(value = GlobalConstants.METRIC_SHIPPING_CLIENT, extraTags = {GlobalConstants.METRIC_TAG_OPERATION, GET_SHIPPING_ORDER_CHANGES})
+    public ShippingOrderChanges getShippingOrderChanges(String since, int limit) {
+        log.trace("Getting shipping order changes since: {}", since);
+        DomainEvents.ShippingClientCall event = new DomainEvents.ShippingClientCall(GET_SHIPPING_ORDER_CHANGES, null, null);
+        return DomainEvents.record(event, () -> webClient.get()
+                .uri(uriBuilder -> uriBuilder.pathSegment("shippingOrders", "changes")
+                        .queryParamIfPresent("since", Optional.ofNullable(since))
+                        .queryParam("limit", limit)
+                        .build())
+                .header(GlobalConstants.X_CORRELATION_ID, MDC.get(GlobalConstants.X_CORRELATION_ID))
+                .retrieve()
+                .toEntity(ShippingOrderChanges.class)
+                .doOnNext(entity -> event.setHttpStatus(entity.getStatusCode().value()))
+                .mapNotNull(ResponseEntity::getBody)
+                .block());
+    }
+
+    /**
+     * Records the Server-Timing stages reported by the package-shipping-service,
+     * so that the backend's Server-Timing header shows the costs of both services. <br>
+     *
+     * @param response the downstream response
+     * @return the same response
+     */
+    private <T> ResponseEntity<T> recordDownstreamTimings(ResponseEntity<T> response) {
+        ServerTiming.recordDownstream(GlobalConstants.STAGE_SHIPPING_PREFIX, response.getHeaders().get(GlobalConstants.SERVER_TIMING));
+        return response;
+    }
+
     /**
      * Builds a URI with the given path segments by using a UriBuilder. <br>
      * Example: {@code buildURI("shippingOrders", orderId)} -> {@code /shippingOrders/{orderId}} <br>
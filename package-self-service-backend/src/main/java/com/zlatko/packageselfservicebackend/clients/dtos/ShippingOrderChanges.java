@@ -0,0 +1,9 @@
+package com.zlatko.packageselfservicebackend.clients.dtos;
+
+import java.util.List;
+
+public record ShippingOrderChanges(
+        List<ShippingOrderDetails> orders,
+        String cursor,
+        boolean hasMore
+) {}
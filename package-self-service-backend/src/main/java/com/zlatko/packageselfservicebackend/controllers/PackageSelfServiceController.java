@@ -1,10 +1,20 @@
 package com.zlatko.packageselfservicebackend.controllers;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zlatko.packageselfservicebackend.directory.ReceiverDirectory;
 import com.zlatko.packageselfservicebackend.model.dtos.Package;
 import com.zlatko.packageselfservicebackend.model.dtos.PackageDetails;
+import com.zlatko.packageselfservicebackend.model.dtos.PackageDetailsFields;
+import com.zlatko.packageselfservicebackend.model.dtos.PackageSearchResult;
+import com.zlatko.packageselfservicebackend.model.dtos.PackageSummary;
+import com.zlatko.packageselfservicebackend.model.dtos.ReceiverSearchResult;
+import com.zlatko.packageselfservicebackend.model.dtos.enums.PackageNameMatch;
 import com.zlatko.packageselfservicebackend.model.dtos.enums.PackageStatus;
 import com.zlatko.packageselfservicebackend.model.dtos.errors.Error;
+import com.zlatko.packageselfservicebackend.services.PackageListCache;
 import com.zlatko.packageselfservicebackend.services.PackageSelfServiceService;
+import com.zlatko.packageselfservicebackend.services.PackageWatcher;
 import com.zlatko.packageselfservicebackend.utils.GlobalConstants;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -12,19 +22,30 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -35,9 +56,12 @@ import org.springframework.web.bind.annotation.RestController;
 @Slf4j
 public class PackageSelfServiceController {
     private final PackageSelfServiceService service;
+    private final ReceiverDirectory receiverDirectory;
+    private final PackageListCache packageListCache;
+    private final ObjectMapper objectMapper;
 
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "201", description = "Package successfully submitted."),
+            @ApiResponse(responseCode = "201", description = "Package successfully submitted, or already submitted with the same Idempotency-Key."),
             @ApiResponse(responseCode = "400", description = "Bad request!",
                 content = @Content(schema = @Schema(implementation = Error.class))),
             @ApiResponse(responseCode = "409", description = "Conflict! Package name already exists. Please provide a unique name.",
@@ -46,9 +70,12 @@ public class PackageSelfServiceController {
                     content = @Content(schema = @Schema(implementation = Error.class))),
     })
     @PostMapping
-    public ResponseEntity<Void> submitPackage(@Valid @RequestBody Package packageDTO, HttpServletRequest request) {
+    public ResponseEntity<Void> submitPackage(@Valid @RequestBody Package packageDTO,
+                                              @Pattern(regexp = GlobalConstants.IDEMPOTENCY_KEY_REGEX_PATTERN, message = "Invalid Idempotency-Key format.")
+                                              @RequestHeader(value = GlobalConstants.IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                              HttpServletRequest request) {
 
-        UUID submittedPackageId = service.submitPackage(packageDTO);
+        UUID submittedPackageId = service.submitPackage(packageDTO, idempotencyKey);
         log.trace("Submitted package with ID: {}", submittedPackageId);
 
         URI location = getPackageUri(request.getRequestURL().toString(), submittedPackageId);
@@ -66,15 +93,50 @@ public class PackageSelfServiceController {
                     content = @Content(schema = @Schema(implementation = Error.class))),
     })
     @GetMapping("/{packageId}")
-    public ResponseEntity<PackageDetails> getPackageDetails(
+    public ResponseEntity<MappingJacksonValue> getPackageDetails(
             @Pattern(regexp = GlobalConstants.UUID_REGEX_PATTERN, message = "Invalid senderId format.")
             @NotBlank(message = "Sender ID is required.") String senderId,
             @Pattern(regexp = GlobalConstants.UUID_REGEX_PATTERN, message = "Invalid packageId format.")
-            @PathVariable String packageId
+            @PathVariable String packageId,
+            @RequestParam(defaultValue = "false") boolean includeArchived,
+            @RequestParam(defaultValue = "") Set<@Pattern(regexp = GlobalConstants.PACKAGE_DETAILS_FIELD_REGEX_PATTERN, message = "Unknown field.") String> fields
     ) {
-        PackageDetails packageDetails = service.getPackageDetails(packageId, senderId);
+        PackageDetails packageDetails = service.getPackageDetails(packageId, senderId, includeArchived, fields);
         log.trace("Sender '{}', Successfully retrieved package details: {}", senderId, packageDetails);
-        return ResponseEntity.ok(packageDetails);
+        return ResponseEntity.ok(withFields(packageDetails, fields));
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Package details changed since the last seen version, which is returned in the ETag header",
+                    content = @Content(schema = @Schema(implementation = PackageDetails.class))),
+            @ApiResponse(responseCode = "304", description = "Package details didn't change within the timeout"),
+            @ApiResponse(responseCode = "400", description = "Bad request!",
+                    content = @Content(schema = @Schema(implementation = Error.class))),
+            @ApiResponse(responseCode = "500", description = "An unexpected error occurred",
+                    content = @Content(schema = @Schema(implementation = Error.class))),
+    })
+    @GetMapping("/{packageId}/watch")
+    public ResponseEntity<MappingJacksonValue> watchPackageDetails(
+            @Pattern(regexp = GlobalConstants.UUID_REGEX_PATTERN, message = "Invalid senderId format.")
+            @NotBlank(message = "Sender ID is required.") String senderId,
+            @Pattern(regexp = GlobalConstants.UUID_REGEX_PATTERN, message = "Invalid packageId format.")
+            @PathVariable String packageId,
+            @Pattern(regexp = GlobalConstants.PACKAGE_VERSION_REGEX_PATTERN, message = "Invalid lastSeen format.")
+            @RequestParam(required = false) String lastSeen,
+            @Min(value = 1, message = "Timeout must be between 1 and 60 seconds.") @Max(value = 60, message = "Timeout must be between 1 and 60 seconds.")
+            @RequestParam(defaultValue = "30") int timeout
+    ) {
+        // The request is held on its virtual thread until the package changes
+        String lastSeenVersion = StringUtils.strip(lastSeen, "\"");
+        Optional<PackageDetails> packageDetails = service.watchPackageDetails(packageId, senderId, lastSeenVersion, Duration.ofSeconds(timeout));
+        if (packageDetails.isEmpty()) {
+            log.trace("Sender '{}', Package '{}' unchanged since version '{}'", senderId, packageId, lastSeenVersion);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(lastSeenVersion).build();
+        }
+        log.trace("Sender '{}', Package details changed: {}", senderId, packageDetails.get());
+        return ResponseEntity.ok()
+                .eTag(PackageWatcher.version(packageDetails.get()))
+                .body(withFields(packageDetails.get(), Set.of()));
     }
 
     @ApiResponses(value = {
@@ -86,14 +148,115 @@ public class PackageSelfServiceController {
                     content = @Content(schema = @Schema(implementation = Error.class))),
     })
     @GetMapping
-    public ResponseEntity<List<PackageDetails>> listPackageDetails(
+    public ResponseEntity<byte[]> listPackageDetails(
             @Pattern(regexp = GlobalConstants.UUID_REGEX_PATTERN, message = "Invalid senderId format.")
             @NotBlank(message = "Sender ID is required.") String senderId,
-            @RequestParam(required = false) Optional<PackageStatus> status
+            @RequestParam(required = false) Optional<PackageStatus> status,
+            @RequestParam(defaultValue = "false") boolean includeArchived,
+            @RequestParam(defaultValue = "") Set<@Pattern(regexp = GlobalConstants.PACKAGE_DETAILS_FIELD_REGEX_PATTERN, message = "Unknown field.") String> fields
     ) {
-        List<PackageDetails> packageDetails = service.listPackageDetails(senderId, status);
-        log.trace("Sender '{}', status '{}', Retrieved package detail list: {}", senderId, status, packageDetails);
-        return ResponseEntity.ok(packageDetails);
+        // Kiosks poll the same list, it is served serialized from the cache until the sender's packages change
+        PackageListCache.ListKey key = new PackageListCache.ListKey(UUID.fromString(senderId), status.orElse(null), includeArchived, fields);
+        byte[] packageList = packageListCache.get(key, () -> {
+            List<PackageDetails> packageDetails = service.listPackageDetails(senderId, status, includeArchived, fields);
+            log.trace("Sender '{}', status '{}', Retrieved package detail list: {}", senderId, status, packageDetails);
+            return serialize(packageDetails, fields);
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(packageList);
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully searched package details",
+                    content = @Content(schema = @Schema(implementation = PackageSearchResult.class))),
+            @ApiResponse(responseCode = "400", description = "Bad request!",
+                    content = @Content(schema = @Schema(implementation = Error.class))),
+            @ApiResponse(responseCode = "500", description = "An unexpected error occurred",
+                    content = @Content(schema = @Schema(implementation = Error.class))),
+    })
+    @GetMapping("/search")
+    public ResponseEntity<MappingJacksonValue> searchPackageDetails(
+            @Pattern(regexp = GlobalConstants.UUID_REGEX_PATTERN, message = "Invalid senderId format.")
+            @NotBlank(message = "Sender ID is required.") String senderId,
+            // Trigrams need at least 3 characters to narrow the search down
+            @Size(min = 3, max = 255, message = "Name must be between 3 and 255 characters.") @RequestParam String name,
+            @RequestParam(defaultValue = "CONTAINS") PackageNameMatch match,
+            @RequestParam(defaultValue = "false") boolean includeArchived,
+            @Min(value = 0, message = "Page must not be negative.") @RequestParam(defaultValue = "0") int page,
+            @Min(value = 1, message = "Size must be between 1 and 100.") @Max(value = 100, message = "Size must be between 1 and 100.")
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "") Set<@Pattern(regexp = GlobalConstants.PACKAGE_DETAILS_FIELD_REGEX_PATTERN, message = "Unknown field.") String> fields
+    ) {
+        PackageSearchResult packageSearchResult = service.searchPackageDetails(senderId, name, match, includeArchived, page, size, fields);
+        log.trace("Sender '{}', name '{}', match '{}', Searched package details: {}", senderId, name, match, packageSearchResult);
+        return ResponseEntity.ok(withFields(packageSearchResult, fields));
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved package summary",
+                    content = @Content(schema = @Schema(implementation = PackageSummary.class))),
+            @ApiResponse(responseCode = "400", description = "Bad request!",
+                    content = @Content(schema = @Schema(implementation = Error.class))),
+            @ApiResponse(responseCode = "500", description = "An unexpected error occurred",
+                    content = @Content(schema = @Schema(implementation = Error.class))),
+    })
+    @GetMapping("/summary")
+    public ResponseEntity<PackageSummary> getPackageSummary(
+            @Pattern(regexp = GlobalConstants.UUID_REGEX_PATTERN, message = "Invalid senderId format.")
+            @NotBlank(message = "Sender ID is required.") String senderId
+    ) {
+        PackageSummary packageSummary = service.getPackageSummary(senderId);
+        log.trace("Sender '{}', Retrieved package summary: {}", senderId, packageSummary);
+        return ResponseEntity.ok(packageSummary);
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved receivers",
+                    content = @Content(schema = @Schema(implementation = ReceiverSearchResult.class))),
+            @ApiResponse(responseCode = "400", description = "Bad request!",
+                    content = @Content(schema = @Schema(implementation = Error.class))),
+            @ApiResponse(responseCode = "500", description = "An unexpected error occurred",
+                    content = @Content(schema = @Schema(implementation = Error.class))),
+    })
+    @GetMapping("/receivers")
+    public ResponseEntity<ReceiverSearchResult> findReceivers(
+            @Size(max = 255, message = "Prefix must be at most 255 characters.") @RequestParam(defaultValue = "") String prefix,
+            @Min(value = 0, message = "Page must not be negative.") @RequestParam(defaultValue = "0") int page,
+            @Min(value = 1, message = "Size must be between 1 and 100.") @Max(value = 100, message = "Size must be between 1 and 100.")
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        ReceiverSearchResult receiverSearchResult = receiverDirectory.findByPrefix(prefix, page, size);
+        log.trace("Prefix '{}', Retrieved receivers: {}", prefix, receiverSearchResult);
+        return ResponseEntity.ok(receiverSearchResult);
+    }
+
+    /**
+     * Wraps a response body containing package details, so only the requested fields of the package details are serialized. <br>
+     *
+     * @param body response body
+     * @param fields the requested fields, empty for all
+     * @return the response body with the package details filter
+     */
+    private MappingJacksonValue withFields(Object body, Set<String> fields) {
+        MappingJacksonValue value = new MappingJacksonValue(body);
+        value.setFilters(PackageDetailsFields.filterProvider(fields));
+        return value;
+    }
+
+    /**
+     * Serializes a response body containing package details, with only the requested fields of the package details. <br>
+     *
+     * @param body response body
+     * @param fields the requested fields, empty for all
+     * @return the serialized response body
+     */
+    private byte[] serialize(Object body, Set<String> fields) {
+        try {
+            return objectMapper.writer(PackageDetailsFields.filterProvider(fields)).writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("Could not serialize the package details", e);
+        }
     }
 
     /**
@@ -0,0 +1,78 @@
+package com.zlatko.packageselfservicebackend.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Read/write routing configuration. <br>
+ * The {@code spring.datasource} is the primary and the application's data source routes read-only transactions
+ * (e.g. the repository lookups outside the submit transaction) to the {@code app.datasource.replicas}, see {@link ReplicaRoutingDataSource}.
+ * Without replicas everything is routed to the primary. <br>
+ * The routing beans are always registered, the replicas are only read at runtime: the AOT-processed build (cds profile)
+ * fixes the bean conditions when it is built, so replicas configured at deploy time would be ignored by a condition.
+ */
+@Configuration
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class DataSourceRoutingConfig {
+
+    @Bean
+    public ReadYourWritesTracker readYourWritesTracker(ReplicaProperties replicaProperties) {
+        return new ReadYourWritesTracker(replicaProperties.readYourWritesWindow());
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName(ReplicaRoutingDataSource.PRIMARY);
+        return primary;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource, DataSourceProperties dataSourceProperties,
+                                                             ReplicaProperties replicaProperties, MeterRegistry meterRegistry) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicaProperties.replicas().size(); i++) {
+            ReplicaProperties.Replica replica = replicaProperties.replicas().get(i);
+            HikariDataSource replicaDataSource = new HikariDataSource();
+            replicaDataSource.setPoolName("replica-" + i);
+            replicaDataSource.setJdbcUrl(replica.url());
+            replicaDataSource.setUsername(StringUtils.defaultIfBlank(replica.username(), dataSourceProperties.determineUsername()));
+            replicaDataSource.setPassword(StringUtils.defaultIfBlank(replica.password(), dataSourceProperties.determinePassword()));
+            replicaDataSource.setDriverClassName(dataSourceProperties.determineDriverClassName());
+            // Same pool settings as the primary, the routing proxy expects the same auto-commit default from all targets
+            replicaDataSource.setAutoCommit(primaryDataSource.isAutoCommit());
+            // Unset (-1) until the primary pool started, the replica then uses the same default
+            if (primaryDataSource.getMaximumPoolSize() > 0) {
+                replicaDataSource.setMaximumPoolSize(primaryDataSource.getMaximumPoolSize());
+            }
+            replicaDataSource.setConnectionTimeout(primaryDataSource.getConnectionTimeout());
+            replicaDataSource.setReadOnly(true);
+            // Don't fail the startup when a replica is down, it just won't receive reads until it is reachable
+            replicaDataSource.setInitializationFailTimeout(-1);
+            // The hikaricp.* pool metrics are only bound automatically for data source beans
+            replicaDataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.put(replicaDataSource.getPoolName(), replicaDataSource);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas,
+                replicaProperties.maxReplicaLag(), replicaProperties.replicaLagCheckInterval(), meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
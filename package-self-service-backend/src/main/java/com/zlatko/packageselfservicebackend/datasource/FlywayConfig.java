@@ -0,0 +1,23 @@
+package com.zlatko.packageselfservicebackend.datasource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Runs the Flyway migrations at startup, unless {@code app.flyway.migrate-on-startup} is false (the CDS training run). <br>
+ * Decided at runtime: the AOT-processed build (cds profile) fixes the {@code spring.flyway.enabled} condition when it is built.
+ */
+@Configuration(proxyBeanMethods = false)
+public class FlywayConfig {
+
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(@Value("${app.flyway.migrate-on-startup:true}") boolean migrateOnStartup) {
+        return flyway -> {
+            if (migrateOnStartup) {
+                flyway.migrate();
+            }
+        };
+    }
+}
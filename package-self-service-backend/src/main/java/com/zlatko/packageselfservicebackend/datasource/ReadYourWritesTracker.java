@@ -0,0 +1,145 @@
+package com.zlatko.packageselfservicebackend.datasource;
+
+import com.zlatko.packageselfservicebackend.utils.GlobalConstants;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.util.WebUtils;
+
+/**
+ * Read-your-writes stickiness: after a sender submitted a package, the sender's reads are routed to the primary
+ * for the read-your-writes window, so a replica lagging behind can't hide the new package from the sender. <br>
+ * A write is recorded once its transaction committed: <br>
+ *  - per sender in this instance <br>
+ *  - as its commit time in the {@code last-write} cookie of the response, so the next reads of the client stick to the primary
+ *  on whichever instance the load balancer sends them to (the clocks of the instances are expected to be in sync within the window) <br>
+ * The routing decision is bound to the current thread for the duration of a {@link Scope}
+ * and read by the {@link ReplicaRoutingDataSource}.
+ */
+public class ReadYourWritesTracker {
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private final Duration window;
+    private final long windowNanos;
+    // Last write per sender, bounded by the number of employees. Expired entries are removed on the next read.
+    private final Map<String, Long> lastWriteNanos = new ConcurrentHashMap<>();
+
+    public ReadYourWritesTracker(Duration window) {
+        this.window = window;
+        this.windowNanos = window.toNanos();
+    }
+
+    /**
+     * Records a write of the given sender, after the current transaction commits if there is one. <br>
+     * Within a request, the commit time is also sent to the client in the {@code last-write} cookie.
+     *
+     * @param senderId the sender ID
+     */
+    public void recordWrite(String senderId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    writeCommitted(senderId);
+                }
+            });
+        } else {
+            writeCommitted(senderId);
+        }
+    }
+
+    /**
+     * Routes the reads of the current thread to the primary, until the returned scope is closed,
+     * if the given sender wrote within the read-your-writes window.
+     *
+     * @param senderId the sender ID
+     * @return the scope to close after the reads
+     */
+    public Scope routeReads(String senderId) {
+        if (!wroteRecently(senderId) && !clientWroteRecently()) {
+            return Scope.NONE;
+        }
+        Boolean previous = PRIMARY_REQUIRED.get();
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+        return () -> {
+            if (previous == null) {
+                PRIMARY_REQUIRED.remove();
+            } else {
+                PRIMARY_REQUIRED.set(previous);
+            }
+        };
+    }
+
+    private void writeCommitted(String senderId) {
+        lastWriteNanos.put(senderId, System.nanoTime());
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            HttpServletResponse response = attributes.getResponse();
+            if (response != null && !response.isCommitted()) {
+                ResponseCookie cookie = ResponseCookie.from(GlobalConstants.LAST_WRITE_COOKIE, Long.toString(System.currentTimeMillis()))
+                        .maxAge(window)
+                        .path("/")
+                        .httpOnly(true)
+                        .sameSite("Lax")
+                        .build();
+                response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+            }
+        }
+    }
+
+    private boolean wroteRecently(String senderId) {
+        Long lastWrite = lastWriteNanos.get(senderId);
+        if (lastWrite == null) {
+            return false;
+        }
+        if (System.nanoTime() - lastWrite > windowNanos) {
+            lastWriteNanos.remove(senderId, lastWrite);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return whether the client of the current request wrote within the window, through any instance
+     */
+    private boolean clientWroteRecently() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return false;
+        }
+        Cookie cookie = WebUtils.getCookie(attributes.getRequest(), GlobalConstants.LAST_WRITE_COOKIE);
+        if (cookie == null) {
+            return false;
+        }
+        try {
+            return Math.abs(System.currentTimeMillis() - Long.parseLong(cookie.getValue())) <= window.toMillis();
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return whether the reads of the current thread have to be routed to the primary
+     */
+    static boolean isPrimaryRequired() {
+        return Boolean.TRUE.equals(PRIMARY_REQUIRED.get());
+    }
+
+    /**
+     * Routing scope, to be used in a try-with-resources block.
+     */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        Scope NONE = () -> { };
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,42 @@
+package com.zlatko.packageselfservicebackend.datasource;
+
+import java.time.Duration;
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Read replica configuration, see {@link DataSourceRoutingConfig}.
+ *
+ * @param replicas the read replicas, read-only transactions are routed to the primary when empty
+ * @param maxReplicaLag the maximum replication lag of a replica that still receives reads
+ * @param replicaLagCheckInterval how often the replication lag of the replicas is checked
+ */
+@ConfigurationProperties(prefix = "app.datasource")
+public record ReplicaProperties(
+        @DefaultValue List<Replica> replicas,
+        @DefaultValue("5s") Duration maxReplicaLag,
+        @DefaultValue("1s") Duration replicaLagCheckInterval
+) {
+
+    /**
+     * A read replica. The username and password default to the ones of the primary ({@code spring.datasource}).
+     *
+     * @param url the JDBC URL
+     * @param username the username
+     * @param password the password
+     */
+    public record Replica(String url, String username, String password) {
+    }
+
+    /**
+     * After a write, reads of the same sender stay on the primary for this long. <br>
+     * Replicas only receive reads while their lag, measured at the last check, is within the max replica lag,
+     * so a write older than the max replica lag plus the check interval is visible on every replica receiving reads.
+     *
+     * @return the read-your-writes window
+     */
+    public Duration readYourWritesWindow() {
+        return maxReplicaLag.plus(replicaLagCheckInterval);
+    }
+}
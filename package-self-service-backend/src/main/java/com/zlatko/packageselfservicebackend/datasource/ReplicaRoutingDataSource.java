@@ -0,0 +1,153 @@
+package com.zlatko.packageselfservicebackend.datasource;
+
+import com.zlatko.packageselfservicebackend.utils.GlobalConstants;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Routes read-only transactions to the read replicas (round-robin) and everything else to the primary. <br>
+ * A replica only receives reads while its replication lag is within the max replica lag, the lag is checked periodically. <br>
+ * Reads are routed to the primary as well when no replica is configured or usable, or when the {@link ReadYourWritesTracker} requires it. <br>
+ * The routing decision is made when the physical connection is fetched, so this data source has to be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the read-only flag of a transaction is only
+ * known after the transaction manager obtained its connection.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    static final String PRIMARY = "primary";
+    // Lag of the last replayed transaction, 0 when everything received is replayed (e.g. idle primary) or when not a replica
+    private static final String REPLICA_LAG_QUERY = """
+            SELECT CASE
+                       WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                       ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000
+                   END""";
+
+    private final List<Replica> replicas;
+    private final long maxReplicaLagMillis;
+    private final Duration replicaLagCheckInterval;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private ScheduledExecutorService replicaLagMonitor;
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Duration maxReplicaLag,
+                                    Duration replicaLagCheckInterval, MeterRegistry meterRegistry) {
+        this.replicas = replicas.entrySet().stream()
+                .map(replica -> new Replica(replica.getKey(), replica.getValue()))
+                .toList();
+        this.maxReplicaLagMillis = maxReplicaLag.toMillis();
+        this.replicaLagCheckInterval = replicaLagCheckInterval;
+
+        Map<Object, Object> targetDataSources = new HashMap<>();
+        targetDataSources.put(PRIMARY, primary);
+        for (Replica replica : this.replicas) {
+            targetDataSources.put(replica.name, replica.dataSource);
+            Gauge.builder(GlobalConstants.METRIC_REPLICA_LAG, replica, r -> r.lagMillis)
+                    .tag(GlobalConstants.METRIC_TAG_REPLICA, replica.name)
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+            Gauge.builder(GlobalConstants.METRIC_REPLICA_USABLE, replica, r -> r.usable ? 1 : 0)
+                    .tag(GlobalConstants.METRIC_TAG_REPLICA, replica.name)
+                    .register(meterRegistry);
+        }
+        setTargetDataSources(targetDataSources);
+        setDefaultTargetDataSource(primary);
+    }
+
+    /**
+     * Starts checking the replication lag of the replicas periodically, on a single background thread. <br>
+     * Until the first check succeeded, a replica doesn't receive reads, so an unreachable replica can't delay the startup.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        if (replicas.isEmpty()) {
+            return;
+        }
+        replicaLagMonitor = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("replica-lag-monitor").daemon().factory());
+        replicaLagMonitor.scheduleWithFixedDelay(this::checkReplicaLag, 0, replicaLagCheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicas.isEmpty() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly() || ReadYourWritesTracker.isPrimaryRequired()) {
+            return PRIMARY;
+        }
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.usable) {
+                return replica.name;
+            }
+        }
+        return PRIMARY;
+    }
+
+    /**
+     * Measures the replication lag of every replica. Replicas that can't be reached, or whose lag is unknown or
+     * exceeds the max replica lag, don't receive reads until a later check succeeds.
+     */
+    void checkReplicaLag() {
+        for (Replica replica : replicas) {
+            boolean wasUsable = replica.usable;
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(REPLICA_LAG_QUERY)) {
+                resultSet.next();
+                double lagMillis = resultSet.getDouble(1);
+                boolean lagKnown = !resultSet.wasNull();
+                replica.lagMillis = lagKnown ? lagMillis : Double.NaN;
+                replica.usable = lagKnown && lagMillis <= maxReplicaLagMillis;
+            } catch (SQLException | RuntimeException e) {
+                log.debug("Replication lag check of replica '{}' failed", replica.name, e);
+                replica.lagMillis = Double.NaN;
+                replica.usable = false;
+            }
+            if (wasUsable != replica.usable) {
+                log.warn("Replica '{}' {} reads, replication lag: {} ms", replica.name, replica.usable ? "receives" : "stopped receiving", replica.lagMillis);
+            }
+        }
+    }
+
+    /**
+     * Stops the replication lag checks and closes the replica pools. The primary pool is closed by its own bean.
+     */
+    @Override
+    public void close() throws Exception {
+        if (replicaLagMonitor != null) {
+            replicaLagMonitor.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean usable;
+        private volatile double lagMillis = Double.NaN;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.zlatko.packageselfservicebackend.diagnostics;
+
+import com.zlatko.packageselfservicebackend.utils.GlobalConstants;
+import java.util.function.Supplier;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.Setter;
+import org.slf4j.MDC;
+
+/**
+ * Custom JDK Flight Recorder events of the domain operations, in the "Package Self Service Backend" category of JDK Mission Control. <br>
+ * Every event carries the X-Correlation-ID of the request and the outcome (the simple name of the exception, if any),
+ * so a slow package, sender or downstream call can be found in a recording and matched with the logs. <br>
+ * The events are only recorded while a recording is running (see {@link FlightRecordingEndpoint}), otherwise
+ * {@link #record(DomainEvent, Supplier)} only runs the operation.
+ */
+public final class DomainEvents {
+
+    private static final String CATEGORY = "Package Self Service Backend";
+    private static final String SUCCESS = "success";
+
+    private DomainEvents() {
+    }
+
+    /**
+     * Runs the operation as the duration of the event. <br>
+     * The operation may set the dimensions only known with its result on the event.
+     *
+     * @param event the event describing the operation
+     * @param operation the operation
+     * @return the result of the operation
+     */
+    public static <E extends DomainEvent, T> T record(E event, Supplier<T> operation) {
+        if (!event.isEnabled()) {
+            return operation.get();
+        }
+        event.start();
+        try {
+            return operation.get();
+        } catch (RuntimeException e) {
+            event.failed(e);
+            throw e;
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Fields of all domain events. Stack traces are not recorded, the events are identified by their dimensions.
+     */
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public abstract static class DomainEvent extends Event {
+        @Label("Correlation ID")
+        String correlationId;
+        @Label("Outcome")
+        @Description("success, or the simple name of the exception")
+        String outcome;
+
+        void start() {
+            correlationId = MDC.get(GlobalConstants.X_CORRELATION_ID);
+            outcome = SUCCESS;
+            begin();
+        }
+
+        void failed(Throwable failure) {
+            outcome = failure.getClass().getSimpleName();
+        }
+    }
+
+    @Name("com.zlatko.packageselfservice.SubmitPackage")
+    @Label("Submit Package")
+    @Description("Submission of a package, including the lookups, the shipping order creation and the persisting")
+    public static class SubmitPackage extends DomainEvent {
+        @Label("Sender ID")
+        String senderId;
+        @Label("Recipient ID")
+        String recipientId;
+        @Label("Package Name")
+        String packageName;
+        @Label("Idempotency Key")
+        String idempotencyKey;
+        @Label("Package ID")
+        @Setter
+        String packageId;
+        @Label("Replayed")
+        @Description("The package of an earlier submission with the same Idempotency-Key was returned")
+        @Setter
+        boolean replayed;
+
+        public SubmitPackage(String senderId, String recipientId, String packageName, String idempotencyKey) {
+            this.senderId = senderId;
+            this.recipientId = recipientId;
+            this.packageName = packageName;
+            this.idempotencyKey = idempotencyKey;
+        }
+    }
+
+    @Name("com.zlatko.packageselfservice.EnrichPackageDetails")
+    @Label("Enrich Package Details")
+    @Description("Enrichment of a package with the details of its shipping order")
+    public static class EnrichPackageDetails extends DomainEvent {
+        @Label("Package ID")
+        String packageId;
+        @Label("Sender ID")
+        String senderId;
+        @Label("Order ID")
+        String orderId;
+        @Label("Order Status")
+        @Setter
+        String orderStatus;
+
+        public EnrichPackageDetails(String packageId, String senderId, String orderId) {
+            this.packageId = packageId;
+            this.senderId = senderId;
+            this.orderId = orderId;
+        }
+    }
+
+    @Name("com.zlatko.packageselfservice.ShippingClientCall")
+    @Label("Shipping Client Call")
+    @Description("Attempt of a call to the Package Shipping Service, retries are recorded as separate events")
+    public static class ShippingClientCall extends DomainEvent {
+        @Label("Operation")
+        String operation;
+        @Label("Order ID")
+        String orderId;
+        @Label("Package Name")
+        String packageName;
+        @Label("HTTP Status")
+        @Setter
+        int httpStatus;
+
+        public ShippingClientCall(String operation, String orderId, String packageName) {
+            this.operation = operation;
+            this.orderId = orderId;
+            this.packageName = packageName;
+        }
+    }
+
+    @Name("com.zlatko.packageselfservice.RepositoryQuery")
+    @Label("Repository Query")
+    @Description("Invocation of a Spring Data repository method")
+    @Category({CATEGORY, "Repository"})
+    public static class RepositoryQuery extends DomainEvent {
+        @Label("Repository")
+        String repository;
+        @Label("Method")
+        String method;
+
+        public RepositoryQuery(String repository, String method) {
+            this.repository = repository;
+            this.method = method;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.zlatko.packageselfservicebackend.diagnostics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.locks.ReentrantLock;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * On-demand continuous JDK Flight Recorder recording, exposed at {@code /actuator/flightrecording}: <br>
+ *  - POST starts the recording with the {@code settings} JFR configuration ("default" has less than 1% overhead)
+ *  and the {@link DomainEvents}, keeping at most the last {@code max-age} and {@code max-size} of data <br>
+ *  - GET dumps the data recorded so far as a .jfr file (open it in JDK Mission Control), 404 when not recording <br>
+ *  - DELETE stops the recording and discards its data <br>
+ * A lock guards the recording instead of synchronized, so a request writing the dump does not pin its virtual thread.
+ */
+@Component
+@Endpoint(id = "flightrecording")
+@Slf4j
+public class FlightRecordingEndpoint {
+
+    private static final String RECORDING_NAME = "package-self-service-backend";
+
+    private final String settings;
+    private final Duration maxAge;
+    private final DataSize maxSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private Recording recording;
+
+    public FlightRecordingEndpoint(@Value("${app.diagnostics.flight-recording.settings:default}") String settings,
+                                   @Value("${app.diagnostics.flight-recording.max-age:PT30M}") Duration maxAge,
+                                   @Value("${app.diagnostics.flight-recording.max-size:250MB}") DataSize maxSize) {
+        this.settings = settings;
+        this.maxAge = maxAge;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Starts the recording, unless it is already running.
+     *
+     * @return the state of the recording
+     */
+    @WriteOperation
+    public RecordingState start() {
+        lock.lock();
+        try {
+            if (recording == null) {
+                Recording started = new Recording(Configuration.getConfiguration(settings));
+                started.setName(RECORDING_NAME);
+                started.setToDisk(true);
+                started.setMaxAge(maxAge);
+                started.setMaxSize(maxSize.toBytes());
+                started.start();
+                recording = started;
+                log.info("Started the flight recording with the '{}' settings, keeping at most {} and {}", settings, maxAge, maxSize);
+            }
+            return state();
+        } catch (IOException | ParseException e) {
+            throw new IllegalStateException("Could not read the '%s' JFR configuration".formatted(settings), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Dumps the data recorded so far into a temporary file, deleted once it was sent.
+     *
+     * @return the .jfr file, or 404 when not recording
+     */
+    @ReadOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> dump() {
+        lock.lock();
+        try {
+            if (recording == null) {
+                return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+            }
+            Path file = Files.createTempFile(RECORDING_NAME + "-", ".jfr");
+            recording.dump(file);
+            return new WebEndpointResponse<>(new TemporaryFileResource(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not dump the flight recording", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the recording and discards its data.
+     *
+     * @return the state of the recording
+     */
+    @DeleteOperation
+    public RecordingState stop() {
+        lock.lock();
+        try {
+            if (recording != null) {
+                recording.close();
+                recording = null;
+                log.info("Stopped the flight recording");
+            }
+            return state();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private RecordingState state() {
+        if (recording == null) {
+            return new RecordingState(false, null, 0, settings, maxAge, maxSize.toBytes());
+        }
+        return new RecordingState(true, recording.getStartTime(), recording.getSize(), settings, maxAge, maxSize.toBytes());
+    }
+
+    /**
+     * @param recording whether the recording is running
+     * @param startTime when the recording was started, null when not recording
+     * @param sizeInBytes the size of the recorded data
+     * @param settings the JFR configuration of the recording
+     * @param maxAge the recorded data is kept for at most this long
+     * @param maxSizeInBytes at most this much recorded data is kept
+     */
+    public record RecordingState(boolean recording, @Nullable Instant startTime, long sizeInBytes, String settings,
+                                 Duration maxAge, long maxSizeInBytes) {
+    }
+
+    /**
+     * File deleted when its content was read.
+     */
+    static class TemporaryFileResource extends FileSystemResource {
+
+        TemporaryFileResource(Path file) {
+            super(file);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return Files.newInputStream(getFile().toPath(), StandardOpenOption.DELETE_ON_CLOSE);
+        }
+    }
+}
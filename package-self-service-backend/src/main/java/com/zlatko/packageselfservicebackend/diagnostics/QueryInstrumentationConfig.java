@@ -0,0 +1,36 @@
+package com.zlatko.packageselfservicebackend.diagnostics;
+
+import javax.sql.DataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.function.SingletonSupplier;
+
+/**
+ * Wraps the application data source in an {@link InstrumentedDataSource}, so every statement executed through JPA,
+ * Flyway or a JdbcTemplate is recorded by the {@link QueryRecorder}. <br>
+ * Only the "dataSource" bean is wrapped: with read replicas it routes to the pools, which are then not wrapped twice.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(value = "app.diagnostics.queries.enabled", matchIfMissing = true)
+public class QueryInstrumentationConfig {
+
+    private static final String DATA_SOURCE_BEAN = "dataSource";
+
+    @Bean
+    public static BeanPostProcessor queryInstrumentationBeanPostProcessor(ObjectProvider<QueryRecorder> queryRecorder) {
+        // Resolved lazily, the recorder and its meter registry are not yet created when the data source is
+        SingletonSupplier<QueryRecorder> recorder = SingletonSupplier.of(queryRecorder::getObject);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (DATA_SOURCE_BEAN.equals(beanName) && bean instanceof DataSource dataSource) {
+                    return new InstrumentedDataSource(dataSource, recorder);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,275 @@
+package com.zlatko.packageselfservicebackend.diagnostics;
+
+import com.zlatko.packageselfservicebackend.utils.GlobalConstants;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Virtual thread pinning and carrier starvation diagnostics, exposed at {@code /actuator/pinning}. <br>
+ * A JFR recording stream consumes the {@code jdk.VirtualThreadPinned} events (a virtual thread blocked for longer than
+ * {@code threshold} while pinned to its carrier, e.g. inside a synchronized block or under a native frame) and the
+ * {@code jdk.VirtualThreadSubmitFailed} events (a virtual thread that could not be scheduled). The pinning events are
+ * aggregated by stack trace, at most {@code max-stack-traces} distinct ones, and listed by total pinned time. <br>
+ * The JDK 21 scheduler has no statistics API, so the carrier pool is observed through the number of live carrier threads
+ * (above the parallelism while the pool compensates for blocked carriers) and a probe measuring how long a new virtual
+ * thread waits for a carrier, every {@code probe-interval}. <br>
+ * Everything is also published as {@code jvm.threads.virtual.*} metrics. Without Flight Recorder (e.g. in a native image
+ * built without JFR support) only the carrier metrics are available.
+ */
+@Component
+@Endpoint(id = "pinning")
+@ConditionalOnProperty(value = "app.diagnostics.pinning.enabled", matchIfMissing = true)
+@Slf4j
+public class VirtualThreadPinningEndpoint implements SmartLifecycle {
+
+    static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    static final String SUBMIT_FAILED_EVENT = "jdk.VirtualThreadSubmitFailed";
+    private static final String CARRIER_THREAD_GROUP = "CarrierThreads";
+    private static final int DEFAULT_LIMIT = 10;
+
+    private final Duration threshold;
+    private final int maxStackTraces;
+    private final Timer pinned;
+    private final Counter submitFailed;
+    private final Timer schedulingDelay;
+    private final int parallelism;
+    private final int maxPoolSize;
+    private final Map<List<String>, PinnedStackTrace> pinnedStackTraces = new ConcurrentHashMap<>();
+    // Pinning events of stack traces beyond max-stack-traces, only counted
+    private final LongAdder untrackedPinnedEvents = new LongAdder();
+    private volatile ThreadGroup carrierThreadGroup;
+    private volatile RecordingStream recordingStream;
+    private volatile boolean running;
+
+    public VirtualThreadPinningEndpoint(MeterRegistry meterRegistry,
+                                        @Value("${app.diagnostics.pinning.threshold:PT0.02S}") Duration threshold,
+                                        @Value("${app.diagnostics.pinning.max-stack-traces:256}") int maxStackTraces) {
+        this.threshold = threshold;
+        this.maxStackTraces = maxStackTraces;
+        this.pinned = meterRegistry.timer(GlobalConstants.METRIC_VIRTUAL_THREADS_PINNED);
+        this.submitFailed = meterRegistry.counter(GlobalConstants.METRIC_VIRTUAL_THREADS_SUBMIT_FAILED);
+        this.schedulingDelay = meterRegistry.timer(GlobalConstants.METRIC_VIRTUAL_THREADS_SCHEDULING_DELAY);
+        // Same defaults as the scheduler of the virtual threads (java.lang.VirtualThread)
+        this.parallelism = Integer.getInteger("jdk.virtualThreadScheduler.parallelism", Runtime.getRuntime().availableProcessors());
+        this.maxPoolSize = Integer.getInteger("jdk.virtualThreadScheduler.maxPoolSize", Math.max(parallelism, 256));
+        Gauge.builder(GlobalConstants.METRIC_VIRTUAL_THREADS_CARRIERS, this::liveCarrierThreads).register(meterRegistry);
+        Gauge.builder(GlobalConstants.METRIC_VIRTUAL_THREADS_PARALLELISM, () -> parallelism).register(meterRegistry);
+    }
+
+    /**
+     * Returns the pinning events and the state of the carrier pool.
+     *
+     * @param limit the maximum number of stack traces to return, 10 by default
+     * @return the pinning report, stack traces with the longest total pinned time first
+     */
+    @ReadOperation
+    public PinningReport pinning(@Nullable Integer limit) {
+        List<PinnedStackTraceReport> topStackTraces = pinnedStackTraces.entrySet().stream()
+                .map(entry -> entry.getValue().report(entry.getKey()))
+                .sorted(Comparator.comparingDouble(PinnedStackTraceReport::totalMillis).reversed())
+                .limit(limit != null ? limit : DEFAULT_LIMIT)
+                .toList();
+        return new PinningReport(
+                recordingStream != null,
+                threshold.toNanos() / 1e6,
+                pinned.count(),
+                pinned.totalTime(TimeUnit.MILLISECONDS),
+                untrackedPinnedEvents.sum(),
+                (long) submitFailed.count(),
+                new CarrierPool(parallelism, maxPoolSize, liveCarrierThreads(), schedulingDelay.max(TimeUnit.MILLISECONDS)),
+                topStackTraces);
+    }
+
+    /**
+     * Clears the aggregated stack traces, e.g. to check a fix. The metrics keep counting.
+     */
+    @DeleteOperation
+    public void reset() {
+        pinnedStackTraces.clear();
+        untrackedPinnedEvents.reset();
+    }
+
+    /**
+     * Measures how long a new virtual thread waits for a carrier thread.
+     */
+    @Scheduled(fixedDelayString = "${app.diagnostics.pinning.probe-interval:PT1S}")
+    public void probeSchedulingDelay() {
+        long submitted = System.nanoTime();
+        Thread.ofVirtual().name("scheduling-delay-probe")
+                .start(() -> schedulingDelay.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        try {
+            RecordingStream stream = new RecordingStream();
+            stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+            stream.enable(SUBMIT_FAILED_EVENT).withStackTrace();
+            // Consumed events are not needed anymore, only keeps the chunks the stream is reading
+            stream.setMaxAge(Duration.ofMinutes(1));
+            stream.onEvent(PINNED_EVENT, this::onPinned);
+            stream.onEvent(SUBMIT_FAILED_EVENT, this::onSubmitFailed);
+            stream.startAsync();
+            recordingStream = stream;
+        } catch (RuntimeException e) {
+            log.warn("Flight Recorder is not available, virtual thread pinning is not recorded", e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        RecordingStream stream = recordingStream;
+        if (stream != null) {
+            recordingStream = null;
+            stream.close();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    void onPinned(RecordedEvent event) {
+        Duration duration = event.getDuration();
+        pinned.record(duration);
+        List<String> stackTrace = frames(event.getStackTrace());
+        PinnedStackTrace aggregate = pinnedStackTraces.get(stackTrace);
+        if (aggregate == null && pinnedStackTraces.size() < maxStackTraces) {
+            aggregate = pinnedStackTraces.computeIfAbsent(stackTrace, key -> new PinnedStackTrace());
+        }
+        if (aggregate == null) {
+            untrackedPinnedEvents.increment();
+        } else {
+            aggregate.record(duration.toNanos());
+        }
+    }
+
+    private void onSubmitFailed(RecordedEvent event) {
+        submitFailed.increment();
+        log.warn("Submitting virtual thread {} to its scheduler failed: {}", event.getLong("javaThreadId"), event.getString("exception"));
+    }
+
+    private static List<String> frames(@Nullable RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return List.of();
+        }
+        return stackTrace.getFrames().stream()
+                .map(VirtualThreadPinningEndpoint::frame)
+                .toList();
+    }
+
+    private static String frame(RecordedFrame frame) {
+        return "%s.%s:%d".formatted(frame.getMethod().getType().getName(), frame.getMethod().getName(), frame.getLineNumber());
+    }
+
+    /**
+     * Counts the live carrier threads, which are all in the same thread group.
+     */
+    int liveCarrierThreads() {
+        ThreadGroup group = carrierThreadGroup;
+        if (group == null) {
+            // Created with the first carrier thread
+            group = findThreadGroup(CARRIER_THREAD_GROUP);
+            if (group == null) {
+                return 0;
+            }
+            carrierThreadGroup = group;
+        }
+        return group.activeCount();
+    }
+
+    @Nullable
+    private static ThreadGroup findThreadGroup(String name) {
+        ThreadGroup root = Thread.currentThread().getThreadGroup();
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        ThreadGroup[] groups = new ThreadGroup[root.activeGroupCount() + 1];
+        int count = root.enumerate(groups);
+        for (int i = 0; i < count; i++) {
+            if (name.equals(groups[i].getName())) {
+                return groups[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Pinning events of one stack trace.
+     */
+    static class PinnedStackTrace {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        PinnedStackTraceReport report(List<String> stackTrace) {
+            return new PinnedStackTraceReport(count.sum(), totalNanos.sum() / 1e6, maxNanos.get() / 1e6, stackTrace);
+        }
+    }
+
+    /**
+     * @param recording whether the pinning events are recorded, false without Flight Recorder
+     * @param thresholdMillis pinned virtual threads blocked for longer than this are recorded
+     * @param pinnedEvents the number of recorded pinning events
+     * @param pinnedMillis the total pinned time of the recorded events
+     * @param untrackedPinnedEvents the pinning events not aggregated, as max-stack-traces distinct stack traces were already tracked
+     * @param submitFailedEvents the number of virtual threads that could not be scheduled
+     * @param carriers the state of the carrier pool
+     * @param topStackTraces the stack traces with the longest total pinned time
+     */
+    public record PinningReport(boolean recording, double thresholdMillis, long pinnedEvents, double pinnedMillis,
+                                long untrackedPinnedEvents, long submitFailedEvents, CarrierPool carriers,
+                                List<PinnedStackTraceReport> topStackTraces) {
+    }
+
+    /**
+     * @param parallelism the number of carrier threads running virtual threads
+     * @param maxPoolSize the maximum number of carrier threads, including those compensating for blocked carriers
+     * @param live the number of live carrier threads
+     * @param maxSchedulingDelayMillis the longest recent wait of a new virtual thread for a carrier thread
+     */
+    public record CarrierPool(int parallelism, int maxPoolSize, int live, double maxSchedulingDelayMillis) {
+    }
+
+    /**
+     * @param count the number of pinning events with this stack trace
+     * @param totalMillis their total pinned time
+     * @param maxMillis their longest pinned time
+     * @param stackTrace the stack trace of the pinned virtual thread, top frame first
+     */
+    public record PinnedStackTraceReport(long count, double totalMillis, double maxMillis, List<String> stackTrace) {
+    }
+}
@@ -0,0 +1,84 @@
+package com.zlatko.packageselfservicebackend.directory;
+
+import com.zlatko.packageselfservicebackend.model.dtos.ReceiverSearchResult;
+import com.zlatko.packageselfservicebackend.repositories.EmployeeRepository;
+import com.zlatko.packageselfservicebackend.utils.GlobalConstants;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Directory of the receivers (all employees) for the kiosk typeahead, answered from an in-memory {@link ReceiverIndex}
+ * without a database round trip. <br>
+ * The index is immutable: a refresh builds a complete new index aside and then replaces the current one with a single
+ * volatile write, so a lookup always sees either the old or the new employees, never a mix. <br>
+ * The employees version (see V6__Track_employees_version.sql) is polled on the configured interval and the index is
+ * only rebuilt when it changed. Runs once the application is ready and then on the refresh interval.
+ */
+@Component
+@Slf4j
+public class ReceiverDirectory {
+
+    private final EmployeeRepository employeeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean refreshEnabled;
+
+    private volatile ReceiverIndex receiverIndex = ReceiverIndex.EMPTY;
+    private long loadedVersion = -1;
+
+    public ReceiverDirectory(EmployeeRepository employeeRepository, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                             @Value("${app.receivers.directory.refresh-enabled:true}") boolean refreshEnabled) {
+        this.employeeRepository = employeeRepository;
+        // The version and the employees are read from the same snapshot
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.refreshEnabled = refreshEnabled;
+        Gauge.builder(GlobalConstants.METRIC_RECEIVER_DIRECTORY_SIZE, this, directory -> directory.receiverIndex.size())
+                .description("Number of receivers in the in-memory receiver directory")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns a page of the receivers whose name starts with the prefix, in name order (see {@link ReceiverIndex}). <br>
+     *
+     * @param prefix the name prefix, an empty prefix lists all receivers
+     * @param page zero-based page number
+     * @param size page size
+     * @return the page of receivers and the total number of matching receivers
+     */
+    @Timed(GlobalConstants.METRIC_FIND_RECEIVERS)
+    public ReceiverSearchResult findByPrefix(String prefix, int page, int size) {
+        return receiverIndex.findByPrefix(prefix, page, size);
+    }
+
+    /**
+     * Rebuilds the index if the employees changed since the last refresh. <br>
+     * Synchronized, as the startup refresh may overlap with the first scheduled one.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.receivers.directory.refresh-interval:PT10S}")
+    public synchronized void refresh() {
+        if (!refreshEnabled) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            long version = employeeRepository.findVersion();
+            if (version != loadedVersion) {
+                ReceiverIndex rebuiltIndex = new ReceiverIndex(employeeRepository.findAllReceivers());
+                receiverIndex = rebuiltIndex;
+                loadedVersion = version;
+                log.info("Receiver directory rebuilt with {} receivers (employees version {})", rebuiltIndex.size(), version);
+            }
+        });
+    }
+}
@@ -0,0 +1,83 @@
+package com.zlatko.packageselfservicebackend.directory;
+
+import com.zlatko.packageselfservicebackend.model.dtos.Receiver;
+import com.zlatko.packageselfservicebackend.model.dtos.ReceiverSearchResult;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable prefix index of the receivers: their normalized names in a sorted array, next to the receivers in the same order. <br>
+ * All receivers whose normalized name starts with a normalized prefix are a contiguous range of the array,
+ * found with two binary searches, and a page is a copy of a slice of that range. <br>
+ * Names are normalized by removing diacritics, lower casing and collapsing whitespace, so "Zoë  Müller" is found by "zoe mu".
+ */
+public final class ReceiverIndex {
+
+    public static final ReceiverIndex EMPTY = new ReceiverIndex(List.of());
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final String[] normalizedNames;
+    private final Receiver[] receivers;
+
+    public ReceiverIndex(List<Receiver> receivers) {
+        IndexEntry[] entries = receivers.stream()
+                .map(receiver -> new IndexEntry(normalize(receiver.receiverName()), receiver))
+                .sorted(Comparator.comparing(IndexEntry::normalizedName).thenComparing(entry -> entry.receiver().receiverId()))
+                .toArray(IndexEntry[]::new);
+        this.normalizedNames = Arrays.stream(entries).map(IndexEntry::normalizedName).toArray(String[]::new);
+        this.receivers = Arrays.stream(entries).map(IndexEntry::receiver).toArray(Receiver[]::new);
+    }
+
+    /**
+     * Returns a page of the receivers whose name starts with the prefix, in name order. <br>
+     *
+     * @param prefix the (not normalized) name prefix, an empty prefix matches all receivers
+     * @param page zero-based page number
+     * @param size page size
+     * @return the page of receivers and the total number of matching receivers
+     */
+    public ReceiverSearchResult findByPrefix(String prefix, int page, int size) {
+        String normalizedPrefix = normalize(prefix);
+        int from = lowerBound(normalizedPrefix);
+        // Every name starting with the prefix sorts before the prefix followed by the greatest char
+        int to = lowerBound(normalizedPrefix + Character.MAX_VALUE);
+        int pageFrom = (int) Math.min(to, from + (long) page * size);
+        int pageTo = (int) Math.min(to, (long) pageFrom + size);
+        return new ReceiverSearchResult(List.of(Arrays.copyOfRange(receivers, pageFrom, pageTo)), page, size, to - from);
+    }
+
+    public int size() {
+        return receivers.length;
+    }
+
+    /**
+     * Index of the first name not less than the key, or the number of names if all are less.
+     */
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = normalizedNames.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (normalizedNames[middle].compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private record IndexEntry(String normalizedName, Receiver receiver) {
+    }
+
+    static String normalize(String name) {
+        String withoutDiacritics = DIACRITICS.matcher(Normalizer.normalize(name, Normalizer.Form.NFD)).replaceAll("");
+        return WHITESPACE.matcher(withoutDiacritics.toLowerCase(Locale.ROOT)).replaceAll(" ").stripLeading();
+    }
+}
@@ -0,0 +1,113 @@
+package com.zlatko.packageselfservicebackend.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Dedupe store of the package submissions by their Idempotency-Key, so a repeated submission returns the original package. <br>
+ * Keys are scoped by sender and kept for {@code ttl}: <br>
+ *  - in PostgreSQL (V8 migration), claimed in the submit transaction of the package, so a key exists exactly when its package does <br>
+ *  - in memory, at most {@code cache-size} recently committed or found keys, so most repeats don't touch the database at all <br>
+ * Expired keys are ignored right away and deleted every {@code cleanup-interval}.
+ */
+@Component
+@Slf4j
+public class IdempotencyKeyStore {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final Cache<SubmissionKey, UUID> recentKeys;
+
+    public IdempotencyKeyStore(JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${app.idempotency.ttl:PT24H}") Duration ttl,
+                               @Value("${app.idempotency.cache-size:10000}") long cacheSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.ttl = ttl;
+        this.recentKeys = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Returns the package submitted with the key, looked up in memory first.
+     *
+     * @param senderId sender ID
+     * @param idempotencyKey Idempotency-Key of the submission
+     * @return the ID of the package submitted with the key, or an empty Optional if the key wasn't used (or expired)
+     */
+    public Optional<UUID> findPackageId(UUID senderId, String idempotencyKey) {
+        SubmissionKey submissionKey = new SubmissionKey(senderId, idempotencyKey);
+        UUID packageId = recentKeys.getIfPresent(submissionKey);
+        if (packageId != null) {
+            return Optional.of(packageId);
+        }
+        Optional<UUID> storedPackageId = jdbcTemplate.queryForList("""
+                        SELECT package_id FROM submission_idempotency_keys
+                        WHERE sender_id = ? AND idempotency_key = ? AND created_at > ?""",
+                UUID.class, senderId, idempotencyKey, LocalDateTime.now().minus(ttl)).stream().findFirst();
+        storedPackageId.ifPresent(id -> recentKeys.put(submissionKey, id));
+        return storedPackageId;
+    }
+
+    /**
+     * Claims the key for the package, in the current (submit) transaction. <br>
+     * If a concurrent submission with the same key is still running, this waits for its transaction to end.
+     *
+     * @param senderId sender ID
+     * @param idempotencyKey Idempotency-Key of the submission
+     * @param packageId ID of the package being submitted
+     * @return the ID of the package of an earlier submission with the key, or an empty Optional if the key was claimed for this package
+     */
+    public Optional<UUID> claim(UUID senderId, String idempotencyKey, UUID packageId) {
+        // An expired key is taken over, it may not have been deleted yet
+        int claimed = jdbcTemplate.update("""
+                        INSERT INTO submission_idempotency_keys (sender_id, idempotency_key, package_id, created_at)
+                        VALUES (?, ?, ?, CURRENT_TIMESTAMP)
+                        ON CONFLICT (sender_id, idempotency_key) DO UPDATE
+                            SET package_id = excluded.package_id, created_at = excluded.created_at
+                            WHERE submission_idempotency_keys.created_at <= ?""",
+                senderId, idempotencyKey, packageId, LocalDateTime.now().minus(ttl));
+        if (claimed == 0) {
+            return findPackageId(senderId, idempotencyKey);
+        }
+        SubmissionKey submissionKey = new SubmissionKey(senderId, idempotencyKey);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recentKeys.put(submissionKey, packageId);
+            }
+        });
+        return Optional.empty();
+    }
+
+    /**
+     * Deletes the expired keys, first one cleanup interval after startup.
+     */
+    @Scheduled(fixedDelayString = "${app.idempotency.cleanup-interval:PT1H}", initialDelayString = "${app.idempotency.cleanup-interval:PT1H}")
+    public void deleteExpired() {
+        Integer deleted = transactionTemplate.execute(status -> jdbcTemplate.update(
+                "DELETE FROM submission_idempotency_keys WHERE created_at <= ?", LocalDateTime.now().minus(ttl)));
+        if (deleted != null && deleted > 0) {
+            log.info("Deleted {} expired idempotency keys", deleted);
+        }
+    }
+
+    private record SubmissionKey(UUID senderId, String idempotencyKey) {
+    }
+}
@@ -1,9 +1,11 @@
 package com.zlatko.packageselfservicebackend.model.dtos;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import com.zlatko.packageselfservicebackend.model.dtos.enums.PackageStatus;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
+@JsonFilter(PackageDetailsFields.FILTER_ID)
 public record PackageDetails(
         String packageId,
         String packageName,
@@ -0,0 +1,40 @@
+package com.zlatko.packageselfservicebackend.model.dtos;
+
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import java.util.Set;
+
+/**
+ * Sparse fieldsets of the {@link PackageDetails}: the {@code fields} requested by the client. <br>
+ * An empty set requests all fields. Only status and the delivery dates come from the package-shipping-service,
+ * the other fields are read from the local database. <br>
+ * PackageDetails are serialized through the {@link #FILTER_ID} Jackson filter, so every ObjectWriter of them
+ * needs the {@link #filterProvider(Set)} of the requested fields.
+ */
+public final class PackageDetailsFields {
+
+    public static final String FILTER_ID = "packageDetailsFields";
+
+    private static final Set<String> DOWNSTREAM_FIELDS = Set.of("status", "expectedDeliveryDate", "actualDeliveryDateTime");
+
+    private PackageDetailsFields() {
+    }
+
+    /**
+     * @param fields the requested fields, empty for all
+     * @return whether any of the requested fields comes from the package-shipping-service
+     */
+    public static boolean requireDownstream(Set<String> fields) {
+        return fields.isEmpty() || fields.stream().anyMatch(DOWNSTREAM_FIELDS::contains);
+    }
+
+    /**
+     * @param fields the requested fields, empty for all
+     * @return the filters serializing only the requested fields of the PackageDetails
+     */
+    public static FilterProvider filterProvider(Set<String> fields) {
+        return new SimpleFilterProvider().addFilter(FILTER_ID,
+                fields.isEmpty() ? SimpleBeanPropertyFilter.serializeAll() : SimpleBeanPropertyFilter.filterOutAllExcept(fields));
+    }
+}
@@ -0,0 +1,11 @@
+package com.zlatko.packageselfservicebackend.model.dtos;
+
+import java.util.List;
+
+public record PackageSearchResult(
+        List<PackageDetails> packages,
+        int page,
+        int size,
+        boolean hasNext
+) {
+}
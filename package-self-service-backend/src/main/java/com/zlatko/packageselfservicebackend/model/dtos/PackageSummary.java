@@ -0,0 +1,13 @@
+package com.zlatko.packageselfservicebackend.model.dtos;
+
+import com.zlatko.packageselfservicebackend.model.dtos.enums.PackageStatus;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+public record PackageSummary(
+        Map<PackageStatus, Long> packageCounts,
+        LocalDate nextExpectedDeliveryDate,
+        LocalDateTime lastDeliveryDateTime
+) {
+}
@@ -0,0 +1,8 @@
+package com.zlatko.packageselfservicebackend.model.dtos;
+
+public record Receiver(
+        String receiverId,
+        String receiverName,
+        String city
+) {
+}
@@ -0,0 +1,11 @@
+package com.zlatko.packageselfservicebackend.model.dtos;
+
+import java.util.List;
+
+public record ReceiverSearchResult(
+        List<Receiver> receivers,
+        int page,
+        int size,
+        int totalReceivers
+) {
+}
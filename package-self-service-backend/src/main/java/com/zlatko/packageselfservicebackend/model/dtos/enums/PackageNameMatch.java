@@ -0,0 +1,6 @@
+package com.zlatko.packageselfservicebackend.model.dtos.enums;
+
+public enum PackageNameMatch {
+    PREFIX,
+    CONTAINS
+}
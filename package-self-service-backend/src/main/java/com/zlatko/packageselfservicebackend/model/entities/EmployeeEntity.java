@@ -9,11 +9,15 @@ import jakarta.validation.constraints.Size;
 import java.util.UUID;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
 
 @Getter
 @Setter
 @Entity
 @Table(name = "employees")
+// The receivers of the packages read by native queries (archive, search, change sync) are loaded up to 100 per select,
+// instead of one select per distinct receiver
+@BatchSize(size = 100)
 public class EmployeeEntity {
     @Id
     @Column(name = "id", nullable = false)
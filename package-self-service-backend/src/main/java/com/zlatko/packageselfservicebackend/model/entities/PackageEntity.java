@@ -1,7 +1,10 @@
 package com.zlatko.packageselfservicebackend.model.entities;
 
+import com.zlatko.packageselfservicebackend.model.dtos.enums.PackageStatus;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
@@ -9,6 +12,7 @@ import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.UUID;
 import lombok.AllArgsConstructor;
@@ -44,6 +48,8 @@ public class PackageEntity {
     @JoinColumn(name = "sender_id", nullable = false)
     private EmployeeEntity sender;
 
+    // Eager, since the packages are mapped to their details outside a session (open-in-view is disabled). The JPQL reads
+    // join it through an entity graph (see PackageRepository), the native ones load it in batches (see EmployeeEntity)
     @NotNull
     @ManyToOne(fetch = FetchType.EAGER, optional = false)
     @JoinColumn(name = "receiver_id", nullable = false)
@@ -58,4 +64,17 @@ public class PackageEntity {
     @NotNull
     private LocalDateTime dateOfRegistration;
 
+    // Last state observed from the downstream service, see PackageSummaryService
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @ColumnDefault("'IN_PROGRESS'")
+    @Column(name = "status", nullable = false, length = 20)
+    private PackageStatus status;
+
+    @Column(name = "expected_delivery_date")
+    private LocalDate expectedDeliveryDate;
+
+    @Column(name = "actual_delivery_date_time")
+    private LocalDateTime actualDeliveryDateTime;
+
 }
\ No newline at end of file
@@ -0,0 +1,42 @@
+package com.zlatko.packageselfservicebackend.model.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * Per sender aggregates of the packages, only updated with the atomic statements of the SenderPackageSummaryRepository.
+ */
+@Getter
+@Entity
+@Immutable
+@Table(name = "sender_package_summaries")
+@NoArgsConstructor // Default constructor required by JPA
+public class SenderPackageSummaryEntity {
+    @Id
+    @Column(name = "sender_id", nullable = false)
+    private UUID senderId;
+
+    @Column(name = "in_progress_count", nullable = false)
+    private long inProgressCount;
+
+    @Column(name = "sent_count", nullable = false)
+    private long sentCount;
+
+    @Column(name = "delivered_count", nullable = false)
+    private long deliveredCount;
+
+    @Column(name = "next_expected_delivery_date")
+    private LocalDate nextExpectedDeliveryDate;
+
+    @Column(name = "last_delivery_date_time")
+    private LocalDateTime lastDeliveryDateTime;
+
+}
@@ -0,0 +1,73 @@
+package com.zlatko.packageselfservicebackend.partitions;
+
+import com.zlatko.packageselfservicebackend.utils.GlobalConstants;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Maintains the monthly partitions of the packages table (see V2__Partition_packages_by_date_of_registration.sql): <br>
+ *  - creates the partitions of the next months, so new packages always have a partition to go to <br>
+ *  - moves the partitions older than the retention into the packages_archive table, so the sender queries,
+ *    vacuum and index maintenance only work on the recent partitions <br>
+ *  - moves the packages registered while their month had no partition out of the packages_default partition
+ *    (see V9__Add_default_packages_partition.sql), by creating their partitions too <br>
+ * Packages left in the default partition after the maintenance are logged as a warning and published as the
+ * {@code package.self.service.packages.partitions.default.rows} gauge. <br>
+ * Runs once the application is ready and then on the configured cron schedule.
+ */
+@Component
+@ConditionalOnProperty(value = "app.packages.partitions.maintenance-enabled", matchIfMissing = true)
+@Slf4j
+public class PackagePartitionJob {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int monthsAhead;
+    private final int archiveAfterMonths;
+    private final AtomicLong defaultPartitionPackages = new AtomicLong();
+
+    public PackagePartitionJob(JdbcTemplate jdbcTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.packages.partitions.months-ahead:3}") int monthsAhead,
+                               @Value("${app.packages.partitions.archive-after-months:12}") int archiveAfterMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.monthsAhead = monthsAhead;
+        this.archiveAfterMonths = archiveAfterMonths;
+        Gauge.builder(GlobalConstants.METRIC_PACKAGES_DEFAULT_PARTITION_ROWS, defaultPartitionPackages, AtomicLong::get)
+                .description("Packages left in the default partition after the last partition maintenance")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Creates the missing partitions and archives the expired ones in a single transaction. <br>
+     * Archiving detaches each expired partition, copies its packages to the archive table, removes them from the sender package summaries and drops it,
+     * packages registered less than {@code archive-after-months} full months ago are never archived. <br>
+     * The partitions are created from the month of the oldest package in the default partition, if older than the current month,
+     * the ones already expired are then archived right away.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.packages.partitions.maintenance-cron:0 30 2 * * *}")
+    @Transactional
+    public void maintainPartitions() {
+        Integer createdPartitions = jdbcTemplate.queryForObject("""
+                SELECT create_packages_partitions(LEAST(CURRENT_DATE, (SELECT min(date_of_registration)::DATE FROM packages_default)), ?)""",
+                Integer.class, monthsAhead);
+        Long archivedPackages = jdbcTemplate.queryForObject("SELECT archive_packages_partitions(?)", Long.class, archiveAfterMonths);
+        Long leftInDefaultPartition = jdbcTemplate.queryForObject("SELECT count(*) FROM packages_default", Long.class);
+        defaultPartitionPackages.set(leftInDefaultPartition == null ? 0 : leftInDefaultPartition);
+        log.info("Packages partition maintenance: created {} partitions, archived {} packages", createdPartitions, archivedPackages);
+        if (defaultPartitionPackages.get() > 0) {
+            log.warn("{} packages are registered beyond the partitioned months and stay in the packages_default partition, "
+                    + "check the system clock or increase app.packages.partitions.months-ahead", defaultPartitionPackages.get());
+        }
+    }
+}
@@ -1,8 +1,22 @@
 package com.zlatko.packageselfservicebackend.repositories;
 
+import com.zlatko.packageselfservicebackend.model.dtos.Receiver;
 import com.zlatko.packageselfservicebackend.model.entities.EmployeeEntity;
+import java.util.List;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface EmployeeRepository extends JpaRepository<EmployeeEntity, UUID> {
+
+    // Version of the employees data, bumped on every change (see V6 migration)
+    @Transactional(readOnly = true)
+    @Query(value = "SELECT version FROM employees_version", nativeQuery = true)
+    long findVersion();
+
+    // Only the columns rendered by the kiosk, for the ReceiverDirectory
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.zlatko.packageselfservicebackend.model.dtos.Receiver(CAST(e.id AS String), e.name, e.city) FROM EmployeeEntity e")
+    List<Receiver> findAllReceivers();
 }
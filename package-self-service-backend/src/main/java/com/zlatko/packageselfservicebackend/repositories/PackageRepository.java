@@ -1,15 +1,67 @@
 package com.zlatko.packageselfservicebackend.repositories;
 
-import com.zlatko.packageselfservicebackend.model.entities.EmployeeEntity;
 import com.zlatko.packageselfservicebackend.model.entities.PackageEntity;
 import jakarta.validation.constraints.NotNull;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.UUID;
 
+// Read-only transactions for the query methods, so they can be routed to a read replica (inherited methods are configured by SimpleJpaRepository)
+@Transactional(readOnly = true)
 public interface PackageRepository extends JpaRepository<PackageEntity, UUID> {
-    Optional<PackageEntity> findByIdAndSender(@NotNull UUID id, EmployeeEntity sender);
-    List<PackageEntity> findBySender(EmployeeEntity sender);
-}
\ No newline at end of file
+    // The package reads are planned as a single statement: filtered by the sender_id column (the sender isn't loaded)
+    // and joined with the receiver, instead of a select per distinct receiver of the eagerly fetched association
+    @EntityGraph(attributePaths = "receiver")
+    Optional<PackageEntity> findByIdAndSenderId(@NotNull UUID id, @NotNull UUID senderId);
+    // The registration date bounds restrict the lookup to the partitions (see V2 migration) covering them
+    @EntityGraph(attributePaths = "receiver")
+    Optional<PackageEntity> findByIdAndSenderIdAndDateOfRegistrationBetween(@NotNull UUID id, @NotNull UUID senderId, LocalDateTime from, LocalDateTime to);
+    @EntityGraph(attributePaths = "receiver")
+    List<PackageEntity> findBySenderId(@NotNull UUID senderId);
+
+    // Packages moved to the archive table by the PackagePartitionJob
+    @Query(value = "SELECT * FROM packages_archive WHERE id = :id AND sender_id = :senderId", nativeQuery = true)
+    Optional<PackageEntity> findArchivedByIdAndSenderId(@NotNull UUID id, @NotNull UUID senderId);
+    @Query(value = "SELECT * FROM packages_archive WHERE sender_id = :senderId", nativeQuery = true)
+    List<PackageEntity> findArchivedBySenderId(@NotNull UUID senderId);
+
+    // Case-insensitive search of the sender's package names, read from the trigram indexes (see V5 migration).
+    // The pattern is an ILIKE pattern, wildcards in the searched name have to be escaped with a backslash.
+    // Newest first and sliced, so no count of all the matches is needed.
+    @Query(value = """
+            SELECT * FROM (
+                SELECT * FROM packages WHERE sender_id = :senderId AND package_name ILIKE :namePattern
+                UNION ALL
+                SELECT * FROM packages_archive WHERE :includeArchived AND sender_id = :senderId AND package_name ILIKE :namePattern
+            ) matching_packages
+            ORDER BY date_of_registration DESC, id DESC""", nativeQuery = true)
+    Slice<PackageEntity> searchBySenderIdAndPackageName(@NotNull UUID senderId, @NotNull String namePattern, boolean includeArchived, Pageable pageable);
+
+    // Packages of the changed shipping orders, matched by the last segment of the downstream order URL (see V7 migration)
+    @Query(value = "SELECT * FROM packages WHERE substring(downstream_order_url FROM '[^/]+$') IN (:orderIds)", nativeQuery = true)
+    List<PackageEntity> findByShippingOrderIds(@NotNull Collection<String> orderIds);
+
+    // Compare-and-set of the observed downstream state, only one of concurrent observers of the same change updates the package
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE packages
+            SET status = :newStatus,
+                expected_delivery_date = CAST(:newExpectedDeliveryDate AS DATE),
+                actual_delivery_date_time = CAST(:actualDeliveryDateTime AS TIMESTAMP)
+            WHERE id = :id AND date_of_registration = :dateOfRegistration
+              AND status = :oldStatus AND expected_delivery_date IS NOT DISTINCT FROM CAST(:oldExpectedDeliveryDate AS DATE)""", nativeQuery = true)
+    int updateObservedState(@NotNull UUID id, @NotNull LocalDateTime dateOfRegistration, String oldStatus, LocalDate oldExpectedDeliveryDate,
+                            String newStatus, LocalDate newExpectedDeliveryDate, LocalDateTime actualDeliveryDateTime);
+}
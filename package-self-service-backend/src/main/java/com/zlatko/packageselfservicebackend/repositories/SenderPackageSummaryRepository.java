@@ -0,0 +1,47 @@
+package com.zlatko.packageselfservicebackend.repositories;
+
+import com.zlatko.packageselfservicebackend.model.entities.SenderPackageSummaryEntity;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+// The counters are only changed relatively, by single statements, so concurrent submits and status changes never lose an update
+public interface SenderPackageSummaryRepository extends JpaRepository<SenderPackageSummaryEntity, UUID> {
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO sender_package_summaries (sender_id, in_progress_count) VALUES (:senderId, 1)
+            ON CONFLICT (sender_id) DO UPDATE SET in_progress_count = sender_package_summaries.in_progress_count + 1""", nativeQuery = true)
+    void incrementInProgress(UUID senderId);
+
+    /**
+     * Moves a package of the sender from the old to the new status and expected delivery date. <br>
+     * The next expected delivery is only recomputed from the sender's undelivered packages when the package
+     * defining it got delivered or postponed. Must run after the package itself is updated. <br>
+     * Archived packages are not part of the recompute, they are removed from the summary when archived (see archive_packages_partitions).
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE sender_package_summaries
+            SET in_progress_count = in_progress_count - CASE WHEN :oldStatus = 'IN_PROGRESS' THEN 1 ELSE 0 END
+                                                      + CASE WHEN :newStatus = 'IN_PROGRESS' THEN 1 ELSE 0 END,
+                sent_count = sent_count - CASE WHEN :oldStatus = 'SENT' THEN 1 ELSE 0 END
+                                        + CASE WHEN :newStatus = 'SENT' THEN 1 ELSE 0 END,
+                delivered_count = delivered_count - CASE WHEN :oldStatus = 'DELIVERED' THEN 1 ELSE 0 END
+                                                  + CASE WHEN :newStatus = 'DELIVERED' THEN 1 ELSE 0 END,
+                next_expected_delivery_date = CASE
+                    WHEN :newStatus <> 'DELIVERED' AND CAST(:newExpectedDeliveryDate AS DATE) <= COALESCE(next_expected_delivery_date, DATE 'infinity')
+                        THEN CAST(:newExpectedDeliveryDate AS DATE)
+                    WHEN next_expected_delivery_date = CAST(:oldExpectedDeliveryDate AS DATE)
+                        THEN (SELECT min(expected_delivery_date) FROM packages WHERE sender_id = :senderId AND status <> 'DELIVERED')
+                    ELSE next_expected_delivery_date END,
+                last_delivery_date_time = CASE
+                    WHEN :newStatus = 'DELIVERED' THEN GREATEST(last_delivery_date_time, CAST(:actualDeliveryDateTime AS TIMESTAMP))
+                    ELSE last_delivery_date_time END
+            WHERE sender_id = :senderId""", nativeQuery = true)
+    void applyPackageChange(UUID senderId, String oldStatus, String newStatus, LocalDate oldExpectedDeliveryDate,
+                            LocalDate newExpectedDeliveryDate, LocalDateTime actualDeliveryDateTime);
+}
@@ -0,0 +1,86 @@
+package com.zlatko.packageselfservicebackend.services;
+
+import com.zlatko.packageselfservicebackend.clients.dtos.ShippingOrderDetails;
+import com.zlatko.packageselfservicebackend.model.dtos.PackageDetails;
+import com.zlatko.packageselfservicebackend.model.dtos.RecipientDetails;
+import com.zlatko.packageselfservicebackend.model.dtos.enums.PackageStatus;
+import com.zlatko.packageselfservicebackend.model.entities.EmployeeEntity;
+import com.zlatko.packageselfservicebackend.model.entities.PackageEntity;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Maps package entities and downstream order details to package details. <br>
+ * Extracted from the PackageSelfServiceService so the mapping can be benchmarked in isolation.
+ */
+public final class PackageDetailsMapper {
+
+    private PackageDetailsMapper() {
+    }
+
+    /**
+     * Maps the package entity and the order details from the downstream service to package details. <br>
+     *
+     * @param packageEntity package entity
+     * @param clientOrderDetails order details from the downstream service
+     * @return package details
+     */
+    public static PackageDetails toPackageDetails(PackageEntity packageEntity, ShippingOrderDetails clientOrderDetails) {
+        return new PackageDetails(
+                packageEntity.getId().toString(),
+                packageEntity.getPackageName(),
+                packageEntity.getDateOfRegistration(),
+                PackageStatus.valueOf(clientOrderDetails.orderStatus().toString()), // get/map the status from the downstream service
+                clientOrderDetails.expectedDeliveryDate(), // get the estimated delivery date from the downstream service
+                clientOrderDetails.actualDeliveryDateTime(), // get the actual delivery date from the downstream service
+                toRecipientDetails(packageEntity.getReceiver())
+        );
+    }
+
+    /**
+     * Maps the package entity alone to package details, for the sparse fieldsets without any downstream field
+     * (see PackageDetailsFields). Status and the delivery dates are left empty. <br>
+     *
+     * @param packageEntity package entity
+     * @return package details without the downstream fields
+     */
+    public static PackageDetails toPackageDetails(PackageEntity packageEntity) {
+        return new PackageDetails(
+                packageEntity.getId().toString(),
+                packageEntity.getPackageName(),
+                packageEntity.getDateOfRegistration(),
+                null,
+                null,
+                null,
+                toRecipientDetails(packageEntity.getReceiver())
+        );
+    }
+
+    private static RecipientDetails toRecipientDetails(EmployeeEntity receiver) {
+        return new RecipientDetails(
+                receiver.getId().toString(),
+                receiver.getName(),
+                constructRecipientAddress(receiver)
+        );
+    }
+
+    /**
+     * Constructs the recipient address from the input entity by concatenating: <br>
+     *  - street name <br>
+     *  - postal code <br>
+     *  - city <br>
+     *  - state <br>
+     *  - country <br>
+     *
+     * @param receiver recipient entity
+     * @return formatted recipient address
+     */
+    public static String constructRecipientAddress(@NotNull EmployeeEntity receiver) {
+        return "%s, %s, %s  %s - %s".formatted(
+                        receiver.getStreet(),
+                        receiver.getPostalCode(),
+                        receiver.getCity(),
+                        receiver.getState(),
+                        receiver.getCountry()
+        );
+    }
+}
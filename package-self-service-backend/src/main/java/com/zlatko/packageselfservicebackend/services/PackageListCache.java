@@ -0,0 +1,112 @@
+package com.zlatko.packageselfservicebackend.services;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zlatko.packageselfservicebackend.model.dtos.enums.PackageStatus;
+import com.zlatko.packageselfservicebackend.utils.GlobalConstants;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Bounded in-memory cache of the serialized (ready to send) package lists, keyed by sender and list parameters, so a
+ * kiosk polling the same list costs a map lookup and a byte copy instead of a query, the enrichment and the serialization. <br>
+ * A sender's lists are invalidated when a package submitted by the sender is committed or a tracked status change of one of
+ * the sender's packages is recorded (see PackageSummaryService), and expire after {@code expire-after-write} for the downstream
+ * changes not synced yet. Invalidating scans the cached keys, at most {@code maximum-size}. <br>
+ * A miss is loaded by the calling thread: the pending load is published first, so concurrent misses of the same list
+ * wait for it instead of loading again, and an invalidation during the load drops its (possibly stale) result. Loading
+ * inside the cache itself would hold a lock during the queries, pinning the virtual thread to its carrier. <br>
+ * Hits, misses, evictions and the size are published as {@code cache.*} metrics tagged with {@code cache=package.self.service.lists}.
+ */
+@Component
+public class PackageListCache {
+
+    private final AsyncCache<ListKey, byte[]> cache;
+
+    public PackageListCache(MeterRegistry meterRegistry,
+                            @Value("${app.packages.list-cache.maximum-size:10000}") long maximumSize,
+                            @Value("${app.packages.list-cache.expire-after-write:PT10S}") Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, GlobalConstants.CACHE_PACKAGE_LISTS);
+    }
+
+    /**
+     * Returns the cached package list, loading it on a miss. A failed load (e.g. unknown sender) is not cached,
+     * its exception is thrown to the loading caller and to the callers waiting for the load.
+     *
+     * @param key the sender and list parameters
+     * @param loader lists and serializes the package details
+     * @return the serialized package list
+     */
+    public byte[] get(ListKey key, Supplier<byte[]> loader) {
+        CompletableFuture<byte[]> packageList = cache.getIfPresent(key); // records the hit or miss
+        if (packageList == null) {
+            CompletableFuture<byte[]> loading = new CompletableFuture<>();
+            packageList = cache.asMap().putIfAbsent(key, loading);
+            if (packageList == null) {
+                try {
+                    // Completing exceptionally removes the entry
+                    loading.complete(loader.get());
+                } catch (RuntimeException e) {
+                    loading.completeExceptionally(e);
+                    throw e;
+                }
+                packageList = loading;
+            }
+        }
+        try {
+            return packageList.join();
+        } catch (CompletionException e) {
+            // A caller waiting for another one's load gets the load's own failure (e.g. unknown sender)
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * Invalidates the cached lists of the sender, after the current transaction commits if there is one.
+     *
+     * @param senderId sender ID
+     */
+    public void invalidateSender(UUID senderId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(senderId);
+                }
+            });
+        } else {
+            invalidate(senderId);
+        }
+    }
+
+    private void invalidate(UUID senderId) {
+        cache.asMap().keySet().removeIf(key -> key.senderId().equals(senderId));
+    }
+
+    /**
+     * @param senderId sender ID
+     * @param status the listed status, null for all
+     * @param includeArchived whether the archived packages are listed
+     * @param fields the requested fields, empty for all
+     */
+    public record ListKey(UUID senderId, PackageStatus status, boolean includeArchived, Set<String> fields) {
+        public ListKey {
+            fields = Set.copyOf(fields);
+        }
+    }
+}
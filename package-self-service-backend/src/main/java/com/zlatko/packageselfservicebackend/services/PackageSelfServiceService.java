@@ -4,9 +4,15 @@ import com.zlatko.packageselfservicebackend.clients.PackageShippingServiceClient
 import com.zlatko.packageselfservicebackend.clients.dtos.ShippingOrder;
 import com.zlatko.packageselfservicebackend.clients.dtos.ShippingOrderDetails;
 import com.zlatko.packageselfservicebackend.clients.dtos.enums.PackageSize;
+import com.zlatko.packageselfservicebackend.datasource.ReadYourWritesTracker;
+import com.zlatko.packageselfservicebackend.diagnostics.DomainEvents;
+import com.zlatko.packageselfservicebackend.idempotency.IdempotencyKeyStore;
 import com.zlatko.packageselfservicebackend.model.dtos.Package;
 import com.zlatko.packageselfservicebackend.model.dtos.PackageDetails;
-import com.zlatko.packageselfservicebackend.model.dtos.RecipientDetails;
+import com.zlatko.packageselfservicebackend.model.dtos.PackageDetailsFields;
+import com.zlatko.packageselfservicebackend.model.dtos.PackageSearchResult;
+import com.zlatko.packageselfservicebackend.model.dtos.PackageSummary;
+import com.zlatko.packageselfservicebackend.model.dtos.enums.PackageNameMatch;
 import com.zlatko.packageselfservicebackend.model.dtos.enums.PackageStatus;
 import com.zlatko.packageselfservicebackend.model.entities.EmployeeEntity;
 import com.zlatko.packageselfservicebackend.model.entities.PackageEntity;
@@ -16,19 +22,29 @@ import com.zlatko.packageselfservicebackend.model.exceptions.SenderNotFoundExcep
 import com.zlatko.packageselfservicebackend.repositories.EmployeeRepository;
 import com.zlatko.packageselfservicebackend.repositories.PackageRepository;
 import com.zlatko.packageselfservicebackend.utils.GlobalConstants;
+import com.zlatko.packageselfservicebackend.utils.ServerTiming;
+import com.zlatko.packageselfservicebackend.utils.UuidV7;
 import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
-import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
 import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -38,19 +54,49 @@ import org.springframework.transaction.annotation.Transactional;
 @RateLimiter(name = GlobalConstants.PACKAGE_SELF_SERVICE_SERVICE)
 public class PackageSelfServiceService {
 
+    private static final Duration REGISTRATION_DATE_TOLERANCE = Duration.ofDays(1);
+
     private final PackageShippingServiceClient packageShippingServiceClient;
     private final EmployeeRepository employeeRepository;
     private final PackageRepository packageRepository;
+    private final MeterRegistry meterRegistry;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final PackageSummaryService packageSummaryService;
+    private final IdempotencyKeyStore idempotencyKeyStore;
+    private final PackageWatcher packageWatcher;
 
     /**
      * Submits a package by creating a shipping order in the downstream service and persisting the package in the database. <br>
      * It also validates that the sender and recipient exist. <br>
+     * A submission repeated with the same Idempotency-Key returns the package of the original one, without any lookup or
+     * downstream call. The key is forwarded downstream (scoped by the sender), so a retried call gets the shipping order created
+     * by an attempt that timed out, and claimed in the submit transaction, so of concurrent repeats only one persists the package. <br>
      *
      * @param packageDTO package DTO
+     * @param idempotencyKey Idempotency-Key of the submission, or null
      * @return UUID of the submitted package
      */
     @Transactional
-    public UUID submitPackage(@Valid Package packageDTO) {
+    @Timed(GlobalConstants.METRIC_SUBMIT_PACKAGE)
+    public UUID submitPackage(@Valid Package packageDTO, String idempotencyKey) {
+        DomainEvents.SubmitPackage event = new DomainEvents.SubmitPackage(packageDTO.senderId(), packageDTO.recipientId(), packageDTO.packageName(), idempotencyKey);
+        return DomainEvents.record(event, () -> {
+            UUID packageId = submit(packageDTO, idempotencyKey, event);
+            event.setPackageId(packageId.toString());
+            return packageId;
+        });
+    }
+
+    private UUID submit(Package packageDTO, String idempotencyKey, DomainEvents.SubmitPackage event) {
+        UUID senderId = UUID.fromString(packageDTO.senderId());
+        if (idempotencyKey != null) {
+            Optional<UUID> submittedPackageId = idempotencyKeyStore.findPackageId(senderId, idempotencyKey);
+            if (submittedPackageId.isPresent()) {
+                log.debug("Package '{}' was already submitted with Idempotency-Key '{}'", submittedPackageId.get(), idempotencyKey);
+                event.setReplayed(true);
+                return submittedPackageId.get();
+            }
+        }
         EmployeeEntity sender = getSender(packageDTO.senderId());
         EmployeeEntity recipient = getRecipient(packageDTO.recipientId());
         ShippingOrder shippingOrder = new ShippingOrder(
@@ -61,33 +107,48 @@ public class PackageSelfServiceService {
                 mapPackageSize(packageDTO.weightInGrams()).toString()
         );
 
-        URI locationURI = packageShippingServiceClient.createShippingOrder(shippingOrder);
+        URI locationURI = packageShippingServiceClient.createShippingOrder(shippingOrder,
+                idempotencyKey == null ? null : "%s:%s".formatted(senderId, idempotencyKey));
 
-        return persistPackage(packageDTO, sender, recipient, locationURI);
+        UUID packageId = UuidV7.generate();
+        if (idempotencyKey != null) {
+            Optional<UUID> concurrentlySubmittedPackageId = idempotencyKeyStore.claim(senderId, idempotencyKey, packageId);
+            if (concurrentlySubmittedPackageId.isPresent()) {
+                event.setReplayed(true);
+                return concurrentlySubmittedPackageId.get();
+            }
+        }
+        packageId = persistPackage(packageId, packageDTO, sender, recipient, locationURI);
+        packageSummaryService.recordSubmitted(sender.getId());
+        // Once committed, the sender's next reads go to the primary, until the replicas caught up with the new package
+        readYourWritesTracker.recordWrite(packageDTO.senderId());
+        return packageId;
     }
 
     /**
      * Persists the package in the database. <br>
      *
+     * @param packageId package ID
      * @param packageDTO package DTO
      * @param sender sender entity
      * @param recipient recipient entity
      * @param locationURI location URI
      * @return UUID of the persisted package
      */
-    private UUID persistPackage(@Valid Package packageDTO, EmployeeEntity sender, EmployeeEntity recipient, URI locationURI) {
+    private UUID persistPackage(UUID packageId, @Valid Package packageDTO, EmployeeEntity sender, EmployeeEntity recipient, URI locationURI) {
 
         PackageEntity packageEntity = PackageEntity.builder()
-                .id(UUID.randomUUID())
+                .id(packageId)
                 .packageName(packageDTO.packageName())
                 .weightInGrams(packageDTO.weightInGrams())
                 .sender(sender)
                 .receiver(recipient)
                 .downstreamOrderUrl(locationURI.toString())
                 .dateOfRegistration(LocalDateTime.now())
+                .status(PackageStatus.IN_PROGRESS)
                 .build();
         log.trace("Persisting package: {}", packageEntity);
-        return packageRepository.save(packageEntity).getId();
+        return ServerTiming.record(GlobalConstants.STAGE_PACKAGE_PERSIST, () -> packageRepository.save(packageEntity)).getId();
     }
 
     /**
@@ -113,7 +174,7 @@ public class PackageSelfServiceService {
      * @return recipient entity
      */
     private EmployeeEntity getRecipient(String recipientId) {
-        var employeeEntity = employeeRepository.findById(UUID.fromString(recipientId))
+        var employeeEntity = ServerTiming.record(GlobalConstants.STAGE_RECIPIENT_LOOKUP, () -> employeeRepository.findById(UUID.fromString(recipientId)))
                         .orElseThrow(() -> new RecipientNotFoundException(recipientId));
         log.trace("Recipient found: {}", employeeEntity);
         return employeeEntity;
@@ -123,34 +184,185 @@ public class PackageSelfServiceService {
      * Retrieves the package details by fetching the order details from the downstream service and mapping them to package details. <br>
      * In case the package is not found, a PackageNotFoundException is thrown which is handled by the global exception handler. <br>
      *
+     * Archived packages (see PackagePartitionJob) are only found when includeArchived is set. <br>
+     * The downstream service is only called if a field it provides is requested (see PackageDetailsFields). <br>
+     * The package is read with its receiver in a single statement, the sender is only looked up when no package is found. <br>
+     *
      * @param packageId packageId
      * @param senderId senderId
+     * @param includeArchived whether to also look the package up in the archive
+     * @param fields the requested fields, empty for all
      * @return package details
      */
-    public PackageDetails getPackageDetails(String packageId, String senderId) {
-        PackageEntity packageEntity = packageRepository.findByIdAndSender(UUID.fromString(packageId), getSender(senderId))
-                .orElseThrow(() -> new PackageNotFoundException(packageId, senderId));
-        return enrichPackageDetails(packageEntity);
+    @Timed(GlobalConstants.METRIC_GET_PACKAGE_DETAILS)
+    public PackageDetails getPackageDetails(String packageId, String senderId, boolean includeArchived, Set<String> fields) {
+        PackageEntity packageEntity = getPackage(packageId, senderId, includeArchived);
+        return PackageDetailsFields.requireDownstream(fields) ? enrichPackageDetails(packageEntity) : PackageDetailsMapper.toPackageDetails(packageEntity);
+    }
+
+    /**
+     * Waits until the package details differ from the version last seen by the client (see PackageWatcher), instead of the
+     * client polling the package details. <br>
+     * The requests watching the same package share one downstream check per poll interval, which also records the changes
+     * for the sender's package summary. <br>
+     *
+     * @param packageId packageId
+     * @param senderId senderId
+     * @param lastSeenVersion the version of the package details last seen by the client, or null to return them right away
+     * @param timeout how long to wait for a change
+     * @return the changed package details, or an empty Optional if they didn't change within the timeout
+     */
+    @Timed(GlobalConstants.METRIC_WATCH_PACKAGE_DETAILS)
+    public Optional<PackageDetails> watchPackageDetails(String packageId, String senderId, String lastSeenVersion, Duration timeout) {
+        PackageEntity packageEntity = getPackage(packageId, senderId, false);
+        return packageWatcher.await(packageEntity, lastSeenVersion, timeout, this::enrichPackageDetails);
+    }
+
+    /**
+     * Reads the sender's package, the sender is only looked up when the package isn't found. <br>
+     *
+     * @param packageId packageId
+     * @param senderId senderId
+     * @param includeArchived whether to also look the package up in the archive
+     * @return package entity
+     */
+    private PackageEntity getPackage(String packageId, String senderId, boolean includeArchived) {
+        try (var ignored = readYourWritesTracker.routeReads(senderId)) {
+            Optional<PackageEntity> foundPackage = ServerTiming.record(GlobalConstants.STAGE_PACKAGE_QUERY,
+                    () -> findPackage(UUID.fromString(packageId), UUID.fromString(senderId), includeArchived));
+            if (foundPackage.isEmpty()) {
+                requireSender(senderId);
+                throw new PackageNotFoundException(packageId, senderId);
+            }
+            return foundPackage.get();
+        }
+    }
+
+    /**
+     * Finds the sender's package, falling back to the archive if requested. <br>
+     * The registration date of a package is set right after its version 7 id is generated, so the lookup of such ids
+     * is restricted to the partitions around the id's timestamp. The tolerance covers the time zone of the database
+     * timestamps. Other (legacy) ids are looked up in all partitions. <br>
+     *
+     * @param packageId package ID
+     * @param senderId sender ID
+     * @param includeArchived whether to also look the package up in the archive
+     * @return the package, if found
+     */
+    private Optional<PackageEntity> findPackage(UUID packageId, UUID senderId, boolean includeArchived) {
+        Optional<PackageEntity> packageEntity;
+        if (packageId.version() == 7) {
+            LocalDateTime generatedAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(UuidV7.timestampMillis(packageId)), ZoneId.systemDefault());
+            packageEntity = packageRepository.findByIdAndSenderIdAndDateOfRegistrationBetween(packageId, senderId,
+                    generatedAt.minus(REGISTRATION_DATE_TOLERANCE), generatedAt.plus(REGISTRATION_DATE_TOLERANCE));
+        } else {
+            packageEntity = packageRepository.findByIdAndSenderId(packageId, senderId);
+        }
+        if (packageEntity.isEmpty() && includeArchived) {
+            return packageRepository.findArchivedByIdAndSenderId(packageId, senderId);
+        }
+        return packageEntity;
     }
 
     /**
      * Lists the package details by fetching the order details from the downstream service and mapping them to package details. <br>
      * The status parameter is optional and can be used to filter the package details by status. <br>
+     * Archived packages (see PackagePartitionJob) are only listed when includeArchived is set. <br>
+     * The downstream service is only called if a field it provides is requested or the status is filtered on (see PackageDetailsFields). <br>
+     * The packages are read with their receivers in a single statement, the sender is only looked up when there are none. <br>
      *
      * @param senderId senderId
      * @param status status
+     * @param includeArchived whether to also list the archived packages
+     * @param fields the requested fields, empty for all
      * @return list of package details
      */
-    public List<PackageDetails> listPackageDetails(@Pattern(regexp = GlobalConstants.UUID_REGEX_PATTERN, message = "Invalid senderId format.") @NotBlank(message = "Sender ID is required.") String senderId, Optional<PackageStatus> status) {
-        EmployeeEntity sender = getSender(senderId);
-        List<PackageEntity> packageEntities = packageRepository.findBySender(sender);
+    @Timed(GlobalConstants.METRIC_LIST_PACKAGE_DETAILS)
+    public List<PackageDetails> listPackageDetails(@Pattern(regexp = GlobalConstants.UUID_REGEX_PATTERN, message = "Invalid senderId format.") @NotBlank(message = "Sender ID is required.") String senderId, Optional<PackageStatus> status, boolean includeArchived, Set<String> fields) {
+        List<PackageEntity> packageEntities;
+        try (var ignored = readYourWritesTracker.routeReads(senderId)) {
+            UUID senderUuid = UUID.fromString(senderId);
+            packageEntities = ServerTiming.record(GlobalConstants.STAGE_PACKAGE_QUERY, () -> includeArchived
+                    ? Stream.concat(packageRepository.findBySenderId(senderUuid).stream(), packageRepository.findArchivedBySenderId(senderUuid).stream()).toList()
+                    : packageRepository.findBySenderId(senderUuid));
+            if (packageEntities.isEmpty()) {
+                requireSender(senderId);
+            }
+        }
+        if (status.isEmpty() && !PackageDetailsFields.requireDownstream(fields)) {
+            return packageEntities.stream().map(PackageDetailsMapper::toPackageDetails).toList();
+        }
         return packageEntities.stream()
                 .parallel() // I would replace this easy ForkJoinPool implementation with a virtual thread pool for a production scenario
-                .map(this::enrichPackageDetails)
+                .map(ServerTiming.propagate(this::enrichPackageDetails)) // keep recording stage timings and logging with the request's MDC
                 .filter(packageDetails -> status.isEmpty() || packageDetails.status().equals(status.get()))
                 .toList();
     }
 
+    /**
+     * Searches the sender's packages by name and enriches only the packages of the requested page, if needed for the requested fields. <br>
+     * The name is matched case-insensitively, either as a prefix or anywhere in the package name. The search is
+     * answered from the sender's trigram index entries (see V5 migration), so its latency does not grow with
+     * the other senders' package history. <br>
+     * Archived packages (see PackagePartitionJob) are only searched when includeArchived is set. <br>
+     *
+     * @param senderId senderId
+     * @param name the searched (part of the) package name
+     * @param match whether the name is a prefix or a substring of the package name
+     * @param includeArchived whether to also search the archived packages
+     * @param page zero-based page number
+     * @param size page size
+     * @param fields the requested package details fields, empty for all
+     * @return the page of matching package details, newest first
+     */
+    @Timed(GlobalConstants.METRIC_SEARCH_PACKAGE_DETAILS)
+    public PackageSearchResult searchPackageDetails(String senderId, String name, PackageNameMatch match, boolean includeArchived, int page, int size,
+                                                    Set<String> fields) {
+        Slice<PackageEntity> packageEntities;
+        try (var ignored = readYourWritesTracker.routeReads(senderId)) {
+            packageEntities = ServerTiming.record(GlobalConstants.STAGE_PACKAGE_QUERY, () -> packageRepository.searchBySenderIdAndPackageName(
+                    UUID.fromString(senderId), toNamePattern(name, match), includeArchived, PageRequest.of(page, size)));
+            if (packageEntities.isEmpty()) {
+                requireSender(senderId);
+            }
+        }
+        List<PackageDetails> packageDetails = PackageDetailsFields.requireDownstream(fields)
+                ? packageEntities.getContent().stream().parallel().map(ServerTiming.propagate(this::enrichPackageDetails)).toList()
+                : packageEntities.getContent().stream().map(PackageDetailsMapper::toPackageDetails).toList();
+        return new PackageSearchResult(packageDetails, page, size, packageEntities.hasNext());
+    }
+
+    /**
+     * Maps the searched name to an ILIKE pattern, escaping the wildcards the name may contain. <br>
+     *
+     * @param name the searched (part of the) package name
+     * @param match whether the name is a prefix or a substring of the package name
+     * @return ILIKE pattern
+     */
+    static String toNamePattern(String name, PackageNameMatch match) {
+        String escapedName = name.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return switch (match) {
+            case PREFIX -> escapedName + "%";
+            case CONTAINS -> "%" + escapedName + "%";
+        };
+    }
+
+    /**
+     * Returns the sender's package counts per status, next expected delivery and most recent delivery. <br>
+     * The summary is read from the sender's incrementally maintained aggregates (see PackageSummaryService),
+     * without enriching the packages over HTTP. <br>
+     *
+     * @param senderId senderId
+     * @return package summary
+     */
+    @Timed(GlobalConstants.METRIC_PACKAGE_SUMMARY)
+    public PackageSummary getPackageSummary(String senderId) {
+        try (var ignored = readYourWritesTracker.routeReads(senderId)) {
+            EmployeeEntity sender = getSender(senderId);
+            return ServerTiming.record(GlobalConstants.STAGE_SUMMARY_QUERY, () -> packageSummaryService.getSummary(sender.getId()));
+        }
+    }
+
     /**
      * Validates that the sender ID exists and returns the sender entity. <br>
      * In case the sender is not found, a SenderNotFoundException is thrown which is handled by the global exception handler. <br>
@@ -159,58 +371,56 @@ public class PackageSelfServiceService {
      * @return sender entity
      */
     private EmployeeEntity getSender(String senderId) {
-        var employeeEntity = employeeRepository.findById(UUID.fromString(senderId))
+        var employeeEntity = ServerTiming.record(GlobalConstants.STAGE_SENDER_LOOKUP, () -> employeeRepository.findById(UUID.fromString(senderId)))
                 .orElseThrow(() -> new SenderNotFoundException(senderId));
 
         log.trace("Sender found: {}", employeeEntity);
         return employeeEntity;
     }
 
+    /**
+     * Validates that the sender ID exists, for the reads which only need the sender when they found nothing. <br>
+     * In case the sender is not found, a SenderNotFoundException is thrown which is handled by the global exception handler. <br>
+     *
+     * @param senderId sender ID
+     */
+    private void requireSender(String senderId) {
+        if (!ServerTiming.record(GlobalConstants.STAGE_SENDER_LOOKUP, () -> employeeRepository.existsById(UUID.fromString(senderId)))) {
+            throw new SenderNotFoundException(senderId);
+        }
+    }
+
     /**
      * Enriches the package details by: <br>
      *  - fetching the order details from the downstream service and mapping them to package details <br>
      *  - mapping the package entity to package details <br>
+     * The enrichment is timed (metrics and Server-Timing), since it is called per package and dominates the list endpoint latency. <br>
      *
      * @param packageEntity package entity
      * @return package details
      */
     private PackageDetails enrichPackageDetails(PackageEntity packageEntity) {
-        // Extract the order ID from the URL
-        String orderId = StringUtils.substringAfterLast(packageEntity.getDownstreamOrderUrl(), "/");
-        ShippingOrderDetails clientOrderDetails = packageShippingServiceClient.getOrderDetails(orderId);
-        return new PackageDetails(
-                packageEntity.getId().toString(),
-                packageEntity.getPackageName(),
-                packageEntity.getDateOfRegistration(),
-                PackageStatus.valueOf(clientOrderDetails.orderStatus().toString()), // get/map the status from the downstream service
-                clientOrderDetails.expectedDeliveryDate(), // get the estimated delivery date from the downstream service
-                clientOrderDetails.actualDeliveryDateTime(), // get the actual delivery date from the downstream service
-                new RecipientDetails(
-                        packageEntity.getReceiver().getId().toString(),
-                        packageEntity.getReceiver().getName(),
-                        constructRecipientAddress(packageEntity.getReceiver())
-                )
-        );
+        return meterRegistry.timer(GlobalConstants.METRIC_ENRICH_PACKAGE_DETAILS)
+                .record(() -> ServerTiming.record(GlobalConstants.STAGE_ENRICH, () -> mapPackageDetails(packageEntity)));
     }
 
     /**
-     * Constructs the recipient address from the input entity by concatenating: <br>
-     *  - street name <br>
-     *  - postal code <br>
-     *  - city <br>
-     *  - state <br>
-     *  - country <br>
+     * Fetches the order details from the downstream service and maps them, together with the package entity, to package details. <br>
+     * Read only: the observed status changes reach the package and the sender's summary through the ShippingOrderChangeSync,
+     * so the reads stay on the replicas and never open a write transaction. <br>
      *
-     * @param receiver recipient entity
-     * @return formatted recipient address
+     * @param packageEntity package entity
+     * @return package details
      */
-    private String constructRecipientAddress(@NotNull EmployeeEntity receiver) {
-        return "%s, %s, %s  %s - %s".formatted(
-                        receiver.getStreet(),
-                        receiver.getPostalCode(),
-                        receiver.getCity(),
-                        receiver.getState(),
-                        receiver.getCountry()
-        );
+    private PackageDetails mapPackageDetails(PackageEntity packageEntity) {
+        // Extract the order ID from the URL
+        String orderId = StringUtils.substringAfterLast(packageEntity.getDownstreamOrderUrl(), "/");
+        DomainEvents.EnrichPackageDetails event = new DomainEvents.EnrichPackageDetails(
+                packageEntity.getId().toString(), packageEntity.getSender().getId().toString(), orderId);
+        return DomainEvents.record(event, () -> {
+            ShippingOrderDetails clientOrderDetails = packageShippingServiceClient.getOrderDetails(orderId);
+            event.setOrderStatus(String.valueOf(clientOrderDetails.orderStatus()));
+            return PackageDetailsMapper.toPackageDetails(packageEntity, clientOrderDetails);
+        });
     }
 }
@@ -0,0 +1,91 @@
+package com.zlatko.packageselfservicebackend.services;
+
+import com.zlatko.packageselfservicebackend.clients.dtos.ShippingOrderDetails;
+import com.zlatko.packageselfservicebackend.model.dtos.PackageSummary;
+import com.zlatko.packageselfservicebackend.model.dtos.enums.PackageStatus;
+import com.zlatko.packageselfservicebackend.model.entities.PackageEntity;
+import com.zlatko.packageselfservicebackend.model.entities.SenderPackageSummaryEntity;
+import com.zlatko.packageselfservicebackend.repositories.PackageRepository;
+import com.zlatko.packageselfservicebackend.repositories.SenderPackageSummaryRepository;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Maintains the per sender package summaries incrementally: <br>
+ *  - a submitted package is counted as in progress, in the submit transaction <br>
+ *  - a status or expected delivery change pulled from the downstream change feed (see ShippingOrderChangeSync)
+ *    is stored on the package and moves the package between the sender's counters, in the transaction of the synced page <br>
+ * Reading a summary is a primary key lookup, no matter how many packages the sender has. <br>
+ * Both changes also invalidate the sender's cached package lists (see PackageListCache), once committed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PackageSummaryService {
+
+    private final SenderPackageSummaryRepository senderPackageSummaryRepository;
+    private final PackageRepository packageRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final PackageListCache packageListCache;
+
+    /**
+     * Counts a newly submitted package of the sender as in progress. <br>
+     *
+     * @param senderId sender ID
+     */
+    public void recordSubmitted(UUID senderId) {
+        senderPackageSummaryRepository.incrementInProgress(senderId);
+        packageListCache.invalidateSender(senderId);
+    }
+
+    /**
+     * Records the downstream state of the package if it changed since it was last observed. <br>
+     * The package is updated with a compare-and-set, so a change observed concurrently by several requests is only counted once. <br>
+     *
+     * @param packageEntity package entity, holding the last observed state
+     * @param orderDetails order details from the downstream service
+     */
+    public void recordObserved(PackageEntity packageEntity, ShippingOrderDetails orderDetails) {
+        PackageStatus newStatus = PackageStatus.valueOf(orderDetails.orderStatus().toString());
+        if (newStatus == packageEntity.getStatus() && Objects.equals(orderDetails.expectedDeliveryDate(), packageEntity.getExpectedDeliveryDate())) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            int updated = packageRepository.updateObservedState(packageEntity.getId(), packageEntity.getDateOfRegistration(),
+                    packageEntity.getStatus().name(), packageEntity.getExpectedDeliveryDate(),
+                    newStatus.name(), orderDetails.expectedDeliveryDate(), orderDetails.actualDeliveryDateTime());
+            if (updated == 1) {
+                senderPackageSummaryRepository.applyPackageChange(packageEntity.getSender().getId(),
+                        packageEntity.getStatus().name(), newStatus.name(), packageEntity.getExpectedDeliveryDate(),
+                        orderDetails.expectedDeliveryDate(), orderDetails.actualDeliveryDateTime());
+                packageListCache.invalidateSender(packageEntity.getSender().getId());
+            }
+        });
+        log.trace("Package '{}' changed from {} to {}", packageEntity.getId(), packageEntity.getStatus(), newStatus);
+    }
+
+    /**
+     * Returns the package summary of the sender, all counts are zero for a sender without packages. <br>
+     *
+     * @param senderId sender ID
+     * @return package summary
+     */
+    public PackageSummary getSummary(UUID senderId) {
+        Map<PackageStatus, Long> packageCounts = new EnumMap<>(PackageStatus.class);
+        var summary = senderPackageSummaryRepository.findById(senderId);
+        packageCounts.put(PackageStatus.IN_PROGRESS, summary.map(SenderPackageSummaryEntity::getInProgressCount).orElse(0L));
+        packageCounts.put(PackageStatus.SENT, summary.map(SenderPackageSummaryEntity::getSentCount).orElse(0L));
+        packageCounts.put(PackageStatus.DELIVERED, summary.map(SenderPackageSummaryEntity::getDeliveredCount).orElse(0L));
+        return new PackageSummary(
+                packageCounts,
+                summary.map(SenderPackageSummaryEntity::getNextExpectedDeliveryDate).orElse(null),
+                summary.map(SenderPackageSummaryEntity::getLastDeliveryDateTime).orElse(null)
+        );
+    }
+}
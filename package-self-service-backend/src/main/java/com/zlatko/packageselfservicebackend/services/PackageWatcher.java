@@ -0,0 +1,167 @@
+package com.zlatko.packageselfservicebackend.services;
+
+import com.zlatko.packageselfservicebackend.model.dtos.PackageDetails;
+import com.zlatko.packageselfservicebackend.model.entities.PackageEntity;
+import com.zlatko.packageselfservicebackend.utils.GlobalConstants;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Long-poll support of the package watch endpoint: a request waits until the watched package's version differs from the
+ * version last seen by the client, or its timeout expires. <br>
+ * The requests watching the same package share one virtual thread, checking the package downstream every {@code poll-interval}
+ * for as long as at least one request waits, so the downstream load doesn't grow with the number of watchers. <br>
+ * The waiting requests don't hold any lock, they park on the future of the next change (on their own virtual thread). <br>
+ * The number of watched packages is published as the {@code package.self.service.watches} gauge.
+ */
+@Component
+@Slf4j
+public class PackageWatcher {
+
+    private final Duration pollInterval;
+    private final Map<UUID, Watch> watches = new ConcurrentHashMap<>();
+
+    public PackageWatcher(MeterRegistry meterRegistry,
+                          @Value("${app.packages.watch.poll-interval:PT2S}") Duration pollInterval) {
+        this.pollInterval = pollInterval;
+        Gauge.builder(GlobalConstants.METRIC_PACKAGE_WATCHES, watches, Map::size)
+                .description("Number of watched packages, each checked downstream by one virtual thread")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Waits until the version of the package differs from the last seen one. <br>
+     * A check failing before the first state of the package is known is thrown to the waiting requests, later failures
+     * are logged and the requests keep waiting for the next check.
+     *
+     * @param packageEntity the watched package
+     * @param lastSeenVersion the version last seen by the client, or null to return the current state right away
+     * @param timeout how long to wait for a change
+     * @param check checks the package downstream, shared by all the requests watching the package
+     * @return the changed package details, or an empty Optional if the package didn't change within the timeout
+     */
+    public Optional<PackageDetails> await(PackageEntity packageEntity, String lastSeenVersion, Duration timeout,
+                                          Function<PackageEntity, PackageDetails> check) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        Watch watch = watches.compute(packageEntity.getId(), (packageId, existing) -> {
+            Watch registered = existing == null ? start(packageEntity, check) : existing;
+            registered.waiters++;
+            return registered;
+        });
+        try {
+            while (true) {
+                State state = watch.state;
+                if (state.packageDetails() != null && !version(state.packageDetails()).equals(lastSeenVersion)) {
+                    return Optional.of(state.packageDetails());
+                }
+                long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    return Optional.empty();
+                }
+                try {
+                    state.change().get(remainingNanos, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    return Optional.empty();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof RuntimeException runtimeException ? runtimeException : new IllegalStateException(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return Optional.empty();
+                }
+            }
+        } finally {
+            watches.computeIfPresent(packageEntity.getId(), (packageId, registered) -> {
+                registered.waiters--;
+                return registered;
+            });
+        }
+    }
+
+    /**
+     * The version of the package details watched by the clients, changing with the status or the delivery dates. <br>
+     * A SHA-256 digest of these values, so two different states practically never share a version (which would hide the change).
+     *
+     * @param packageDetails package details
+     * @return the version, 64 lowercase hex digits
+     */
+    public static String version(PackageDetails packageDetails) {
+        // By status name and ISO dates, neither containing the separator, so the same on every instance
+        String watchedState = String.join("|", Objects.toString(packageDetails.status(), ""),
+                Objects.toString(packageDetails.expectedDeliveryDate(), ""), Objects.toString(packageDetails.actualDeliveryDateTime(), ""));
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(watchedState.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e); // required on every Java platform
+        }
+    }
+
+    private Watch start(PackageEntity packageEntity, Function<PackageEntity, PackageDetails> check) {
+        Watch watch = new Watch();
+        Thread.ofVirtual().name("package-watch-" + packageEntity.getId())
+                .start(() -> poll(packageEntity, check, watch));
+        return watch;
+    }
+
+    private void poll(PackageEntity packageEntity, Function<PackageEntity, PackageDetails> check, Watch watch) {
+        UUID packageId = packageEntity.getId();
+        while (true) {
+            State previous = watch.state;
+            try {
+                PackageDetails packageDetails = check.apply(packageEntity);
+                if (previous.packageDetails() == null || !version(packageDetails).equals(version(previous.packageDetails()))) {
+                    watch.state = new State(packageDetails, new CompletableFuture<>());
+                    previous.change().complete(packageDetails);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not check the watched package '{}'", packageId, e);
+                if (previous.packageDetails() == null) {
+                    watch.state = new State(null, new CompletableFuture<>());
+                    previous.change().completeExceptionally(e);
+                }
+            }
+            // Removed atomically with the registration of a new waiter, which then starts a new watch
+            if (watches.computeIfPresent(packageId, (id, registered) -> registered.waiters == 0 ? null : registered) == null) {
+                return;
+            }
+            try {
+                Thread.sleep(pollInterval);
+            } catch (InterruptedException e) {
+                watches.remove(packageId);
+                return;
+            }
+        }
+    }
+
+    /**
+     * The requests watching a package. The waiters are only counted within the compute methods of the watches map.
+     */
+    private static final class Watch {
+        private volatile State state = new State(null, new CompletableFuture<>());
+        private int waiters;
+    }
+
+    /**
+     * @param packageDetails the last checked package details, null before the first check
+     * @param change completed with the package details of the next change
+     */
+    private record State(PackageDetails packageDetails, CompletableFuture<PackageDetails> change) {
+    }
+}
@@ -0,0 +1,139 @@
+package com.zlatko.packageselfservicebackend.sync;
+
+import com.zlatko.packageselfservicebackend.clients.PackageShippingServiceClient;
+import com.zlatko.packageselfservicebackend.clients.dtos.ShippingOrderChanges;
+import com.zlatko.packageselfservicebackend.clients.dtos.ShippingOrderDetails;
+import com.zlatko.packageselfservicebackend.model.entities.PackageEntity;
+import com.zlatko.packageselfservicebackend.repositories.PackageRepository;
+import com.zlatko.packageselfservicebackend.services.PackageSummaryService;
+import com.zlatko.packageselfservicebackend.utils.GlobalConstants;
+import com.zlatko.packageselfservicebackend.utils.UuidV7;
+import io.micrometer.core.annotation.Timed;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps the observed state of the packages (see PackageSummaryService) up to date from the change feed of the
+ * package-shipping-service, so a sync costs in proportion to the changed shipping orders, not to the tracked packages. <br>
+ * The changed orders are pulled page by page from the stored cursor (see V7__Track_shipping_order_changes.sql), matched to
+ * their packages and recorded, and the cursor is advanced in the same transaction, so a failed page is applied again as a whole. <br>
+ * Every instance runs the sync, but each page is pulled and applied under the lock of the cursor row, taken with
+ * {@code FOR UPDATE SKIP LOCKED}: only one instance advances the cursor at a time, the others skip their run. <br>
+ * Changes of orders without a package (yet) are skipped: the state of a package stored after its order changed is
+ * picked up by the next change of the order, or when its details are read.
+ */
+@Component
+@ConditionalOnProperty(value = "app.shipping-orders.sync.enabled", matchIfMissing = true)
+@Slf4j
+public class ShippingOrderChangeSync {
+
+    private final PackageShippingServiceClient packageShippingServiceClient;
+    private final PackageRepository packageRepository;
+    private final PackageSummaryService packageSummaryService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int pageSize;
+
+    public ShippingOrderChangeSync(PackageShippingServiceClient packageShippingServiceClient,
+                                   PackageRepository packageRepository,
+                                   PackageSummaryService packageSummaryService,
+                                   JdbcTemplate jdbcTemplate,
+                                   TransactionTemplate transactionTemplate,
+                                   @Value("${app.shipping-orders.sync.page-size:500}") int pageSize) {
+        this.packageShippingServiceClient = packageShippingServiceClient;
+        this.packageRepository = packageRepository;
+        this.packageSummaryService = packageSummaryService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Applies the pages of changes until the feed is caught up, or stops if another instance holds the cursor. <br>
+     * Each run is traced with its own X-Correlation-ID, sent along with every page request.
+     */
+    @Scheduled(fixedDelayString = "${app.shipping-orders.sync.interval:PT10S}")
+    @Timed(GlobalConstants.METRIC_SYNC_SHIPPING_ORDER_CHANGES)
+    public void syncChanges() {
+        MDC.put(GlobalConstants.X_CORRELATION_ID, UuidV7.generate().toString());
+        try {
+            long changedOrders = 0;
+            long changedPackages = 0;
+            String cursor = null;
+            SyncedPage page;
+            do {
+                page = transactionTemplate.execute(status -> syncNextPage());
+                if (page == null) {
+                    log.debug("Shipping order change sync skipped, the cursor is held by another instance");
+                    break;
+                }
+                changedOrders += page.changes().orders().size();
+                changedPackages += page.changedPackages();
+                cursor = page.changes().cursor();
+            } while (page.changes().hasMore());
+            if (changedOrders > 0) {
+                log.info("Shipping order change sync: {} changed orders, {} of them with a package, up to cursor {}", changedOrders, changedPackages, cursor);
+            }
+        } finally {
+            MDC.remove(GlobalConstants.X_CORRELATION_ID);
+        }
+    }
+
+    /**
+     * Pulls the next page of changes from the stored cursor, records it and advances the cursor, holding the lock of the cursor row. <br>
+     * Runs in a read-write transaction, so the packages are read from the primary, as a replica may not have them yet.
+     *
+     * @return the applied page, or null if the cursor row is locked by another instance
+     */
+    private SyncedPage syncNextPage() {
+        List<String> cursor = jdbcTemplate.queryForList(
+                "SELECT change_cursor FROM shipping_order_changes_cursor FOR UPDATE SKIP LOCKED", String.class);
+        if (cursor.isEmpty()) {
+            return null;
+        }
+        ShippingOrderChanges changes = packageShippingServiceClient.getShippingOrderChanges(cursor.getFirst(), pageSize);
+        int changedPackages = apply(changes.orders());
+        jdbcTemplate.update("UPDATE shipping_order_changes_cursor SET change_cursor = ?", changes.cursor());
+        return new SyncedPage(changes, changedPackages);
+    }
+
+    /**
+     * Records the changed orders on their packages.
+     *
+     * @param orders the changed orders
+     * @return the number of packages of the changed orders
+     */
+    private int apply(List<ShippingOrderDetails> orders) {
+        if (orders.isEmpty()) {
+            return 0;
+        }
+        // The packageId of the shipping order details is the id of the shipping order
+        Map<String, ShippingOrderDetails> ordersById = orders.stream()
+                .collect(Collectors.toMap(ShippingOrderDetails::packageId, Function.identity()));
+        List<PackageEntity> packages = packageRepository.findByShippingOrderIds(ordersById.keySet());
+        packages.forEach(packageEntity -> packageSummaryService.recordObserved(packageEntity, ordersById.get(shippingOrderId(packageEntity))));
+        return packages.size();
+    }
+
+    private static String shippingOrderId(PackageEntity packageEntity) {
+        String downstreamOrderUrl = packageEntity.getDownstreamOrderUrl();
+        return downstreamOrderUrl.substring(downstreamOrderUrl.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * @param changes the applied page of changes
+     * @param changedPackages the number of packages of the changed orders
+     */
+    private record SyncedPage(ShippingOrderChanges changes, int changedPackages) {
+    }
+}
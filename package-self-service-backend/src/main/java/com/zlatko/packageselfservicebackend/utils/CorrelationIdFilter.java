@@ -7,7 +7,6 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.UUID;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
 import org.springframework.stereotype.Component;
@@ -67,11 +66,11 @@ public class CorrelationIdFilter implements Filter {
     }
 
     /**
-     * Generate a unique identifier for the request as a UUID string.
+     * Generate a unique, time-ordered identifier for the request as a UUID string.
      * @return A unique identifier
      */
     private String generateUniqueId() {
-        return UUID.randomUUID().toString();
+        return UuidV7.generate().toString();
     }
 
     /**
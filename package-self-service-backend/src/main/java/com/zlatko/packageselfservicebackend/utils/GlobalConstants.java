@@ -6,6 +6,61 @@ package com.zlatko.packageselfservicebackend.utils;
 public class GlobalConstants {
     public static final String X_CORRELATION_ID = "X-Correlation-ID";
     public static final String REQUEST_ID = "Request-Id";
+    public static final String SERVER_TIMING = "Server-Timing";
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    // Commit time (epoch millis) of the client's last write, see ReadYourWritesTracker
+    public static final String LAST_WRITE_COOKIE = "last-write";
+    public static final String IDEMPOTENCY_KEY_REGEX_PATTERN = "^[\\w.:-]{1,64}$";
     public static final String UUID_REGEX_PATTERN = "^[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}$";
+    // A package version as returned in the ETag header of the watch endpoint, quoted or not
+    public static final String PACKAGE_VERSION_REGEX_PATTERN = "^\"?[0-9a-f]{64}\"?$";
+    public static final String PACKAGE_DETAILS_FIELD_REGEX_PATTERN = "^(packageId|packageName|dateOfRegistration|status|expectedDeliveryDate|actualDeliveryDateTime|recipient)$";
     public static final String PACKAGE_SELF_SERVICE_SERVICE = "package-self-service-service";
+
+    // Metric names, percentiles and histograms for all of these are configured in application.properties
+    public static final String METRIC_SUBMIT_PACKAGE = "package.self.service.submit";
+    public static final String METRIC_GET_PACKAGE_DETAILS = "package.self.service.details";
+    public static final String METRIC_WATCH_PACKAGE_DETAILS = "package.self.service.watch";
+    public static final String METRIC_LIST_PACKAGE_DETAILS = "package.self.service.list";
+    public static final String METRIC_SEARCH_PACKAGE_DETAILS = "package.self.service.search";
+    public static final String METRIC_PACKAGE_SUMMARY = "package.self.service.summary";
+    public static final String METRIC_FIND_RECEIVERS = "package.self.service.receivers";
+    public static final String METRIC_ENRICH_PACKAGE_DETAILS = "package.self.service.enrich";
+    public static final String METRIC_SYNC_SHIPPING_ORDER_CHANGES = "package.self.service.sync";
+    public static final String METRIC_SHIPPING_CLIENT = "package.self.service.shipping.client";
+    public static final String METRIC_TAG_OPERATION = "operation";
+    // Gauges
+    public static final String METRIC_REPLICA_LAG = "package.self.service.datasource.replica.lag";
+    public static final String METRIC_REPLICA_USABLE = "package.self.service.datasource.replica.usable";
+    public static final String METRIC_RECEIVER_DIRECTORY_SIZE = "package.self.service.receivers.directory.size";
+    public static final String METRIC_PACKAGE_WATCHES = "package.self.service.watches";
+    public static final String METRIC_PACKAGES_DEFAULT_PARTITION_ROWS = "package.self.service.packages.partitions.default.rows";
+    public static final String METRIC_TAG_REPLICA = "replica";
+    // Virtual thread pinning and carrier pool metrics of the VirtualThreadPinningEndpoint
+    public static final String METRIC_VIRTUAL_THREADS_PINNED = "jvm.threads.virtual.pinned";
+    public static final String METRIC_VIRTUAL_THREADS_SUBMIT_FAILED = "jvm.threads.virtual.submit.failed";
+    public static final String METRIC_VIRTUAL_THREADS_SCHEDULING_DELAY = "jvm.threads.virtual.scheduling.delay";
+    public static final String METRIC_VIRTUAL_THREADS_CARRIERS = "jvm.threads.virtual.carriers";
+    public static final String METRIC_VIRTUAL_THREADS_PARALLELISM = "jvm.threads.virtual.carriers.parallelism";
+    // JDBC statement metrics of the QueryRecorder, tagged by statement id and SQL operation, and statements per request (tagged by uri)
+    public static final String METRIC_JDBC_STATEMENTS = "jdbc.statements";
+    public static final String METRIC_JDBC_REQUEST_STATEMENTS = "jdbc.request.statements";
+    public static final String METRIC_TAG_STATEMENT = "statement";
+    public static final String METRIC_TAG_URI = "uri";
+    // Cache names, tag of the cache.* metrics
+    public static final String CACHE_PACKAGE_LISTS = "package.self.service.lists";
+
+    // Server-Timing stage names
+    public static final String STAGE_APP = "app";
+    public static final String STAGE_SERIALIZE = "serialize";
+    // Every executed JDBC statement, counted per request
+    public static final String STAGE_SQL = "sql";
+    public static final String STAGE_SENDER_LOOKUP = "sender";
+    public static final String STAGE_RECIPIENT_LOOKUP = "recipient";
+    public static final String STAGE_PACKAGE_QUERY = "packages";
+    public static final String STAGE_PACKAGE_PERSIST = "persist";
+    public static final String STAGE_SUMMARY_QUERY = "summary";
+    public static final String STAGE_ENRICH = "enrich";
+    public static final String STAGE_SHIPPING = "shipping";
+    public static final String STAGE_SHIPPING_PREFIX = "shipping-";
 }
@@ -90,6 +90,11 @@ public class GlobalExceptionHandler {
                 .stream()
                 .map(error -> new ValidationError(error.getMethodParameter().getParameterName(), error.getResolvableErrors().stream().map(MessageSourceResolvable::getDefaultMessage).toList().toString()))
                 .collect(Collectors.toList());
+        // A @Valid request body is validated along with the other parameters, add its errors like MethodArgumentNotValidException does
+        ex.getBeanResults().forEach(result -> {
+            result.getFieldErrors().forEach(error -> validationErrors.add(new ValidationError(error.getField(), error.getDefaultMessage())));
+            result.getGlobalErrors().forEach(error -> validationErrors.add(new ValidationError(error.getObjectName(), error.getDefaultMessage())));
+        });
 
         Error error = new Error(
                 HttpStatus.BAD_REQUEST.value(),
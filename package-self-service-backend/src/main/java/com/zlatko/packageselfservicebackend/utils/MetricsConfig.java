@@ -0,0 +1,20 @@
+package com.zlatko.packageselfservicebackend.utils;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Metrics configuration. <br>
+ * Registers the TimedAspect so that methods annotated with @Timed are recorded as Micrometer timers. <br>
+ * Percentiles and histograms for these timers are configured in application.properties.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+}
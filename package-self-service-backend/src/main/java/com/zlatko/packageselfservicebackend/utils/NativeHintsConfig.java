@@ -0,0 +1,47 @@
+package com.zlatko.packageselfservicebackend.utils;
+
+import com.zlatko.packageselfservicebackend.clients.PackageShippingServiceClient;
+import com.zlatko.packageselfservicebackend.clients.dtos.ShippingOrder;
+import com.zlatko.packageselfservicebackend.clients.dtos.ShippingOrderChanges;
+import com.zlatko.packageselfservicebackend.clients.dtos.ShippingOrderDetails;
+import com.zlatko.packageselfservicebackend.model.dtos.errors.Error;
+import com.zlatko.packageselfservicebackend.model.dtos.errors.ValidationError;
+import com.zlatko.packageselfservicebackend.model.entities.EmployeeEntity;
+import com.zlatko.packageselfservicebackend.model.entities.PackageEntity;
+import com.zlatko.packageselfservicebackend.services.PackageSelfServiceService;
+import java.util.stream.Stream;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+/**
+ * Reflection hints for the AOT-processed (cds profile) and native (native profile) builds. <br>
+ * Controller request/response bodies are registered by Spring AOT itself, the remaining reflective access is registered here: <br>
+ *  - Jackson records exchanged with the package-shipping-service through the WebClient and returned by the GlobalExceptionHandler <br>
+ *  - Lombok-built entities, instantiated and populated by Hibernate <br>
+ *  - classes advised by the resilience4j aspects, which read the annotations and invoke the fallback methods reflectively <br>
+ */
+@Configuration(proxyBeanMethods = false)
+@ImportRuntimeHints(NativeHintsConfig.ApplicationRuntimeHints.class)
+@RegisterReflectionForBinding({ShippingOrder.class, ShippingOrderDetails.class, ShippingOrderChanges.class, Error.class, ValidationError.class})
+public class NativeHintsConfig {
+
+    static class ApplicationRuntimeHints implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            Stream.of(PackageEntity.class, PackageEntity.PackageEntityBuilder.class, EmployeeEntity.class)
+                    .forEach(type -> hints.reflection().registerType(type,
+                            MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                            MemberCategory.INVOKE_DECLARED_METHODS,
+                            MemberCategory.DECLARED_FIELDS));
+            Stream.of(PackageShippingServiceClient.class, PackageSelfServiceService.class)
+                    .forEach(type -> hints.reflection().registerType(type,
+                            MemberCategory.INTROSPECT_DECLARED_METHODS,
+                            MemberCategory.INVOKE_DECLARED_METHODS));
+        }
+    }
+}
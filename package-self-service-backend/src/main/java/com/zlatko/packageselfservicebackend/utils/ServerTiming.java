@@ -0,0 +1,202 @@
+package com.zlatko.packageselfservicebackend.utils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.MDC;
+
+/**
+ * Lightweight in-process recorder of named stage timings for the current request. <br>
+ * A recorder is bound to the request thread by the {@link ServerTimingFilter} and rendered as a
+ * {@code Server-Timing} response header, e.g. {@code sender;dur=1.20, shipping;dur=40.31;desc="3 calls"}. <br>
+ * Repeated stages (e.g. one downstream call per package) are summed up and their count is added as a description. <br>
+ * Recording is a no-op when no recorder is bound to the current thread (e.g. in unit tests or scheduled jobs).
+ */
+public final class ServerTiming {
+
+    private static final ThreadLocal<ServerTiming> CURRENT = new ThreadLocal<>();
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+
+    /**
+     * Binds a new recorder to the current thread.
+     *
+     * @return the new recorder
+     */
+    public static ServerTiming start() {
+        ServerTiming serverTiming = new ServerTiming();
+        CURRENT.set(serverTiming);
+        return serverTiming;
+    }
+
+    /**
+     * Unbinds the recorder from the current thread.
+     */
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Runs the supplier and records its duration under the given stage name.
+     *
+     * @param stage the stage name
+     * @param supplier the work to time
+     * @return the result of the supplier
+     */
+    public static <T> T record(String stage, Supplier<T> supplier) {
+        ServerTiming serverTiming = CURRENT.get();
+        if (serverTiming == null) {
+            return supplier.get();
+        }
+        long start = System.nanoTime();
+        try {
+            return supplier.get();
+        } finally {
+            serverTiming.add(stage, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Records an already measured duration under the given stage name, e.g. of a JDBC statement.
+     *
+     * @param stage the stage name
+     * @param nanos the duration in nanoseconds
+     */
+    public static void recordNanos(String stage, long nanos) {
+        ServerTiming serverTiming = CURRENT.get();
+        if (serverTiming != null) {
+            serverTiming.add(stage, nanos);
+        }
+    }
+
+    /**
+     * Records the Server-Timing header values returned by a downstream service, prefixing each stage name. <br>
+     * Example: {@code db;dur=2.5} from the package-shipping-service becomes {@code shipping-db;dur=2.5}.
+     *
+     * @param prefix the prefix for the downstream stage names
+     * @param headerValues the downstream Server-Timing header values, may be null
+     */
+    public static void recordDownstream(String prefix, List<String> headerValues) {
+        ServerTiming serverTiming = CURRENT.get();
+        if (serverTiming == null || headerValues == null) {
+            return;
+        }
+        for (String headerValue : headerValues) {
+            for (String metric : headerValue.split(",")) {
+                String[] parts = metric.trim().split(";");
+                if (StringUtils.isBlank(parts[0])) {
+                    continue;
+                }
+                for (int i = 1; i < parts.length; i++) {
+                    String param = parts[i].trim();
+                    // Malformed durations are skipped, timing must never fail a request
+                    double durationMillis = param.startsWith("dur=") ? NumberUtils.toDouble(param.substring("dur=".length()), -1) : -1;
+                    if (durationMillis >= 0) {
+                        serverTiming.add(prefix + parts[0].trim(), (long) (durationMillis * NANOS_PER_MILLI));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Wraps a function so that it records into the current thread's recorder, and logs with the current
+     * thread's MDC (X-Correlation-ID, Request-Id), when executed on another thread, e.g. by a parallel stream.
+     *
+     * @param function the function to wrap
+     * @return the wrapped function
+     */
+    public static <T, R> Function<T, R> propagate(Function<T, R> function) {
+        ServerTiming serverTiming = CURRENT.get();
+        Map<String, String> mdcContext = MDC.getCopyOfContextMap();
+        return input -> {
+            ServerTiming previousServerTiming = CURRENT.get();
+            Map<String, String> previousMdcContext = MDC.getCopyOfContextMap();
+            setContext(serverTiming, mdcContext);
+            try {
+                return function.apply(input);
+            } finally {
+                setContext(previousServerTiming, previousMdcContext);
+            }
+        };
+    }
+
+    private static void setContext(ServerTiming serverTiming, Map<String, String> mdcContext) {
+        if (serverTiming == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(serverTiming);
+        }
+        if (mdcContext == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(mdcContext);
+        }
+    }
+
+    /**
+     * Adds a duration to the given stage.
+     *
+     * @param stage the stage name
+     * @param nanos the duration in nanoseconds
+     */
+    public synchronized void add(String stage, long nanos) {
+        Stage recorded = stages.computeIfAbsent(stage, name -> new Stage());
+        recorded.nanos += nanos;
+        recorded.count++;
+    }
+
+    /**
+     * Returns how many durations were added to the given stage.
+     *
+     * @param stage the stage name
+     * @return the count, 0 if the stage was not recorded
+     */
+    public synchronized int count(String stage) {
+        Stage recorded = stages.get(stage);
+        return recorded == null ? 0 : recorded.count;
+    }
+
+    /**
+     * Renders the recorded stages as a Server-Timing header value.
+     *
+     * @return the header value, empty if no stages were recorded
+     */
+    public synchronized String toHeaderValue() {
+        return stages.entrySet().stream()
+                .map(entry -> {
+                    String metric = "%s;dur=%s".formatted(entry.getKey(), formatMillis(entry.getValue().nanos));
+                    return entry.getValue().count > 1
+                            ? "%s;desc=\"%d calls\"".formatted(metric, entry.getValue().count)
+                            : metric;
+                })
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Renders the recorded stages as space separated key=value pairs (in milliseconds) for a single log line.
+     *
+     * @return the log value
+     */
+    public synchronized String toLogValue() {
+        return stages.entrySet().stream()
+                .map(entry -> "%s=%s".formatted(entry.getKey(), formatMillis(entry.getValue().nanos)))
+                .collect(Collectors.joining(" "));
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / NANOS_PER_MILLI);
+    }
+
+    private static final class Stage {
+        private long nanos;
+        private int count;
+    }
+}
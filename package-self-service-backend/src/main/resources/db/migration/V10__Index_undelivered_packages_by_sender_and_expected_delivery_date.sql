@@ -0,0 +1,5 @@
+-- The next expected delivery of a sender is recomputed (SenderPackageSummaryRepository.applyPackageChange) from the
+-- sender's undelivered packages when the package defining it got delivered or postponed. The partial index only holds
+-- the undelivered packages, so the min() is the first entry of the sender in each partition, however long its history.
+-- Guarded by the PackageRepositoryQueryPlanTest. Archived packages are never updated, so the archive needs no such index.
+CREATE INDEX packages_sender_id_expected_delivery_date_idx ON packages (sender_id, expected_delivery_date) WHERE status <> 'DELIVERED';
@@ -0,0 +1,66 @@
+-- The sender package summaries only cover the packages not archived yet: archived packages are never updated, so their
+-- last observed state would stay counted (and could define the next expected delivery) forever. The packages of an
+-- archived partition are subtracted from the counters of their senders, and the next expected delivery of these senders
+-- is recomputed from their remaining undelivered packages (on the V10 index).
+
+-- Moves the monthly partitions ending more than archive_after_months months before the current month into the
+-- packages_archive table, each one is detached, copied, removed from the sender summaries and dropped.
+-- Returns the number of archived packages.
+CREATE OR REPLACE FUNCTION archive_packages_partitions(archive_after_months INT) RETURNS BIGINT AS
+$$
+DECLARE
+    cutoff         DATE   := date_trunc('month', now()) - make_interval(months => archive_after_months);
+    expired        RECORD;
+    moved_packages BIGINT;
+    archived       BIGINT := 0;
+BEGIN
+    FOR expired IN
+        SELECT child.relname                                                       AS name,
+               to_date(substring(child.relname FROM '^packages_p(\d{6})$'), 'YYYYMM') AS month_start
+        FROM pg_inherits
+                 JOIN pg_class child ON child.oid = pg_inherits.inhrelid
+        WHERE pg_inherits.inhparent = 'packages'::REGCLASS
+          AND child.relname ~ '^packages_p\d{6}$'
+        ORDER BY child.relname
+        LOOP
+            EXIT WHEN expired.month_start + INTERVAL '1 month' > cutoff;
+            EXECUTE format('ALTER TABLE packages DETACH PARTITION %I', expired.name);
+            EXECUTE format('INSERT INTO packages_archive SELECT * FROM %I', expired.name);
+            GET DIAGNOSTICS moved_packages = ROW_COUNT;
+            EXECUTE format($sql$
+                UPDATE sender_package_summaries summary
+                SET in_progress_count           = summary.in_progress_count - archived_packages.in_progress_count,
+                    sent_count                  = summary.sent_count - archived_packages.sent_count,
+                    delivered_count             = summary.delivered_count - archived_packages.delivered_count,
+                    next_expected_delivery_date = (SELECT min(expected_delivery_date)
+                                                   FROM packages
+                                                   WHERE sender_id = summary.sender_id AND status <> 'DELIVERED')
+                FROM (SELECT sender_id,
+                             count(*) FILTER (WHERE status = 'IN_PROGRESS') AS in_progress_count,
+                             count(*) FILTER (WHERE status = 'SENT')        AS sent_count,
+                             count(*) FILTER (WHERE status = 'DELIVERED')   AS delivered_count
+                      FROM %I
+                      GROUP BY sender_id) archived_packages
+                WHERE summary.sender_id = archived_packages.sender_id$sql$, expired.name);
+            EXECUTE format('DROP TABLE %I', expired.name);
+            archived := archived + moved_packages;
+        END LOOP;
+    RETURN archived;
+END
+$$ LANGUAGE plpgsql;
+
+-- The packages archived so far are counted with the state they were archived in (V4 counted them as in progress)
+UPDATE sender_package_summaries summary
+SET in_progress_count           = summary.in_progress_count - archived_packages.in_progress_count,
+    sent_count                  = summary.sent_count - archived_packages.sent_count,
+    delivered_count             = summary.delivered_count - archived_packages.delivered_count,
+    next_expected_delivery_date = (SELECT min(expected_delivery_date)
+                                   FROM packages
+                                   WHERE sender_id = summary.sender_id AND status <> 'DELIVERED')
+FROM (SELECT sender_id,
+             count(*) FILTER (WHERE status = 'IN_PROGRESS') AS in_progress_count,
+             count(*) FILTER (WHERE status = 'SENT')        AS sent_count,
+             count(*) FILTER (WHERE status = 'DELIVERED')   AS delivered_count
+      FROM packages_archive
+      GROUP BY sender_id) archived_packages
+WHERE summary.sender_id = archived_packages.sender_id;
@@ -0,0 +1,93 @@
+-- Range partition the packages table by month of registration, so that queries, vacuum and index maintenance
+-- only work on the recent partitions, and old partitions can be archived as a whole (see PackagePartitionJob).
+
+-- Creates the monthly partitions from the month of from_date up to months_ahead months after the current month.
+-- Partitions are named packages_pYYYYMM, existing ones are skipped. Returns the number of created partitions.
+CREATE FUNCTION create_packages_partitions(from_date DATE, months_ahead INT) RETURNS INT AS
+$$
+DECLARE
+    month_start    DATE := date_trunc('month', from_date);
+    last_month     DATE := date_trunc('month', now()) + make_interval(months => months_ahead);
+    partition_name TEXT;
+    created        INT  := 0;
+BEGIN
+    WHILE month_start <= last_month
+        LOOP
+            partition_name := 'packages_p' || to_char(month_start, 'YYYYMM');
+            IF to_regclass(partition_name) IS NULL THEN
+                EXECUTE format('CREATE TABLE %I PARTITION OF packages FOR VALUES FROM (%L) TO (%L)',
+                               partition_name, month_start, (month_start + INTERVAL '1 month')::DATE);
+                created := created + 1;
+            END IF;
+            month_start := month_start + INTERVAL '1 month';
+        END LOOP;
+    RETURN created;
+END
+$$ LANGUAGE plpgsql;
+
+-- Moves the monthly partitions ending more than archive_after_months months before the current month into the
+-- packages_archive table, each one is detached, copied and dropped. Returns the number of archived packages.
+CREATE FUNCTION archive_packages_partitions(archive_after_months INT) RETURNS BIGINT AS
+$$
+DECLARE
+    cutoff         DATE   := date_trunc('month', now()) - make_interval(months => archive_after_months);
+    expired        RECORD;
+    moved_packages BIGINT;
+    archived       BIGINT := 0;
+BEGIN
+    FOR expired IN
+        SELECT child.relname                                                       AS name,
+               to_date(substring(child.relname FROM '^packages_p(\d{6})$'), 'YYYYMM') AS month_start
+        FROM pg_inherits
+                 JOIN pg_class child ON child.oid = pg_inherits.inhrelid
+        WHERE pg_inherits.inhparent = 'packages'::REGCLASS
+          AND child.relname ~ '^packages_p\d{6}$'
+        ORDER BY child.relname
+        LOOP
+            EXIT WHEN expired.month_start + INTERVAL '1 month' > cutoff;
+            EXECUTE format('ALTER TABLE packages DETACH PARTITION %I', expired.name);
+            EXECUTE format('INSERT INTO packages_archive SELECT * FROM %I', expired.name);
+            GET DIAGNOSTICS moved_packages = ROW_COUNT;
+            EXECUTE format('DROP TABLE %I', expired.name);
+            archived := archived + moved_packages;
+        END LOOP;
+    RETURN archived;
+END
+$$ LANGUAGE plpgsql;
+
+-- Keep the existing packages aside, the index backing the primary key is renamed as its name is unique per schema
+ALTER TABLE packages RENAME TO packages_unpartitioned;
+ALTER TABLE packages_unpartitioned RENAME CONSTRAINT packages_pkey TO packages_unpartitioned_pkey;
+
+-- The partition key has to be part of the primary key, ids are still unique as they are generated by the application
+CREATE TABLE packages
+(
+    id                   UUID         NOT NULL,
+    package_name         VARCHAR(255) NOT NULL,
+    weight_in_grams      INT          NOT NULL,
+    sender_id            UUID         NOT NULL,
+    receiver_id          UUID         NOT NULL,
+    date_of_registration TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    downstream_order_url TEXT         NOT NULL,
+    PRIMARY KEY (id, date_of_registration),
+    FOREIGN KEY (sender_id) REFERENCES employees (id),
+    FOREIGN KEY (receiver_id) REFERENCES employees (id)
+) PARTITION BY RANGE (date_of_registration);
+
+-- Archived packages are only read on request (includeArchived) and never updated
+CREATE TABLE packages_archive
+(
+    LIKE packages INCLUDING DEFAULTS,
+    PRIMARY KEY (id),
+    FOREIGN KEY (sender_id) REFERENCES employees (id),
+    FOREIGN KEY (receiver_id) REFERENCES employees (id)
+);
+
+-- Partitions for the existing packages and the next 3 months, later ones are created by the PackagePartitionJob
+SELECT create_packages_partitions(COALESCE((SELECT min(date_of_registration) FROM packages_unpartitioned)::DATE, CURRENT_DATE), 3);
+
+INSERT INTO packages (id, package_name, weight_in_grams, sender_id, receiver_id, date_of_registration, downstream_order_url)
+SELECT id, package_name, weight_in_grams, sender_id, receiver_id, COALESCE(date_of_registration, CURRENT_TIMESTAMP), downstream_order_url
+FROM packages_unpartitioned;
+
+DROP TABLE packages_unpartitioned;
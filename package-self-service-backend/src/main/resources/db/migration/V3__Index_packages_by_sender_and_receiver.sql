@@ -0,0 +1,11 @@
+-- Indexes for the access paths of the PackageRepository, guarded by the PackageRepositoryQueryPlanTest.
+-- Indexes on the partitioned packages table are created on every existing and future partition.
+
+-- The sender's packages (findBySender, findArchivedBySenderId) in registration order, so a date restricted or
+-- ordered listing of one sender is read from the index too. The lookups by id use the primary keys.
+CREATE INDEX packages_sender_id_date_of_registration_idx ON packages (sender_id, date_of_registration);
+CREATE INDEX packages_archive_sender_id_date_of_registration_idx ON packages_archive (sender_id, date_of_registration);
+
+-- The foreign key checks on updates and deletes of employees look packages up by receiver (and by sender, see above)
+CREATE INDEX packages_receiver_id_idx ON packages (receiver_id);
+CREATE INDEX packages_archive_receiver_id_idx ON packages_archive (receiver_id);
@@ -0,0 +1,29 @@
+-- Last state of each package observed from the package-shipping-service, the same columns are added to the archive
+-- so that archive_packages_partitions can keep copying whole rows
+ALTER TABLE packages
+    ADD COLUMN status                    VARCHAR(20) NOT NULL DEFAULT 'IN_PROGRESS',
+    ADD COLUMN expected_delivery_date    DATE,
+    ADD COLUMN actual_delivery_date_time TIMESTAMP;
+ALTER TABLE packages_archive
+    ADD COLUMN status                    VARCHAR(20) NOT NULL DEFAULT 'IN_PROGRESS',
+    ADD COLUMN expected_delivery_date    DATE,
+    ADD COLUMN actual_delivery_date_time TIMESTAMP;
+
+-- Per sender aggregates of the packages, maintained incrementally on submit and on observed status changes
+-- (see PackageSummaryService), so the summary endpoint reads a single row no matter how many packages a sender has
+CREATE TABLE sender_package_summaries
+(
+    sender_id                   UUID PRIMARY KEY,
+    in_progress_count           BIGINT NOT NULL DEFAULT 0,
+    sent_count                  BIGINT NOT NULL DEFAULT 0,
+    delivered_count             BIGINT NOT NULL DEFAULT 0,
+    next_expected_delivery_date DATE,
+    last_delivery_date_time     TIMESTAMP,
+    FOREIGN KEY (sender_id) REFERENCES employees (id)
+);
+
+-- The status of the existing packages is unknown until they are observed again, they start as in progress
+INSERT INTO sender_package_summaries (sender_id, in_progress_count)
+SELECT sender_id, count(*)
+FROM (SELECT sender_id FROM packages UNION ALL SELECT sender_id FROM packages_archive) registered_packages
+GROUP BY sender_id;
@@ -0,0 +1,9 @@
+-- Trigram indexes for the sender's package name search (substring and prefix ILIKE patterns), guarded by the
+-- PackageRepositoryQueryPlanTest. btree_gin adds the sender_id to the same GIN index, so a search only reads the
+-- posting lists of the sender and the pattern's trigrams, however many packages the other senders registered.
+CREATE EXTENSION IF NOT EXISTS pg_trgm WITH SCHEMA public;
+CREATE EXTENSION IF NOT EXISTS btree_gin WITH SCHEMA public;
+
+-- The operator class is schema qualified, as the index is created on the partitions with a restricted search_path
+CREATE INDEX packages_sender_id_package_name_trgm_idx ON packages USING gin (sender_id, package_name public.gin_trgm_ops);
+CREATE INDEX packages_archive_sender_id_package_name_trgm_idx ON packages_archive USING gin (sender_id, package_name public.gin_trgm_ops);
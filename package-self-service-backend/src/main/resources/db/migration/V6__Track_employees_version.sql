@@ -0,0 +1,23 @@
+-- Version of the employees data, bumped by every statement changing the employees table, so the in-memory
+-- receiver directory (see ReceiverDirectory) polls a single row and is only rebuilt when the employees changed.
+-- Employees change rarely, so serializing concurrent employee writes on this row is acceptable.
+CREATE TABLE employees_version
+(
+    id      BOOLEAN PRIMARY KEY DEFAULT TRUE CHECK (id),
+    version BIGINT NOT NULL
+);
+
+INSERT INTO employees_version (version) VALUES (1);
+
+CREATE FUNCTION bump_employees_version() RETURNS TRIGGER AS
+$$
+BEGIN
+    UPDATE employees_version SET version = version + 1;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER employees_version_bump
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON employees
+    FOR EACH STATEMENT
+EXECUTE FUNCTION bump_employees_version();
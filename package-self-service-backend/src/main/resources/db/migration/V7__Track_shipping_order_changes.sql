@@ -0,0 +1,12 @@
+-- Position of the backend in the change feed of the package-shipping-service (see ShippingOrderChangeSync),
+-- advanced after every applied page of changes. NULL until the first page, the feed then starts from its beginning.
+CREATE TABLE shipping_order_changes_cursor
+(
+    id            BOOLEAN PRIMARY KEY DEFAULT TRUE CHECK (id),
+    change_cursor TEXT
+);
+
+INSERT INTO shipping_order_changes_cursor (change_cursor) VALUES (NULL);
+
+-- Changed shipping orders are matched to their packages by the order id, the last segment of the downstream order URL
+CREATE INDEX packages_shipping_order_id_idx ON packages (substring(downstream_order_url FROM '[^/]+$'));
@@ -0,0 +1,14 @@
+-- Idempotency keys of the package submissions (see IdempotencyKeyStore), scoped by sender. A key is stored in the submit
+-- transaction of its package, so it exists exactly when the package does. Keys expire after app.idempotency.ttl,
+-- expired keys are ignored and deleted periodically.
+CREATE TABLE submission_idempotency_keys
+(
+    sender_id       UUID        NOT NULL,
+    idempotency_key VARCHAR(64) NOT NULL,
+    package_id      UUID        NOT NULL,
+    created_at      TIMESTAMP   NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (sender_id, idempotency_key)
+);
+
+-- Deletion of the expired keys
+CREATE INDEX submission_idempotency_keys_created_at_idx ON submission_idempotency_keys (created_at);
@@ -0,0 +1,33 @@
+-- Catch-all partition for the packages registered outside of the monthly partitions (e.g. with the PackagePartitionJob
+-- disabled or after a missed run), so their inserts don't fail. Rows are moved out of it when their month is partitioned.
+CREATE TABLE packages_default PARTITION OF packages DEFAULT;
+
+-- Creates the monthly partitions as before, the packages of a new month already in the default partition are moved into it:
+-- the partition is created as a standalone table, filled from the default partition and then attached.
+-- Partitions are named packages_pYYYYMM, existing ones are skipped. Returns the number of created partitions.
+CREATE OR REPLACE FUNCTION create_packages_partitions(from_date DATE, months_ahead INT) RETURNS INT AS
+$$
+DECLARE
+    month_start    DATE := date_trunc('month', from_date);
+    last_month     DATE := date_trunc('month', now()) + make_interval(months => months_ahead);
+    month_end      DATE;
+    partition_name TEXT;
+    created        INT  := 0;
+BEGIN
+    WHILE month_start <= last_month
+        LOOP
+            partition_name := 'packages_p' || to_char(month_start, 'YYYYMM');
+            month_end := (month_start + INTERVAL '1 month')::DATE;
+            IF to_regclass(partition_name) IS NULL THEN
+                EXECUTE format('CREATE TABLE %I (LIKE packages INCLUDING DEFAULTS)', partition_name);
+                EXECUTE format('WITH moved AS (DELETE FROM packages_default WHERE date_of_registration >= %L AND date_of_registration < %L RETURNING *) '
+                                   || 'INSERT INTO %I SELECT * FROM moved', month_start, month_end, partition_name);
+                EXECUTE format('ALTER TABLE packages ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                               partition_name, month_start, month_end);
+                created := created + 1;
+            END IF;
+            month_start := month_start + INTERVAL '1 month';
+        END LOOP;
+    RETURN created;
+END
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,181 @@
+package com.zlatko.packageselfservicebackend.controller;
+
+import com.zlatko.packageselfservicebackend.clients.PackageShippingServiceClient;
+import com.zlatko.packageselfservicebackend.utils.GlobalConstants;
+import com.zlatko.packageselfservicebackend.utils.UuidV7;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Fetch plan regression tests of the package read endpoints against PostgreSQL. <br>
+ * The JDBC statements executed per request are counted from the {@code sql} stage of the Server-Timing header
+ * (see QueryRecorder), so a read falling back to a select per receiver (N+1) or a redundant lookup fails the build.
+ * Only the database fields are requested, the downstream service isn't called. Skipped without Docker.
+ */
+@SpringBootTest(properties = {
+        "app.client.packageShippingService.baseurl=http://localhost:8443",
+        "app.shipping-orders.sync.enabled=false",
+        "app.receivers.directory.refresh-enabled=false",
+        "app.packages.partitions.maintenance-enabled=false"
+})
+@AutoConfigureMockMvc
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class PackageReadStatementsTest {
+
+    private static final String DATABASE_FIELDS = "packageName,recipient";
+    private static final int RECEIVERS = 3;
+    // e.g. sql;dur=1.20 or sql;dur=3.61;desc="3 calls"
+    private static final Pattern SQL_STAGE = Pattern.compile("(?:^|, )" + GlobalConstants.STAGE_SQL + ";dur=[\\d.]+(?:;desc=\"(\\d+) calls\")?");
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:17.0");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private PackageShippingServiceClient packageShippingServiceClient;
+
+    private UUID senderId;
+    private UUID packageId;
+
+    @BeforeAll
+    void seed() {
+        // A package to each of the distinct receivers, and an archived one
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            senderId = insertEmployee("Sender");
+            for (int i = 0; i < RECEIVERS; i++) {
+                packageId = insertPackage("packages", "Package " + i, insertEmployee("Receiver " + i));
+            }
+            insertPackage("packages_archive", "Archived Package", insertEmployee("Archived Receiver"));
+        });
+    }
+
+    @Nested
+    class ListPackageDetailsTests {
+
+        @Test
+        @SneakyThrows
+        void should_list_the_packages_with_their_receivers_in_one_statement() {
+            // When
+            MvcResult result = mockMvc.perform(get("/api/package-self-service")
+                            .param("senderId", senderId.toString())
+                            .param("fields", DATABASE_FIELDS))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(RECEIVERS))
+                    .andReturn();
+
+            // Then
+            assertThat(statements(result)).isEqualTo(1);
+        }
+
+        @Test
+        @SneakyThrows
+        void should_load_the_receivers_of_the_archived_packages_in_one_batch() {
+            // When
+            MvcResult result = mockMvc.perform(get("/api/package-self-service")
+                            .param("senderId", senderId.toString())
+                            .param("includeArchived", "true")
+                            .param("fields", DATABASE_FIELDS))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(RECEIVERS + 1))
+                    .andReturn();
+
+            // Then: the packages, the archived packages and their receivers
+            assertThat(statements(result)).isEqualTo(3);
+        }
+
+        @Test
+        @SneakyThrows
+        void should_only_look_the_sender_up_when_no_package_is_found() {
+            // When
+            MvcResult result = mockMvc.perform(get("/api/package-self-service")
+                            .param("senderId", UUID.randomUUID().toString())
+                            .param("fields", DATABASE_FIELDS))
+                    .andExpect(status().isBadRequest()) // SenderNotFoundException
+                    .andReturn();
+
+            // Then
+            assertThat(statements(result)).isEqualTo(2);
+        }
+    }
+
+    @Nested
+    class GetPackageDetailsTests {
+
+        @Test
+        @SneakyThrows
+        void should_read_the_package_with_its_receiver_in_one_statement() {
+            // When
+            MvcResult result = mockMvc.perform(get("/api/package-self-service/{packageId}", packageId)
+                            .param("senderId", senderId.toString())
+                            .param("fields", DATABASE_FIELDS))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.recipient.recipientName").value("Receiver " + (RECEIVERS - 1)))
+                    .andReturn();
+
+            // Then
+            assertThat(statements(result)).isEqualTo(1);
+        }
+    }
+
+    private static int statements(MvcResult result) {
+        String serverTiming = result.getResponse().getHeader(GlobalConstants.SERVER_TIMING);
+        assertThat(serverTiming).isNotNull();
+        Matcher sql = SQL_STAGE.matcher(serverTiming);
+        if (!sql.find()) {
+            return 0;
+        }
+        return sql.group(1) == null ? 1 : Integer.parseInt(sql.group(1));
+    }
+
+    private UUID insertEmployee(String name) {
+        return jdbcTemplate.queryForObject("""
+                INSERT INTO employees (id, name, street, city, state, postal_code, country)
+                VALUES (gen_random_uuid(), ?, '1 Main St', 'Springfield', 'IL', '62704', 'USA') RETURNING id""", UUID.class, name);
+    }
+
+    private UUID insertPackage(String table, String packageName, UUID receiverId) {
+        UUID id = UuidV7.generate();
+        jdbcTemplate.update("""
+                INSERT INTO %s (id, package_name, weight_in_grams, sender_id, receiver_id, date_of_registration, downstream_order_url)
+                VALUES (?, ?, 500, ?, ?, now(), ?)""".formatted(table), id, packageName, senderId, receiverId,
+                "http://localhost:8443/shippingOrders/" + id);
+        return id;
+    }
+}
@@ -3,12 +3,21 @@ package com.zlatko.packageselfservicebackend.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.zlatko.packageselfservicebackend.controllers.PackageSelfServiceController;
+import com.zlatko.packageselfservicebackend.directory.ReceiverDirectory;
 import com.zlatko.packageselfservicebackend.model.dtos.Package;
 import com.zlatko.packageselfservicebackend.model.dtos.PackageDetails;
+import com.zlatko.packageselfservicebackend.model.dtos.PackageSearchResult;
+import com.zlatko.packageselfservicebackend.model.dtos.Receiver;
+import com.zlatko.packageselfservicebackend.model.dtos.ReceiverSearchResult;
 import com.zlatko.packageselfservicebackend.model.dtos.RecipientDetails;
+import com.zlatko.packageselfservicebackend.model.dtos.enums.PackageNameMatch;
 import com.zlatko.packageselfservicebackend.model.dtos.enums.PackageStatus;
 import com.zlatko.packageselfservicebackend.model.exceptions.DuplicatePackageNameException;
+import com.zlatko.packageselfservicebackend.services.PackageListCache;
 import com.zlatko.packageselfservicebackend.services.PackageSelfServiceService;
+import com.zlatko.packageselfservicebackend.services.PackageWatcher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import lombok.SneakyThrows;
@@ -19,22 +28,28 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
+import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+// The ServerTimingFilter records the statements per request, the list cache its hits and misses
+@Import({SimpleMeterRegistry.class, PackageListCache.class})
 @WebMvcTest(PackageSelfServiceController.class)
 class PackageSelfServiceControllerTest {
     private final static ObjectMapper jackson = new ObjectMapper().registerModule(new JavaTimeModule());
@@ -45,6 +60,9 @@ class PackageSelfServiceControllerTest {
     @MockBean
     private PackageSelfServiceService service;
 
+    @MockBean
+    private ReceiverDirectory receiverDirectory;
+
     @Nested
     class SubmitPackageTests {
 
@@ -54,7 +72,7 @@ class PackageSelfServiceControllerTest {
             // Given
             Package packageDTO = initValidPackage();
             UUID submittedPackageId = UUID.randomUUID();
-            when(service.submitPackage(any(Package.class))).thenReturn(submittedPackageId);
+            when(service.submitPackage(any(Package.class), any())).thenReturn(submittedPackageId);
 
             // When + Then
             mockMvc.perform(post("/api/package-self-service")
@@ -63,7 +81,7 @@ class PackageSelfServiceControllerTest {
                     .andExpect(status().isCreated())
                     .andExpect(header().string("Location", "http://localhost/api/package-self-service/" + submittedPackageId));
 
-            verify(service).submitPackage(any(Package.class));  // Verify service method was called
+            verify(service).submitPackage(any(Package.class), any());  // Verify service method was called
         }
 
         @SneakyThrows
@@ -79,12 +97,35 @@ class PackageSelfServiceControllerTest {
                     .andExpect(status().isBadRequest()); // Expect 400 Bad Request for invalid data
         }
 
+        @SneakyThrows
+        @Test
+        void should_pass_the_idempotency_key_and_reject_an_invalid_one() {
+            // Given
+            Package packageDTO = initValidPackage();
+            when(service.submitPackage(any(Package.class), eq("kiosk-1-42"))).thenReturn(UUID.randomUUID());
+
+            // When + Then
+            mockMvc.perform(post("/api/package-self-service")
+                            .header("Idempotency-Key", "kiosk-1-42")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(jackson.writeValueAsString(packageDTO)))
+                    .andExpect(status().isCreated());
+            mockMvc.perform(post("/api/package-self-service")
+                            .header("Idempotency-Key", "not a key!")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(jackson.writeValueAsString(packageDTO)))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.errors[0].field").value("idempotencyKey"));
+
+            verify(service, times(1)).submitPackage(any(Package.class), eq("kiosk-1-42"));
+        }
+
         @SneakyThrows
         @Test
         void should_return_500_when_service_throws_runtime_exception() {
             // Given
             Package packageDTO = initValidPackage();
-            when(service.submitPackage(any(Package.class))).thenThrow(new RuntimeException("Service error"));
+            when(service.submitPackage(any(Package.class), any())).thenThrow(new RuntimeException("Service error"));
 
             // When + Then
             mockMvc.perform(post("/api/package-self-service")
@@ -94,7 +135,7 @@ class PackageSelfServiceControllerTest {
                     .andExpect(jsonPath("$.status").value(HttpStatus.INTERNAL_SERVER_ERROR.value()))
                     .andExpect(jsonPath("$.message").value("An unexpected error occurred"));
 
-            verify(service).submitPackage(any(Package.class));  // Ensure service was called
+            verify(service).submitPackage(any(Package.class), any());  // Ensure service was called
         }
 
         @SneakyThrows
@@ -102,7 +143,7 @@ class PackageSelfServiceControllerTest {
         void should_return_409_when_service_throws_DuplicatePackageNameException() {
             // Given
             Package packageDTO = initValidPackage();
-            when(service.submitPackage(any(Package.class))).thenThrow(new DuplicatePackageNameException(packageDTO.packageName()));
+            when(service.submitPackage(any(Package.class), any())).thenThrow(new DuplicatePackageNameException(packageDTO.packageName()));
 
             // When + Then
             mockMvc.perform(post("/api/package-self-service")
@@ -112,7 +153,7 @@ class PackageSelfServiceControllerTest {
                     .andExpect(jsonPath("$.status").value(HttpStatus.CONFLICT.value()))
                     .andExpect(jsonPath("$.message").value("Package name '%s' already exists. Please provide a unique name.".formatted(packageDTO.packageName())));
 
-            verify(service).submitPackage(any(Package.class));  // Ensure service was called
+            verify(service).submitPackage(any(Package.class), any());  // Ensure service was called
         }
     }
 
@@ -126,7 +167,7 @@ class PackageSelfServiceControllerTest {
             String packageId = UUID.randomUUID().toString();
             String senderId = UUID.randomUUID().toString();
             PackageDetails packageDetails = initDummyPackageDetails(packageId);
-            when(service.getPackageDetails(anyString(), anyString())).thenReturn(packageDetails);
+            when(service.getPackageDetails(anyString(), anyString(), anyBoolean(), anySet())).thenReturn(packageDetails);
 
             // When + Then
             mockMvc.perform(get("/api/package-self-service/{packageId}", packageId)
@@ -134,10 +175,11 @@ class PackageSelfServiceControllerTest {
                     .andExpect(status().isOk())
                     .andExpect(jsonPath("$.packageId").value(packageId))
                     .andExpect(jsonPath("$.packageName").value("package1"))
-                    .andExpect(jsonPath("$.status").value("IN_PROGRESS"));
+                    .andExpect(jsonPath("$.status").value("IN_PROGRESS"))
+                    .andExpect(header().string("Server-Timing", startsWith("app;dur=")));
 
 
-            verify(service).getPackageDetails(packageId, senderId);
+            verify(service).getPackageDetails(packageId, senderId, false, Set.of());
         }
 
         @SneakyThrows
@@ -159,7 +201,7 @@ class PackageSelfServiceControllerTest {
             // Given
             String senderId = UUID.randomUUID().toString();
             String packageId = UUID.randomUUID().toString();
-            when(service.getPackageDetails(anyString(), anyString())).thenThrow(new RuntimeException("Service error"));
+            when(service.getPackageDetails(anyString(), anyString(), anyBoolean(), anySet())).thenThrow(new RuntimeException("Service error"));
 
             // When + Then
             mockMvc.perform(get("/api/package-self-service/{packageId}", packageId)
@@ -168,7 +210,59 @@ class PackageSelfServiceControllerTest {
                     .andExpect(jsonPath("$.status").value(HttpStatus.INTERNAL_SERVER_ERROR.value()))
                     .andExpect(jsonPath("$.message").value("An unexpected error occurred"));
 
-            verify(service).getPackageDetails(packageId, senderId);  // Verify service method was called
+            verify(service).getPackageDetails(packageId, senderId, false, Set.of());  // Verify service method was called
+        }
+    }
+
+    @Nested
+    class WatchPackageDetailsTests {
+
+        @SneakyThrows
+        @Test
+        void should_return_200_and_the_new_version_when_the_package_changed() {
+            // Given
+            String packageId = UUID.randomUUID().toString();
+            String senderId = UUID.randomUUID().toString();
+            PackageDetails packageDetails = initDummyPackageDetails(packageId);
+            when(service.watchPackageDetails(anyString(), anyString(), any(), any())).thenReturn(Optional.of(packageDetails));
+
+            // When + Then
+            mockMvc.perform(get("/api/package-self-service/{packageId}/watch", packageId)
+                            .param("senderId", senderId)
+                            .param("lastSeen", "\"0000abcd0000abcd0000abcd0000abcd0000abcd0000abcd0000abcd0000abcd\""))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.status").value("IN_PROGRESS"))
+                    .andExpect(header().string("ETag", "\"%s\"".formatted(PackageWatcher.version(packageDetails))));
+
+            verify(service).watchPackageDetails(packageId, senderId, "0000abcd0000abcd0000abcd0000abcd0000abcd0000abcd0000abcd0000abcd", Duration.ofSeconds(30));
+        }
+
+        @SneakyThrows
+        @Test
+        void should_return_304_when_the_package_did_not_change_within_the_timeout() {
+            // Given
+            String packageId = UUID.randomUUID().toString();
+            when(service.watchPackageDetails(anyString(), anyString(), any(), any())).thenReturn(Optional.empty());
+
+            // When + Then
+            mockMvc.perform(get("/api/package-self-service/{packageId}/watch", packageId)
+                            .param("senderId", UUID.randomUUID().toString())
+                            .param("lastSeen", "0000abcd0000abcd0000abcd0000abcd0000abcd0000abcd0000abcd0000abcd")
+                            .param("timeout", "5"))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string("ETag", "\"0000abcd0000abcd0000abcd0000abcd0000abcd0000abcd0000abcd0000abcd\""));
+        }
+
+        @SneakyThrows
+        @Test
+        void should_return_400_when_the_timeout_is_too_long() {
+            // When + Then
+            mockMvc.perform(get("/api/package-self-service/{packageId}/watch", UUID.randomUUID())
+                            .param("senderId", UUID.randomUUID().toString())
+                            .param("timeout", "61"))
+                    .andExpect(status().isBadRequest());
+
+            verifyNoInteractions(service);
         }
     }
 
@@ -181,7 +275,7 @@ class PackageSelfServiceControllerTest {
             // Given
             String senderId = UUID.randomUUID().toString();
             List<PackageDetails> packageDetailsList = List.of(initDummyPackageDetails(UUID.randomUUID().toString()));
-            when(service.listPackageDetails(anyString(), any())).thenReturn(packageDetailsList);
+            when(service.listPackageDetails(anyString(), any(), anyBoolean(), anySet())).thenReturn(packageDetailsList);
 
             // When + Then
             mockMvc.perform(get("/api/package-self-service")
@@ -189,7 +283,7 @@ class PackageSelfServiceControllerTest {
                     .andExpect(status().isOk())
                     .andExpect(jsonPath("$.length()").value(packageDetailsList.size()));
 
-            verify(service).listPackageDetails(senderId, Optional.empty());
+            verify(service).listPackageDetails(senderId, Optional.empty(), false, Set.of());
         }
 
         @SneakyThrows
@@ -199,7 +293,7 @@ class PackageSelfServiceControllerTest {
             String senderId = UUID.randomUUID().toString();
             Optional<PackageStatus> status = Optional.of(PackageStatus.DELIVERED);
             List<PackageDetails> filteredPackages = List.of(initDummyPackageDetails(UUID.randomUUID().toString()));
-            when(service.listPackageDetails(anyString(), eq(status))).thenReturn(filteredPackages);
+            when(service.listPackageDetails(anyString(), eq(status), anyBoolean(), anySet())).thenReturn(filteredPackages);
 
             // When + Then
             mockMvc.perform(get("/api/package-self-service")
@@ -208,7 +302,60 @@ class PackageSelfServiceControllerTest {
                     .andExpect(status().isOk())
                     .andExpect(jsonPath("$.length()").value(filteredPackages.size()));
 
-            verify(service).listPackageDetails(senderId, status);
+            verify(service).listPackageDetails(senderId, status, false, Set.of());
+        }
+
+        @SneakyThrows
+        @Test
+        void should_serialize_only_the_requested_fields() {
+            // Given
+            String senderId = UUID.randomUUID().toString();
+            Set<String> fields = Set.of("packageName", "recipient");
+            List<PackageDetails> packageDetailsList = List.of(initDummyPackageDetails(UUID.randomUUID().toString()));
+            when(service.listPackageDetails(anyString(), any(), anyBoolean(), eq(fields))).thenReturn(packageDetailsList);
+
+            // When + Then
+            mockMvc.perform(get("/api/package-self-service")
+                            .param("senderId", senderId)
+                            .param("fields", "packageName,recipient"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[0].packageName").exists())
+                    .andExpect(jsonPath("$[0].recipient.recipientName").exists())
+                    .andExpect(jsonPath("$[0].packageId").doesNotExist())
+                    .andExpect(jsonPath("$[0].status").doesNotExist());
+        }
+
+        @SneakyThrows
+        @Test
+        void should_serve_a_repeated_list_from_the_cache() {
+            // Given
+            String senderId = UUID.randomUUID().toString();
+            List<PackageDetails> packageDetailsList = List.of(initDummyPackageDetails(UUID.randomUUID().toString()));
+            when(service.listPackageDetails(anyString(), any(), anyBoolean(), anySet())).thenReturn(packageDetailsList);
+
+            // When + Then
+            for (int i = 0; i < 2; i++) {
+                mockMvc.perform(get("/api/package-self-service")
+                                .param("senderId", senderId)
+                                .param("fields", "recipient,packageName"))
+                        .andExpect(status().isOk())
+                        .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                        .andExpect(jsonPath("$[0].packageName").exists());
+            }
+
+            verify(service, times(1)).listPackageDetails(senderId, Optional.empty(), false, Set.of("packageName", "recipient"));
+        }
+
+        @SneakyThrows
+        @Test
+        void should_return_400_when_an_unknown_field_is_requested() {
+            // When + Then
+            mockMvc.perform(get("/api/package-self-service")
+                            .param("senderId", UUID.randomUUID().toString())
+                            .param("fields", "packageName,street"))
+                    .andExpect(status().isBadRequest());
+
+            verifyNoInteractions(service);
         }
 
         @SneakyThrows
@@ -216,7 +363,7 @@ class PackageSelfServiceControllerTest {
         void should_return_500_when_service_throws_runtime_exception() {
             // Given
             String senderId = UUID.randomUUID().toString();
-            when(service.listPackageDetails(anyString(), any())).thenThrow(new RuntimeException("Service error"));
+            when(service.listPackageDetails(anyString(), any(), anyBoolean(), anySet())).thenThrow(new RuntimeException("Service error"));
 
             // When + Then
             mockMvc.perform(get("/api/package-self-service")
@@ -225,7 +372,65 @@ class PackageSelfServiceControllerTest {
                     .andExpect(jsonPath("$.status").value(HttpStatus.INTERNAL_SERVER_ERROR.value()))
                     .andExpect(jsonPath("$.message").value("An unexpected error occurred"));
 
-            verify(service).listPackageDetails(senderId, Optional.empty());
+            verify(service).listPackageDetails(senderId, Optional.empty(), false, Set.of());
+        }
+    }
+
+    @Nested
+    class SearchPackageDetailsTests {
+
+        @SneakyThrows
+        @Test
+        void should_return_200_and_the_first_page_of_matching_packages() {
+            // Given
+            String senderId = UUID.randomUUID().toString();
+            PackageSearchResult packageSearchResult = new PackageSearchResult(List.of(initDummyPackageDetails(UUID.randomUUID().toString())), 0, 20, true);
+            when(service.searchPackageDetails(anyString(), anyString(), any(), anyBoolean(), anyInt(), anyInt(), anySet())).thenReturn(packageSearchResult);
+
+            // When + Then
+            mockMvc.perform(get("/api/package-self-service/search")
+                            .param("senderId", senderId)
+                            .param("name", "box"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.packages.length()").value(1))
+                    .andExpect(jsonPath("$.hasNext").value(true));
+
+            verify(service).searchPackageDetails(senderId, "box", PackageNameMatch.CONTAINS, false, 0, 20, Set.of());
+        }
+
+        @SneakyThrows
+        @Test
+        void should_return_400_when_the_name_is_too_short_or_the_page_too_large() {
+            // When + Then
+            mockMvc.perform(get("/api/package-self-service/search")
+                            .param("senderId", UUID.randomUUID().toString())
+                            .param("name", "bo")
+                            .param("size", "1000"))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.status").value(HttpStatus.BAD_REQUEST.value()))
+                    .andExpect(jsonPath("$.errors.length()").value(2));
+
+            verifyNoInteractions(service);
+        }
+    }
+
+    @Nested
+    class FindReceiversTests {
+
+        @SneakyThrows
+        @Test
+        void should_return_200_and_only_the_rendered_receiver_fields() {
+            // Given
+            ReceiverSearchResult receiverSearchResult = new ReceiverSearchResult(List.of(new Receiver(UUID.randomUUID().toString(), "Bob Smith", "Springfield")), 0, 20, 1);
+            when(receiverDirectory.findByPrefix("bo", 0, 20)).thenReturn(receiverSearchResult);
+
+            // When + Then
+            mockMvc.perform(get("/api/package-self-service/receivers")
+                            .param("prefix", "bo"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.receivers[0].receiverName").value("Bob Smith"))
+                    .andExpect(jsonPath("$.receivers[0].street").doesNotExist())
+                    .andExpect(jsonPath("$.totalReceivers").value(1));
         }
     }
 
@@ -0,0 +1,218 @@
+package com.zlatko.packageselfservicebackend.datasource;
+
+import com.zlatko.packageselfservicebackend.utils.GlobalConstants;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.Cookie;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class ReplicaRoutingDataSourceTest {
+
+    private final DataSource replica0 = mock(DataSource.class);
+    private final DataSource replica1 = mock(DataSource.class);
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0", replica0);
+        replicas.put("replica-1", replica1);
+        routingDataSource = new ReplicaRoutingDataSource(mock(DataSource.class), replicas,
+                Duration.ofSeconds(5), Duration.ofSeconds(1), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Nested
+    class DetermineCurrentLookupKeyTests {
+
+        @Test
+        void should_route_read_write_transactions_to_primary() throws SQLException {
+            // Given
+            givenReplicationLag(replica0, 0);
+            givenReplicationLag(replica1, 0);
+            routingDataSource.checkReplicaLag();
+
+            // When
+            Object lookupKey = routingDataSource.determineCurrentLookupKey();
+
+            // Then
+            assertThat(lookupKey).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+        }
+
+        @Test
+        void should_route_read_only_transactions_round_robin_to_replicas_within_max_lag() throws SQLException {
+            // Given
+            givenReplicationLag(replica0, 100);
+            givenReplicationLag(replica1, 4_000);
+            routingDataSource.checkReplicaLag();
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+            // When
+            Object first = routingDataSource.determineCurrentLookupKey();
+            Object second = routingDataSource.determineCurrentLookupKey();
+
+            // Then
+            assertThat(first).isEqualTo("replica-0");
+            assertThat(second).isEqualTo("replica-1");
+        }
+
+        @Test
+        void should_route_read_only_transactions_to_primary_without_replicas() {
+            // Given: no replica configured at deploy time
+            ReplicaRoutingDataSource primaryOnly = new ReplicaRoutingDataSource(mock(DataSource.class), Map.of(),
+                    Duration.ofSeconds(5), Duration.ofSeconds(1), new SimpleMeterRegistry());
+            primaryOnly.afterPropertiesSet();
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+            // When
+            Object lookupKey = primaryOnly.determineCurrentLookupKey();
+
+            // Then
+            assertThat(lookupKey).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+        }
+
+        @Test
+        void should_skip_lagging_and_unreachable_replicas() throws SQLException {
+            // Given
+            givenReplicationLag(replica0, 6_000);
+            when(replica1.getConnection()).thenThrow(new SQLException("Connection refused"));
+            routingDataSource.checkReplicaLag();
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+            // When
+            Object lookupKey = routingDataSource.determineCurrentLookupKey();
+
+            // Then
+            assertThat(lookupKey).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+        }
+
+        @Test
+        void should_route_reads_to_primary_within_read_your_writes_window() throws SQLException {
+            // Given
+            givenReplicationLag(replica0, 0);
+            givenReplicationLag(replica1, 0);
+            routingDataSource.checkReplicaLag();
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+            ReadYourWritesTracker tracker = new ReadYourWritesTracker(Duration.ofSeconds(6));
+            tracker.recordWrite("sender");
+
+            // When
+            Object insideScope;
+            try (var ignored = tracker.routeReads("sender")) {
+                insideScope = routingDataSource.determineCurrentLookupKey();
+            }
+            Object otherSender;
+            try (var ignored = tracker.routeReads("other-sender")) {
+                otherSender = routingDataSource.determineCurrentLookupKey();
+            }
+
+            // Then
+            assertThat(insideScope).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+            assertThat(otherSender).isNotEqualTo(ReplicaRoutingDataSource.PRIMARY);
+            assertThat(ReadYourWritesTracker.isPrimaryRequired()).isFalse();
+        }
+
+        @Test
+        void should_record_a_write_once_its_transaction_committed() throws SQLException {
+            // Given
+            givenReplicationLag(replica0, 0);
+            givenReplicationLag(replica1, 0);
+            routingDataSource.checkReplicaLag();
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest(), response));
+            TransactionSynchronizationManager.initSynchronization();
+            ReadYourWritesTracker tracker = new ReadYourWritesTracker(Duration.ofSeconds(6));
+            tracker.recordWrite("sender");
+
+            // When
+            Object beforeCommit;
+            try (var ignored = tracker.routeReads("sender")) {
+                beforeCommit = routingDataSource.determineCurrentLookupKey();
+            }
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            Object afterCommit;
+            try (var ignored = tracker.routeReads("sender")) {
+                afterCommit = routingDataSource.determineCurrentLookupKey();
+            }
+
+            // Then
+            assertThat(beforeCommit).isNotEqualTo(ReplicaRoutingDataSource.PRIMARY);
+            assertThat(afterCommit).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+            assertThat(response.getHeader(HttpHeaders.SET_COOKIE)).startsWith(GlobalConstants.LAST_WRITE_COOKIE + "=")
+                    .contains("Max-Age=6");
+        }
+
+        @Test
+        void should_route_reads_to_primary_after_a_write_through_another_instance() throws SQLException {
+            // Given: the client's last write was committed by another instance a second ago
+            givenReplicationLag(replica0, 0);
+            givenReplicationLag(replica1, 0);
+            routingDataSource.checkReplicaLag();
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+            ReadYourWritesTracker tracker = new ReadYourWritesTracker(Duration.ofSeconds(6));
+            MockHttpServletRequest request = new MockHttpServletRequest();
+            request.setCookies(new Cookie(GlobalConstants.LAST_WRITE_COOKIE, Long.toString(System.currentTimeMillis() - 1000)));
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+            // When
+            Object recentWrite;
+            try (var ignored = tracker.routeReads("sender")) {
+                recentWrite = routingDataSource.determineCurrentLookupKey();
+            }
+            request.setCookies(new Cookie(GlobalConstants.LAST_WRITE_COOKIE, Long.toString(System.currentTimeMillis() - 60_000)));
+            Object oldWrite;
+            try (var ignored = tracker.routeReads("sender")) {
+                oldWrite = routingDataSource.determineCurrentLookupKey();
+            }
+
+            // Then
+            assertThat(recentWrite).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+            assertThat(oldWrite).isNotEqualTo(ReplicaRoutingDataSource.PRIMARY);
+        }
+    }
+
+    private static void givenReplicationLag(DataSource replica, double lagMillis) throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(replica.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getDouble(1)).thenReturn(lagMillis);
+    }
+}
@@ -0,0 +1,81 @@
+package com.zlatko.packageselfservicebackend.diagnostics;
+
+import com.zlatko.packageselfservicebackend.utils.GlobalConstants;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.Resource;
+import org.springframework.util.unit.DataSize;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class FlightRecordingEndpointTest {
+
+    private final FlightRecordingEndpoint endpoint = new FlightRecordingEndpoint("default", Duration.ofMinutes(5), DataSize.ofMegabytes(50));
+
+    @AfterEach
+    void stopRecording() {
+        endpoint.stop();
+        MDC.clear();
+    }
+
+    @Nested
+    class RecordingTests {
+
+        @Test
+        void should_dump_the_domain_events_with_their_correlation_id_and_outcome() throws IOException {
+            // Given
+            assertThat(endpoint.start().recording()).isTrue();
+            MDC.put(GlobalConstants.X_CORRELATION_ID, "correlation-1");
+
+            // When
+            DomainEvents.SubmitPackage submitted = new DomainEvents.SubmitPackage("sender-1", "recipient-1", "package-1", null);
+            DomainEvents.record(submitted, () -> {
+                submitted.setPackageId("package-id-1");
+                return null;
+            });
+            assertThatThrownBy(() -> DomainEvents.record(new DomainEvents.SubmitPackage("sender-1", "recipient-1", "package-2", null), () -> {
+                throw new IllegalStateException("Shipping service unavailable");
+            })).isInstanceOf(IllegalStateException.class);
+            WebEndpointResponse<Resource> dump = endpoint.dump();
+
+            // Then
+            Path file = dump.getBody().getFile().toPath();
+            try {
+                List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                        .filter(event -> event.getEventType().getName().equals("com.zlatko.packageselfservice.SubmitPackage"))
+                        .toList();
+                assertThat(events).hasSize(2);
+                assertThat(events).allMatch(event -> event.getString("correlationId").equals("correlation-1"));
+                assertThat(events).extracting(event -> event.getString("packageName") + ":" + event.getString("outcome"))
+                        .containsExactlyInAnyOrder("package-1:success", "package-2:IllegalStateException");
+                assertThat(events).anyMatch(event -> "package-id-1".equals(event.getString("packageId")));
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+
+        @Test
+        void should_return_not_found_when_not_recording() {
+            // When
+            WebEndpointResponse<Resource> dump = endpoint.dump();
+
+            // Then
+            assertThat(dump.getStatus()).isEqualTo(WebEndpointResponse.STATUS_NOT_FOUND);
+            assertThat(endpoint.stop().recording()).isFalse();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.zlatko.packageselfservicebackend.diagnostics;
+
+import com.zlatko.packageselfservicebackend.utils.GlobalConstants;
+import com.zlatko.packageselfservicebackend.utils.ServerTiming;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.List;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class QueryRecorderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        ServerTiming.clear();
+        MDC.clear();
+    }
+
+    @Nested
+    class NormalizeTests {
+
+        @Test
+        void should_replace_literals_and_in_lists_but_not_identifiers() {
+            // When
+            String normalized = QueryRecorder.normalize("""
+                    select p1_0.id, p1_0.package_name from package p1_0
+                    where p1_0.sender_id = 'c1a5''a8e8' and p1_0.weight_in_grams > 1.5 and p1_0.status in (?, ?,?) limit 10""");
+
+            // Then
+            assertThat(normalized).isEqualTo("select p1_0.id, p1_0.package_name from package p1_0"
+                    + " where p1_0.sender_id = ? and p1_0.weight_in_grams > ? and p1_0.status in (?) limit ?");
+        }
+    }
+
+    @Nested
+    class InstrumentedDataSourceTests {
+
+        @Test
+        void should_record_statements_by_normalized_sql_and_count_them_per_request() throws SQLException {
+            // Given
+            QueryRecorder queryRecorder = new QueryRecorder(meterRegistry, Duration.ofHours(1), 10, 500);
+            DataSource dataSource = new InstrumentedDataSource(dataSource(mock(PreparedStatement.class)), () -> queryRecorder);
+            ServerTiming serverTiming = ServerTiming.start();
+
+            // When
+            try (Connection connection = dataSource.getConnection()) {
+                connection.prepareStatement("select * from package where id in (1, 2)").executeQuery();
+                connection.prepareStatement("select * from package where id in (3)").executeQuery();
+            }
+
+            // Then
+            assertThat(queryRecorder.statements()).singleElement().satisfies(statement -> {
+                assertThat(statement.sql).isEqualTo("select * from package where id in (?)");
+                assertThat(statement.operation).isEqualTo("select");
+                assertThat(statement.count.sum()).isEqualTo(2);
+            });
+            assertThat(meterRegistry.get(GlobalConstants.METRIC_JDBC_STATEMENTS).tag(GlobalConstants.METRIC_TAG_OPERATION, "select").timer().count())
+                    .isEqualTo(2);
+            assertThat(serverTiming.count(GlobalConstants.STAGE_SQL)).isEqualTo(2);
+            assertThat(queryRecorder.slowQueries()).isEmpty();
+        }
+
+        @Test
+        void should_keep_slow_queries_with_their_parameter_types_and_correlation_id() throws SQLException {
+            // Given: every statement is slow, the ring buffer keeps the last 2
+            QueryRecorder queryRecorder = new QueryRecorder(meterRegistry, Duration.ZERO, 2, 500);
+            PreparedStatement statement = mock(PreparedStatement.class);
+            when(statement.executeUpdate()).thenReturn(1).thenThrow(new SQLException("duplicate key"));
+            DataSource dataSource = new InstrumentedDataSource(dataSource(statement), () -> queryRecorder);
+            MDC.put(GlobalConstants.X_CORRELATION_ID, "correlation-1");
+
+            // When
+            try (Connection connection = dataSource.getConnection()) {
+                connection.prepareStatement("select 1").executeQuery();
+                PreparedStatement insert = connection.prepareStatement("insert into package (package_name, weight_in_grams) values (?, ?)");
+                insert.setString(1, "package-1");
+                insert.setObject(2, 100L);
+                insert.executeUpdate();
+                insert.setNull(2, Types.BIGINT);
+                assertThatThrownBy(insert::executeUpdate).isInstanceOf(SQLException.class);
+            }
+
+            // Then
+            List<QueryRecorder.SlowQuery> slowQueries = queryRecorder.slowQueries();
+            assertThat(slowQueries).extracting(QueryRecorder.SlowQuery::parameterTypes)
+                    .containsExactly(List.of("String", "null"), List.of("String", "Long"));
+            assertThat(slowQueries).extracting(QueryRecorder.SlowQuery::failed).containsExactly(true, false);
+            assertThat(slowQueries).allMatch(slowQuery -> slowQuery.correlationId().equals("correlation-1"));
+        }
+
+        private DataSource dataSource(PreparedStatement statement) throws SQLException {
+            Connection connection = mock(Connection.class);
+            when(connection.prepareStatement(anyString())).thenReturn(statement);
+            DataSource dataSource = mock(DataSource.class);
+            when(dataSource.getConnection()).thenReturn(connection);
+            return dataSource;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.zlatko.packageselfservicebackend.diagnostics;
+
+import com.zlatko.packageselfservicebackend.diagnostics.VirtualThreadPinningEndpoint.PinningReport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class VirtualThreadPinningEndpointTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final VirtualThreadPinningEndpoint endpoint = new VirtualThreadPinningEndpoint(meterRegistry, Duration.ofMillis(5), 256);
+
+    @BeforeEach
+    void startRecording() {
+        endpoint.start();
+    }
+
+    @AfterEach
+    void stopRecording() {
+        endpoint.stop();
+    }
+
+    @Nested
+    class PinningTests {
+
+        @Test
+        void should_aggregate_the_pinning_events_by_stack_trace() throws InterruptedException {
+            // Given
+            Object lock = new Object();
+
+            // When: blocking inside a synchronized block pins the virtual thread to its carrier
+            for (int i = 0; i < 2; i++) {
+                Thread.ofVirtual().start(() -> {
+                    synchronized (lock) {
+                        sleep(Duration.ofMillis(25));
+                    }
+                }).join();
+            }
+
+            // Then: the events are streamed about once a second
+            PinningReport report = awaitPinnedEvents(2);
+            assertThat(report.recording()).isTrue();
+            assertThat(report.pinnedEvents()).isEqualTo(2);
+            assertThat(report.topStackTraces()).hasSize(1);
+            assertThat(report.topStackTraces().getFirst().count()).isEqualTo(2);
+            assertThat(report.topStackTraces().getFirst().maxMillis()).isGreaterThanOrEqualTo(20); // JFR measures slightly less than the sleep
+            assertThat(report.topStackTraces().getFirst().stackTrace())
+                    .anyMatch(frame -> frame.startsWith(VirtualThreadPinningEndpointTest.class.getName()));
+            assertThat(meterRegistry.timer("jvm.threads.virtual.pinned").count()).isEqualTo(2);
+        }
+
+        @Test
+        void should_report_the_carrier_pool() throws InterruptedException {
+            // When
+            endpoint.probeSchedulingDelay();
+            Thread.ofVirtual().start(() -> { }).join();
+
+            // Then
+            PinningReport report = endpoint.pinning(null);
+            assertThat(report.carriers().parallelism()).isEqualTo(Runtime.getRuntime().availableProcessors());
+            assertThat(report.carriers().live()).isPositive();
+            assertThat(meterRegistry.get("jvm.threads.virtual.carriers").gauge().value()).isPositive();
+        }
+    }
+
+    private PinningReport awaitPinnedEvents(long pinnedEvents) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        PinningReport report = endpoint.pinning(null);
+        while (report.pinnedEvents() < pinnedEvents && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+            report = endpoint.pinning(null);
+        }
+        return report;
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.zlatko.packageselfservicebackend.directory;
+
+import com.zlatko.packageselfservicebackend.model.dtos.Receiver;
+import com.zlatko.packageselfservicebackend.model.dtos.ReceiverSearchResult;
+import java.util.List;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class ReceiverIndexTest {
+
+    private final ReceiverIndex receiverIndex = new ReceiverIndex(List.of(
+            new Receiver("1", "Bob Smith", "Springfield"),
+            new Receiver("2", "Zoë  Müller", "Zurich"),
+            new Receiver("3", "bobby Tables", "Springfield"),
+            new Receiver("4", "Alice Jones", "Shelbyville"),
+            new Receiver("5", "Bob Brown", "Springfield")
+    ));
+
+    @Nested
+    class FindByPrefixTests {
+
+        @Test
+        void should_find_the_names_starting_with_the_prefix_in_name_order() {
+            // When
+            ReceiverSearchResult result = receiverIndex.findByPrefix("BOB", 0, 10);
+
+            // Then
+            assertThat(result.receivers()).extracting(Receiver::receiverId).containsExactly("5", "1", "3");
+            assertThat(result.totalReceivers()).isEqualTo(3);
+        }
+
+        @Test
+        void should_ignore_diacritics_and_repeated_whitespace() {
+            // When
+            ReceiverSearchResult result = receiverIndex.findByPrefix("zoe mu", 0, 10);
+
+            // Then
+            assertThat(result.receivers()).extracting(Receiver::receiverId).containsExactly("2");
+        }
+
+        @Test
+        void should_page_through_the_matching_names() {
+            // When
+            ReceiverSearchResult secondPage = receiverIndex.findByPrefix("bob", 1, 2);
+            ReceiverSearchResult pastTheEnd = receiverIndex.findByPrefix("bob", 5, 2);
+
+            // Then
+            assertThat(secondPage.receivers()).extracting(Receiver::receiverId).containsExactly("3");
+            assertThat(pastTheEnd.receivers()).isEmpty();
+            assertThat(pastTheEnd.totalReceivers()).isEqualTo(3);
+        }
+
+        @Test
+        void should_list_all_receivers_for_an_empty_prefix_and_none_for_an_unknown_one() {
+            // When + Then
+            assertThat(receiverIndex.findByPrefix("", 0, 10).receivers()).extracting(Receiver::receiverId).containsExactly("4", "5", "1", "3", "2");
+            assertThat(receiverIndex.findByPrefix("carol", 0, 10).totalReceivers()).isZero();
+        }
+    }
+}
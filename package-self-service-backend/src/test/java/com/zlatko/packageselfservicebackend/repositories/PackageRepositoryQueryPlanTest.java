@@ -0,0 +1,292 @@
+package com.zlatko.packageselfservicebackend.repositories;
+
+import com.zlatko.packageselfservicebackend.model.entities.EmployeeEntity;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Plan regression tests of the PackageRepository (and SenderPackageSummaryRepository) queries against a throwaway PostgreSQL with realistic volumes. <br>
+ * The SQL generated by Hibernate is recorded and explained with the actual parameter values, so a changed query
+ * or a dropped index falling back to sequential scans fails the build. Skipped without Docker.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.zlatko.packageselfservicebackend.repositories.PackageRepositoryQueryPlanTest$RecordingStatementInspector")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // the repository methods run in their own read-only transactions
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class PackageRepositoryQueryPlanTest {
+
+    private static final int EMPLOYEES = 500;
+    private static final int PACKAGES = 100_000;
+    private static final int ARCHIVED_PACKAGES = 50_000;
+    // A sender with a long history (e.g. a kiosk registering on behalf of a team), searching by name is its main use case
+    private static final int FREQUENT_SENDER_PACKAGES = 20_000;
+    private static final Pattern PARTITION = Pattern.compile("packages_p\\d{6}");
+    // Empty partitions (e.g. the ones created for the next months) are estimated at zero cost and scanned sequentially
+    private static final Pattern NON_EMPTY_SEQUENTIAL_SCAN = Pattern.compile("Seq Scan on \\S+ .*cost=[\\d.]+\\.\\.(?!0\\.00 )");
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:17.0");
+
+    @Autowired
+    private PackageRepository packageRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private SenderPackageSummaryRepository senderPackageSummaryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private UUID frequentSenderId;
+    private EmployeeEntity sender;
+    private UUID packageId;
+    private LocalDateTime dateOfRegistration;
+
+    @BeforeAll
+    void seed() {
+        // A year of packages spread over the monthly partitions, and two more years in the archive
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.execute("SELECT create_packages_partitions((CURRENT_DATE - INTERVAL '1 year')::DATE, 3)");
+            jdbcTemplate.update("""
+                    INSERT INTO employees (id, name, street, city, state, postal_code, country)
+                    SELECT gen_random_uuid(), 'Employee ' || i, i || ' Main St', 'Springfield', 'IL', '62704', 'USA'
+                    FROM generate_series(1, ?) i""", EMPLOYEES);
+            for (String table : List.of("packages", "packages_archive")) {
+                jdbcTemplate.update("""
+                        INSERT INTO %s (id, package_name, weight_in_grams, sender_id, receiver_id, date_of_registration, downstream_order_url)
+                        SELECT gen_random_uuid(), 'Package ' || i, 100 + i %% 10000, employee.ids[1 + i %% ?], employee.ids[1 + (i + 1) %% ?],
+                               now() - ? * random() * INTERVAL '1 year' - ? * INTERVAL '1 year', 'http://localhost:8443/shippingOrders/' || i
+                        FROM generate_series(1, ?) i, (SELECT array_agg(id) AS ids FROM employees) employee""".formatted(table),
+                        EMPLOYEES, EMPLOYEES, table.equals("packages") ? 1 : 2, table.equals("packages") ? 0 : 1,
+                        table.equals("packages") ? PACKAGES : ARCHIVED_PACKAGES);
+            }
+            frequentSenderId = jdbcTemplate.queryForObject("""
+                    INSERT INTO employees (id, name, street, city, state, postal_code, country)
+                    VALUES (gen_random_uuid(), 'Frequent Sender', '1 Main St', 'Springfield', 'IL', '62704', 'USA') RETURNING id""", UUID.class);
+            jdbcTemplate.update("""
+                    INSERT INTO packages (id, package_name, weight_in_grams, sender_id, receiver_id, date_of_registration, downstream_order_url)
+                    SELECT gen_random_uuid(), 'Parcel ' || i, 100 + i % 10000, ?, (SELECT min(id::TEXT)::UUID FROM employees),
+                           now() - random() * INTERVAL '1 year', 'http://localhost:8443/shippingOrders/' || i
+                    FROM generate_series(1, ?) i""", frequentSenderId, FREQUENT_SENDER_PACKAGES);
+            // Observed states: a third of the packages delivered, the others expected within the next month
+            jdbcTemplate.update("""
+                    UPDATE packages SET status = (ARRAY['IN_PROGRESS', 'SENT', 'DELIVERED'])[1 + floor(random() * 3)::INT],
+                                        expected_delivery_date = CURRENT_DATE + floor(random() * 30)::INT""");
+            // Move the bulk inserted GIN entries from the pending lists into the indexes, like (auto)vacuum does
+            jdbcTemplate.queryForList("""
+                    SELECT gin_clean_pending_list(pg_index.indexrelid) FROM pg_index
+                    JOIN pg_class ON pg_class.oid = pg_index.indexrelid JOIN pg_am ON pg_am.oid = pg_class.relam
+                    WHERE pg_am.amname = 'gin' AND pg_class.relkind = 'i'""");
+            jdbcTemplate.execute("ANALYZE");
+        });
+    }
+
+    @BeforeEach
+    void setUp() {
+        var seededPackage = jdbcTemplate.queryForMap("SELECT id, sender_id, date_of_registration FROM packages WHERE sender_id <> ? LIMIT 1", frequentSenderId);
+        sender = employeeRepository.getReferenceById((UUID) seededPackage.get("sender_id"));
+        packageId = (UUID) seededPackage.get("id");
+        dateOfRegistration = ((Timestamp) seededPackage.get("date_of_registration")).toLocalDateTime();
+        RecordingStatementInspector.STATEMENTS.clear();
+    }
+
+    @Nested
+    class PackagesTests {
+
+        @Test
+        void should_read_the_senders_packages_from_the_sender_index_of_every_partition() {
+            // When
+            packageRepository.findBySenderId(sender.getId());
+            String plan = explainFirstStatement(sender.getId());
+
+            // Then
+            assertThat(plan).contains("sender_id_date_of_registration_idx");
+            assertThat(sequentialScans(plan)).isEmpty();
+        }
+
+        @Test
+        void should_look_the_package_up_by_primary_key() {
+            // When
+            packageRepository.findByIdAndSenderId(packageId, sender.getId());
+            String plan = explainFirstStatement(packageId, sender.getId());
+
+            // Then
+            assertThat(plan).contains("_pkey");
+            assertThat(sequentialScans(plan)).isEmpty();
+        }
+
+        @Test
+        void should_only_touch_the_partitions_around_the_registration_date() {
+            // When
+            packageRepository.findByIdAndSenderIdAndDateOfRegistrationBetween(packageId, sender.getId(), dateOfRegistration.minusDays(1), dateOfRegistration.plusDays(1));
+            String plan = explainFirstStatement(packageId, sender.getId(), dateOfRegistration.minusDays(1), dateOfRegistration.plusDays(1));
+
+            // Then
+            assertThat(plan).contains("Index Scan");
+            assertThat(sequentialScans(plan)).isEmpty();
+            assertThat(partitions(plan)).hasSizeBetween(1, 2);
+        }
+    }
+
+    @Nested
+    class SearchTests {
+
+        @Test
+        void should_search_a_long_package_history_in_the_trigram_index_of_every_partition() {
+            // When
+            packageRepository.searchBySenderIdAndPackageName(frequentSenderId, "%rcel 123%", false, PageRequest.of(0, 20));
+            String plan = explainFirstStatement(frequentSenderId, "%rcel 123%", false, frequentSenderId, "%rcel 123%", 21);
+
+            // Then
+            assertThat(plan).contains("sender_id_package_name_idx").doesNotContain("sender_id_date_of_registration_idx");
+            assertThat(sequentialScans(plan)).isEmpty();
+        }
+
+        @Test
+        void should_search_the_archived_package_names_in_the_trigram_index() {
+            // When
+            packageRepository.searchBySenderIdAndPackageName(sender.getId(), "Package 12%", true, PageRequest.of(0, 20));
+            String plan = explainFirstStatement(sender.getId(), "Package 12%", true, sender.getId(), "Package 12%", 21);
+
+            // Then
+            assertThat(plan).contains("packages_archive_sender_id_package_name_trgm_idx");
+            assertThat(sequentialScans(plan)).isEmpty();
+        }
+    }
+
+    @Nested
+    class ShippingOrderChangesTests {
+
+        @Test
+        void should_match_the_changed_shipping_orders_in_the_shipping_order_id_index_of_every_partition() {
+            // When
+            packageRepository.findByShippingOrderIds(List.of("123", "4567"));
+            String plan = explainFirstStatement("123", "4567");
+
+            // Then
+            assertThat(plan).contains("_substring_idx"); // the partition indexes are named after the expression
+            assertThat(sequentialScans(plan)).isEmpty();
+        }
+    }
+
+    @Nested
+    class SenderPackageSummaryTests {
+
+        @Test
+        void should_recompute_the_next_expected_delivery_from_the_undelivered_packages_index_of_every_partition() {
+            // Given
+            LocalDate expectedDeliveryDate = LocalDate.now();
+            LocalDateTime actualDeliveryDateTime = LocalDateTime.now();
+
+            // When: the package defining the sender's next expected delivery got delivered
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                senderPackageSummaryRepository.applyPackageChange(frequentSenderId, "SENT", "DELIVERED",
+                        expectedDeliveryDate, expectedDeliveryDate, actualDeliveryDateTime);
+                status.setRollbackOnly();
+            });
+            String plan = explainFirstStatement("SENT", "DELIVERED", "SENT", "DELIVERED", "SENT", "DELIVERED", "DELIVERED",
+                    expectedDeliveryDate, expectedDeliveryDate, expectedDeliveryDate, frequentSenderId, "DELIVERED",
+                    actualDeliveryDateTime, frequentSenderId);
+
+            // Then
+            assertThat(plan).contains("sender_id_expected_delivery_date_idx").doesNotContain("sender_id_date_of_registration_idx");
+            assertThat(sequentialScans(plan)).isEmpty();
+        }
+    }
+
+    @Nested
+    class ArchiveTests {
+
+        @Test
+        void should_read_the_senders_archived_packages_from_the_sender_index() {
+            // When
+            packageRepository.findArchivedBySenderId(sender.getId());
+            String plan = explainFirstStatement(sender.getId());
+
+            // Then
+            assertThat(plan).contains("packages_archive_sender_id_date_of_registration_idx");
+            assertThat(sequentialScans(plan)).isEmpty();
+        }
+    }
+
+    /**
+     * Explains the first statement executed by the repository with the given parameter values, as a prepared
+     * statement, so the plan is the one PostgreSQL chooses for these values.
+     */
+    private String explainFirstStatement(Object... parameters) {
+        assertThat(RecordingStatementInspector.STATEMENTS).isNotEmpty();
+        AtomicInteger parameterIndex = new AtomicInteger();
+        String statement = Pattern.compile("\\?").matcher(RecordingStatementInspector.STATEMENTS.getFirst())
+                .replaceAll(match -> Matcher.quoteReplacement("$" + parameterIndex.incrementAndGet()));
+        String values = Arrays.stream(parameters).map(parameter -> "'" + parameter + "'").collect(Collectors.joining(", "));
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            jdbcTemplate.execute("PREPARE statement_under_test AS " + statement);
+            String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN EXECUTE statement_under_test(" + values + ")", String.class));
+            jdbcTemplate.execute("DEALLOCATE statement_under_test");
+            return plan;
+        });
+    }
+
+    private static List<String> sequentialScans(String plan) {
+        return plan.lines().filter(line -> NON_EMPTY_SEQUENTIAL_SCAN.matcher(line).find()).toList();
+    }
+
+    private static List<String> partitions(String plan) {
+        return PARTITION.matcher(plan).results().map(MatchResult::group).distinct().toList();
+    }
+
+    /**
+     * Records the SQL statements generated by Hibernate.
+     */
+    public static class RecordingStatementInspector implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.zlatko.packageselfservicebackend.services;
+
+import com.zlatko.packageselfservicebackend.model.dtos.enums.PackageStatus;
+import com.zlatko.packageselfservicebackend.model.exceptions.SenderNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class PackageListCacheTest {
+
+    private final PackageListCache packageListCache = new PackageListCache(new SimpleMeterRegistry(), 100, Duration.ofHours(1));
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Nested
+    class GetTests {
+
+        @Test
+        void should_load_a_list_once_per_sender_and_parameters() {
+            // Given
+            UUID senderId = UUID.randomUUID();
+
+            // When
+            packageListCache.get(new PackageListCache.ListKey(senderId, null, false, Set.of("packageName", "status")), this::load);
+            packageListCache.get(new PackageListCache.ListKey(senderId, null, false, Set.of("status", "packageName")), this::load);
+            packageListCache.get(new PackageListCache.ListKey(senderId, PackageStatus.SENT, false, Set.of()), this::load);
+
+            // Then
+            assertThat(loads).hasValue(2);
+        }
+
+        @Test
+        void should_not_cache_a_failed_load() {
+            // Given
+            PackageListCache.ListKey key = new PackageListCache.ListKey(UUID.randomUUID(), null, false, Set.of());
+
+            // When
+            assertThatThrownBy(() -> packageListCache.get(key, () -> {
+                throw new SenderNotFoundException("Sender not found");
+            })).isInstanceOf(SenderNotFoundException.class);
+            packageListCache.get(key, this::load);
+
+            // Then
+            assertThat(loads).hasValue(1);
+        }
+
+        @Test
+        void should_throw_the_failure_of_a_shared_load_to_every_caller() throws InterruptedException {
+            // Given
+            PackageListCache.ListKey key = new PackageListCache.ListKey(UUID.randomUUID(), null, false, Set.of());
+            CountDownLatch loading = new CountDownLatch(1);
+            CountDownLatch failing = new CountDownLatch(1);
+            CompletableFuture<byte[]> firstCaller = CompletableFuture.supplyAsync(() -> packageListCache.get(key, () -> {
+                loading.countDown();
+                awaitQuietly(failing);
+                throw new SenderNotFoundException("Sender not found");
+            }));
+            loading.await();
+            AtomicReference<RuntimeException> secondCallerFailure = new AtomicReference<>();
+            Thread secondCaller = new Thread(() -> {
+                try {
+                    packageListCache.get(key, this::load);
+                } catch (RuntimeException e) {
+                    secondCallerFailure.set(e);
+                }
+            });
+            secondCaller.start();
+            while (secondCaller.getState() != Thread.State.WAITING) {
+                Thread.onSpinWait(); // until it waits for the first caller's load
+            }
+
+            // When
+            failing.countDown();
+            secondCaller.join();
+
+            // Then
+            assertThat(secondCallerFailure.get()).isInstanceOf(SenderNotFoundException.class);
+            assertThatThrownBy(firstCaller::join).hasCauseInstanceOf(SenderNotFoundException.class);
+            assertThat(loads).hasValue(0);
+        }
+
+        private void awaitQuietly(CountDownLatch latch) {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private byte[] load() {
+            return "[%d]".formatted(loads.incrementAndGet()).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @Nested
+    class InvalidateSenderTests {
+
+        @Test
+        void should_only_reload_the_lists_of_the_invalidated_sender() {
+            // Given
+            PackageListCache.ListKey key = new PackageListCache.ListKey(UUID.randomUUID(), null, false, Set.of());
+            PackageListCache.ListKey otherKey = new PackageListCache.ListKey(UUID.randomUUID(), null, false, Set.of());
+            packageListCache.get(key, () -> load("[1]"));
+            packageListCache.get(otherKey, () -> load("[1]"));
+
+            // When
+            packageListCache.invalidateSender(key.senderId());
+
+            // Then
+            assertThat(packageListCache.get(key, () -> load("[2]"))).asString(StandardCharsets.UTF_8).isEqualTo("[2]");
+            assertThat(packageListCache.get(otherKey, () -> load("[2]"))).asString(StandardCharsets.UTF_8).isEqualTo("[1]");
+        }
+
+        @Test
+        void should_drop_the_result_of_a_load_running_during_the_invalidation() {
+            // Given
+            PackageListCache.ListKey key = new PackageListCache.ListKey(UUID.randomUUID(), null, false, Set.of());
+
+            // When: the sender's packages change while the list is being loaded
+            byte[] loaded = packageListCache.get(key, () -> {
+                packageListCache.invalidateSender(key.senderId());
+                return load("[stale]");
+            });
+
+            // Then
+            assertThat(loaded).asString(StandardCharsets.UTF_8).isEqualTo("[stale]");
+            assertThat(packageListCache.get(key, () -> load("[fresh]"))).asString(StandardCharsets.UTF_8).isEqualTo("[fresh]");
+        }
+
+        private byte[] load(String packageList) {
+            loads.incrementAndGet();
+            return packageList.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
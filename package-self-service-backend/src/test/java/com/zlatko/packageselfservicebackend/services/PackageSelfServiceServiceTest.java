@@ -5,8 +5,14 @@ import com.zlatko.packageselfservicebackend.clients.dtos.ShippingOrder;
 import com.zlatko.packageselfservicebackend.clients.dtos.ShippingOrderDetails;
 import com.zlatko.packageselfservicebackend.clients.dtos.enums.OrderStatus;
 import com.zlatko.packageselfservicebackend.clients.dtos.enums.PackageSize;
+import com.zlatko.packageselfservicebackend.datasource.ReadYourWritesTracker;
+import com.zlatko.packageselfservicebackend.idempotency.IdempotencyKeyStore;
 import com.zlatko.packageselfservicebackend.model.dtos.Package;
 import com.zlatko.packageselfservicebackend.model.dtos.PackageDetails;
+import com.zlatko.packageselfservicebackend.model.dtos.PackageSearchResult;
+import com.zlatko.packageselfservicebackend.model.dtos.PackageSummary;
+import com.zlatko.packageselfservicebackend.model.dtos.enums.PackageNameMatch;
+import com.zlatko.packageselfservicebackend.model.dtos.enums.PackageStatus;
 import com.zlatko.packageselfservicebackend.model.entities.EmployeeEntity;
 import com.zlatko.packageselfservicebackend.model.entities.PackageEntity;
 import com.zlatko.packageselfservicebackend.model.exceptions.PackageNotFoundException;
@@ -14,21 +20,34 @@ import com.zlatko.packageselfservicebackend.model.exceptions.RecipientNotFoundEx
 import com.zlatko.packageselfservicebackend.model.exceptions.SenderNotFoundException;
 import com.zlatko.packageselfservicebackend.repositories.EmployeeRepository;
 import com.zlatko.packageselfservicebackend.repositories.PackageRepository;
+import com.zlatko.packageselfservicebackend.utils.GlobalConstants;
+import com.zlatko.packageselfservicebackend.utils.UuidV7;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.function.Executable;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 
 import java.net.URI;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
@@ -46,6 +65,21 @@ class PackageSelfServiceServiceTest {
     @Mock
     private PackageRepository packageRepository;
 
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private PackageSummaryService packageSummaryService;
+
+    @Mock
+    private IdempotencyKeyStore idempotencyKeyStore;
+
+    @Spy
+    private PackageWatcher packageWatcher = new PackageWatcher(new SimpleMeterRegistry(), Duration.ofMillis(10));
+
+    @Spy
+    private ReadYourWritesTracker readYourWritesTracker = new ReadYourWritesTracker(Duration.ofSeconds(5));
+
     private EmployeeEntity sender;
     private EmployeeEntity recipient;
     private Package packageDTO;
@@ -105,19 +139,54 @@ class PackageSelfServiceServiceTest {
             // Given
             when(employeeRepository.findById(sender.getId())).thenReturn(Optional.of(sender));
             when(employeeRepository.findById(recipient.getId())).thenReturn(Optional.of(recipient));
-            when(packageShippingServiceClient.createShippingOrder(any(ShippingOrder.class)))
+            when(packageShippingServiceClient.createShippingOrder(any(ShippingOrder.class), isNull()))
                     .thenReturn(URI.create("http://example.com/order/123"));
             when(packageRepository.save(any(PackageEntity.class))).thenReturn(packageEntity);
 
             // When
-            UUID submittedPackageId = packageSelfServiceService.submitPackage(packageDTO);
+            UUID submittedPackageId = packageSelfServiceService.submitPackage(packageDTO, null);
 
             // Then
             assertNotNull(submittedPackageId);
             assertEquals(packageId, submittedPackageId);
             verify(employeeRepository, times(2)).findById(any(UUID.class)); // Verify sender and recipient lookup
-            verify(packageShippingServiceClient, times(1)).createShippingOrder(any(ShippingOrder.class)); // Verify shipping order creation
+            verify(packageShippingServiceClient, times(1)).createShippingOrder(any(ShippingOrder.class), isNull()); // Verify shipping order creation
             verify(packageRepository, times(1)).save(any(PackageEntity.class)); // Verify package persistence
+            verify(readYourWritesTracker, times(1)).recordWrite(packageDTO.senderId()); // Verify the sender's reads stick to the primary
+            verify(packageSummaryService, times(1)).recordSubmitted(sender.getId()); // Verify the package is counted in the sender's summary
+        }
+
+        @Test
+        void should_return_the_package_of_a_submission_repeated_with_the_same_idempotency_key() {
+            // Given
+            when(idempotencyKeyStore.findPackageId(sender.getId(), "kiosk-1-42")).thenReturn(Optional.of(packageId));
+
+            // When
+            UUID submittedPackageId = packageSelfServiceService.submitPackage(packageDTO, "kiosk-1-42");
+
+            // Then
+            assertEquals(packageId, submittedPackageId);
+            verifyNoInteractions(employeeRepository, packageShippingServiceClient, packageRepository, packageSummaryService); // Nothing is repeated
+        }
+
+        @Test
+        void should_forward_the_idempotency_key_and_return_the_package_of_a_concurrent_submission_with_the_same_key() {
+            // Given
+            UUID concurrentlySubmittedPackageId = UUID.randomUUID();
+            when(idempotencyKeyStore.findPackageId(sender.getId(), "kiosk-1-42")).thenReturn(Optional.empty());
+            when(employeeRepository.findById(sender.getId())).thenReturn(Optional.of(sender));
+            when(employeeRepository.findById(recipient.getId())).thenReturn(Optional.of(recipient));
+            when(packageShippingServiceClient.createShippingOrder(any(ShippingOrder.class), eq(sender.getId() + ":kiosk-1-42")))
+                    .thenReturn(URI.create("http://example.com/order/123"));
+            when(idempotencyKeyStore.claim(eq(sender.getId()), eq("kiosk-1-42"), any(UUID.class))).thenReturn(Optional.of(concurrentlySubmittedPackageId));
+
+            // When
+            UUID submittedPackageId = packageSelfServiceService.submitPackage(packageDTO, "kiosk-1-42");
+
+            // Then
+            assertEquals(concurrentlySubmittedPackageId, submittedPackageId);
+            verify(packageRepository, never()).save(any(PackageEntity.class)); // The concurrent submission persisted the package
+            verify(packageSummaryService, never()).recordSubmitted(any(UUID.class));
         }
 
         @Test
@@ -126,7 +195,7 @@ class PackageSelfServiceServiceTest {
             when(employeeRepository.findById(any(UUID.class))).thenReturn(Optional.empty());
 
             // When
-            Executable executable = () -> packageSelfServiceService.submitPackage(packageDTO);
+            Executable executable = () -> packageSelfServiceService.submitPackage(packageDTO, null);
 
             // Then
             assertThrows(SenderNotFoundException.class, executable);
@@ -139,7 +208,7 @@ class PackageSelfServiceServiceTest {
             when(employeeRepository.findById(recipient.getId())).thenReturn(Optional.empty());
 
             // When
-            Executable executable = () -> packageSelfServiceService.submitPackage(packageDTO);
+            Executable executable = () -> packageSelfServiceService.submitPackage(packageDTO, null);
 
             // Then
             assertThrows(RecipientNotFoundException.class, executable);
@@ -153,9 +222,8 @@ class PackageSelfServiceServiceTest {
         @Test
         void should_return_package_details_successfully() {
             // Given
-            when(packageRepository.findByIdAndSender(any(UUID.class), any(EmployeeEntity.class)))
+            when(packageRepository.findByIdAndSenderId(any(UUID.class), any(UUID.class)))
                     .thenReturn(Optional.of(packageEntity));
-            when(employeeRepository.findById(any(UUID.class))).thenReturn(Optional.of(sender));
 
             // Mock the downstream order details response with the correct structure
             ShippingOrderDetails orderDetails = new ShippingOrderDetails(
@@ -173,27 +241,89 @@ class PackageSelfServiceServiceTest {
             when(packageShippingServiceClient.getOrderDetails(any(String.class))).thenReturn(orderDetails);
 
             // When
-            PackageDetails packageDetails = packageSelfServiceService.getPackageDetails(packageId.toString(), sender.getId().toString());
+            PackageDetails packageDetails = packageSelfServiceService.getPackageDetails(packageId.toString(), sender.getId().toString(), false, Set.of());
 
             // Then
             assertNotNull(packageDetails);
             assertEquals(packageId.toString(), packageDetails.packageId());
-            verify(packageRepository, times(1)).findByIdAndSender(any(UUID.class), any(EmployeeEntity.class));
+            verify(packageRepository, times(1)).findByIdAndSenderId(any(UUID.class), any(UUID.class));
+            verifyNoInteractions(employeeRepository); // Verify the sender is not looked up when the package is found
             verify(packageShippingServiceClient, times(1)).getOrderDetails(any(String.class)); // Verify order details fetching
+            verify(packageSummaryService, never()).recordObserved(any(PackageEntity.class), any(ShippingOrderDetails.class)); // Verify the read doesn't write, the change sync does
+            assertEquals(1, meterRegistry.timer(GlobalConstants.METRIC_ENRICH_PACKAGE_DETAILS).count()); // Verify enrichment is timed
         }
 
         @Test
         void should_throw_package_not_found_exception() {
             // Given
-            when(packageRepository.findByIdAndSender(any(UUID.class), any(EmployeeEntity.class))).thenReturn(Optional.empty());
-            when(employeeRepository.findById(any(UUID.class))).thenReturn(Optional.of(sender));
+            when(packageRepository.findByIdAndSenderId(any(UUID.class), any(UUID.class))).thenReturn(Optional.empty());
+            when(employeeRepository.existsById(sender.getId())).thenReturn(true);
 
             // When
-            Executable executable = () -> packageSelfServiceService.getPackageDetails(packageId.toString(), sender.getId().toString());
+            Executable executable = () -> packageSelfServiceService.getPackageDetails(packageId.toString(), sender.getId().toString(), false, Set.of());
 
             // Then
             assertThrows(PackageNotFoundException.class, executable);
         }
+
+        @Test
+        void should_look_up_version_7_ids_only_around_their_timestamp_and_fall_back_to_the_archive() {
+            // Given
+            UUID versionSevenId = UuidV7.generate();
+            when(packageRepository.findByIdAndSenderIdAndDateOfRegistrationBetween(eq(versionSevenId), eq(sender.getId()), any(LocalDateTime.class), any(LocalDateTime.class)))
+                    .thenReturn(Optional.empty());
+            when(packageRepository.findArchivedByIdAndSenderId(versionSevenId, sender.getId())).thenReturn(Optional.of(packageEntity));
+            when(packageShippingServiceClient.getOrderDetails(any(String.class))).thenReturn(orderDetails(OrderStatus.DELIVERED));
+
+            // When
+            PackageDetails packageDetails = packageSelfServiceService.getPackageDetails(versionSevenId.toString(), sender.getId().toString(), true, Set.of());
+
+            // Then
+            assertEquals(packageId.toString(), packageDetails.packageId());
+            ArgumentCaptor<LocalDateTime> from = ArgumentCaptor.forClass(LocalDateTime.class);
+            ArgumentCaptor<LocalDateTime> to = ArgumentCaptor.forClass(LocalDateTime.class);
+            verify(packageRepository).findByIdAndSenderIdAndDateOfRegistrationBetween(eq(versionSevenId), eq(sender.getId()), from.capture(), to.capture());
+            assertTrue(from.getValue().isBefore(LocalDateTime.now()) && to.getValue().isAfter(LocalDateTime.now())); // Verify the window covers the id's timestamp
+            verify(packageRepository, never()).findByIdAndSenderId(any(UUID.class), any(UUID.class)); // Verify no lookup across all partitions
+        }
+    }
+
+    @Nested
+    @DisplayName("watchPackageDetails method")
+    class WatchPackageDetailsTests {
+
+        @Test
+        void should_return_the_package_details_once_their_status_changed_since_the_last_seen_version() {
+            // Given: the client has seen the package as SENT
+            when(packageRepository.findByIdAndSenderId(packageId, sender.getId())).thenReturn(Optional.of(packageEntity));
+            ShippingOrderDetails sent = orderDetails(OrderStatus.SENT);
+            ShippingOrderDetails delivered = orderDetails(OrderStatus.DELIVERED);
+            when(packageShippingServiceClient.getOrderDetails(any(String.class))).thenReturn(sent, sent, delivered);
+            String lastSeenVersion = PackageWatcher.version(PackageDetailsMapper.toPackageDetails(packageEntity, sent));
+
+            // When
+            Optional<PackageDetails> packageDetails = packageSelfServiceService.watchPackageDetails(packageId.toString(), sender.getId().toString(),
+                    lastSeenVersion, Duration.ofSeconds(10));
+
+            // Then
+            assertEquals(PackageStatus.DELIVERED, packageDetails.orElseThrow().status());
+            verify(packageSummaryService, never()).recordObserved(any(PackageEntity.class), any(ShippingOrderDetails.class)); // Verify the polls don't write
+        }
+
+        @Test
+        void should_return_empty_when_the_package_did_not_change_within_the_timeout() {
+            // Given
+            when(packageRepository.findByIdAndSenderId(packageId, sender.getId())).thenReturn(Optional.of(packageEntity));
+            ShippingOrderDetails sent = orderDetails(OrderStatus.SENT);
+            when(packageShippingServiceClient.getOrderDetails(any(String.class))).thenReturn(sent);
+
+            // When
+            Optional<PackageDetails> packageDetails = packageSelfServiceService.watchPackageDetails(packageId.toString(), sender.getId().toString(),
+                    PackageWatcher.version(PackageDetailsMapper.toPackageDetails(packageEntity, sent)), Duration.ofMillis(100));
+
+            // Then
+            assertTrue(packageDetails.isEmpty());
+        }
     }
 
     @Nested
@@ -203,8 +333,7 @@ class PackageSelfServiceServiceTest {
         @Test
         void should_return_list_of_package_details_successfully() {
             // Given
-            when(employeeRepository.findById(any(UUID.class))).thenReturn(Optional.of(sender));
-            when(packageRepository.findBySender(any(EmployeeEntity.class))).thenReturn(List.of(packageEntity));
+            when(packageRepository.findBySenderId(any(UUID.class))).thenReturn(List.of(packageEntity));
 
             // Mock the downstream order details response for each package
             ShippingOrderDetails orderDetails = new ShippingOrderDetails(
@@ -222,13 +351,244 @@ class PackageSelfServiceServiceTest {
             when(packageShippingServiceClient.getOrderDetails(any(String.class))).thenReturn(orderDetails);
 
             // When
-            var packageDetailsList = packageSelfServiceService.listPackageDetails(sender.getId().toString(), Optional.empty());
+            var packageDetailsList = packageSelfServiceService.listPackageDetails(sender.getId().toString(), Optional.empty(), false, Set.of());
 
             // Then
             assertNotNull(packageDetailsList);
             assertFalse(packageDetailsList.isEmpty());
             assertEquals(1, packageDetailsList.size());
-            verify(packageRepository, times(1)).findBySender(any(EmployeeEntity.class));
+            verify(packageRepository, times(1)).findBySenderId(any(UUID.class));
+            verifyNoInteractions(employeeRepository); // Verify the sender is not looked up when packages are found
+            verify(packageRepository, never()).findArchivedBySenderId(any(UUID.class)); // Verify the archive is not queried by default
+        }
+
+        @Test
+        void should_include_archived_packages_when_requested() {
+            // Given
+            PackageEntity archivedPackageEntity = PackageEntity.builder()
+                    .id(UUID.randomUUID())
+                    .packageName("Archived Package")
+                    .weightInGrams(500)
+                    .sender(sender)
+                    .receiver(recipient)
+                    .downstreamOrderUrl("http://example.com/order/42")
+                    .dateOfRegistration(LocalDateTime.now().minusYears(2))
+                    .build();
+            when(packageRepository.findBySenderId(sender.getId())).thenReturn(List.of(packageEntity));
+            when(packageRepository.findArchivedBySenderId(sender.getId())).thenReturn(List.of(archivedPackageEntity));
+            when(packageShippingServiceClient.getOrderDetails(any(String.class))).thenReturn(orderDetails(OrderStatus.DELIVERED));
+
+            // When
+            var packageDetailsList = packageSelfServiceService.listPackageDetails(sender.getId().toString(), Optional.empty(), true, Set.of());
+
+            // Then
+            assertEquals(2, packageDetailsList.size());
+        }
+
+        @Test
+        void should_not_call_the_downstream_service_when_no_downstream_field_is_requested() {
+            // Given
+            when(packageRepository.findBySenderId(sender.getId())).thenReturn(List.of(packageEntity));
+
+            // When
+            var packageDetailsList = packageSelfServiceService.listPackageDetails(sender.getId().toString(), Optional.empty(), false,
+                    Set.of("packageName", "dateOfRegistration", "recipient"));
+
+            // Then
+            assertEquals(1, packageDetailsList.size());
+            assertEquals("Sample Package", packageDetailsList.getFirst().packageName());
+            assertEquals(recipient.getName(), packageDetailsList.getFirst().recipient().recipientName());
+            verifyNoInteractions(packageShippingServiceClient, packageSummaryService);
+        }
+
+        @Test
+        void should_call_the_downstream_service_when_filtering_by_status() {
+            // Given
+            when(packageRepository.findBySenderId(sender.getId())).thenReturn(List.of(packageEntity));
+            when(packageShippingServiceClient.getOrderDetails(any(String.class))).thenReturn(orderDetails(OrderStatus.SENT));
+
+            // When
+            var packageDetailsList = packageSelfServiceService.listPackageDetails(sender.getId().toString(), Optional.of(PackageStatus.DELIVERED), false,
+                    Set.of("packageName"));
+
+            // Then
+            assertTrue(packageDetailsList.isEmpty());
+            verify(packageShippingServiceClient, times(1)).getOrderDetails(any(String.class));
+        }
+
+        @Test
+        void should_return_the_package_of_a_submission_repeated_with_the_same_idempotency_key() {
+            // Given
+            when(idempotencyKeyStore.findPackageId(sender.getId(), "kiosk-1-42")).thenReturn(Optional.of(packageId));
+
+            // When
+            UUID submittedPackageId = packageSelfServiceService.submitPackage(packageDTO, "kiosk-1-42");
+
+            // Then
+            assertEquals(packageId, submittedPackageId);
+            verifyNoInteractions(employeeRepository, packageShippingServiceClient, packageRepository, packageSummaryService); // Nothing is repeated
+        }
+
+        @Test
+        void should_forward_the_idempotency_key_and_return_the_package_of_a_concurrent_submission_with_the_same_key() {
+            // Given
+            UUID concurrentlySubmittedPackageId = UUID.randomUUID();
+            when(idempotencyKeyStore.findPackageId(sender.getId(), "kiosk-1-42")).thenReturn(Optional.empty());
+            when(employeeRepository.findById(sender.getId())).thenReturn(Optional.of(sender));
+            when(employeeRepository.findById(recipient.getId())).thenReturn(Optional.of(recipient));
+            when(packageShippingServiceClient.createShippingOrder(any(ShippingOrder.class), eq(sender.getId() + ":kiosk-1-42")))
+                    .thenReturn(URI.create("http://example.com/order/123"));
+            when(idempotencyKeyStore.claim(eq(sender.getId()), eq("kiosk-1-42"), any(UUID.class))).thenReturn(Optional.of(concurrentlySubmittedPackageId));
+
+            // When
+            UUID submittedPackageId = packageSelfServiceService.submitPackage(packageDTO, "kiosk-1-42");
+
+            // Then
+            assertEquals(concurrentlySubmittedPackageId, submittedPackageId);
+            verify(packageRepository, never()).save(any(PackageEntity.class)); // The concurrent submission persisted the package
+            verify(packageSummaryService, never()).recordSubmitted(any(UUID.class));
+        }
+
+        @Test
+        void should_throw_sender_not_found_exception() {
+            // Given
+            when(packageRepository.findBySenderId(any(UUID.class))).thenReturn(List.of());
+            when(employeeRepository.existsById(any(UUID.class))).thenReturn(false);
+
+            // When
+            Executable executable = () -> packageSelfServiceService.listPackageDetails(UUID.randomUUID().toString(), Optional.empty(), false, Set.of());
+
+            // Then
+            assertThrows(SenderNotFoundException.class, executable);
+        }
+    }
+
+    @Nested
+    @DisplayName("searchPackageDetails method")
+    class SearchPackageDetailsTests {
+
+        @Test
+        void should_enrich_only_the_requested_page_of_matching_packages() {
+            // Given
+            when(packageRepository.searchBySenderIdAndPackageName(sender.getId(), "%Sample%", false, PageRequest.of(1, 1)))
+                    .thenReturn(new SliceImpl<>(List.of(packageEntity), PageRequest.of(1, 1), true));
+            when(packageShippingServiceClient.getOrderDetails(any(String.class))).thenReturn(orderDetails(OrderStatus.SENT));
+
+            // When
+            PackageSearchResult result = packageSelfServiceService.searchPackageDetails(sender.getId().toString(), "Sample", PackageNameMatch.CONTAINS, false, 1, 1, Set.of());
+
+            // Then
+            assertEquals(1, result.packages().size());
+            assertEquals(packageId.toString(), result.packages().getFirst().packageId());
+            assertTrue(result.hasNext());
+            verify(packageShippingServiceClient, times(1)).getOrderDetails(any(String.class));
+        }
+
+        @Test
+        void should_match_prefixes_and_escape_the_wildcards_of_the_name() {
+            // When + Then
+            assertEquals("50\\%\\_off%", PackageSelfServiceService.toNamePattern("50%_off", PackageNameMatch.PREFIX));
+            assertEquals("%C:\\\\box%", PackageSelfServiceService.toNamePattern("C:\\box", PackageNameMatch.CONTAINS));
+        }
+
+        @Test
+        void should_return_the_package_of_a_submission_repeated_with_the_same_idempotency_key() {
+            // Given
+            when(idempotencyKeyStore.findPackageId(sender.getId(), "kiosk-1-42")).thenReturn(Optional.of(packageId));
+
+            // When
+            UUID submittedPackageId = packageSelfServiceService.submitPackage(packageDTO, "kiosk-1-42");
+
+            // Then
+            assertEquals(packageId, submittedPackageId);
+            verifyNoInteractions(employeeRepository, packageShippingServiceClient, packageRepository, packageSummaryService); // Nothing is repeated
+        }
+
+        @Test
+        void should_forward_the_idempotency_key_and_return_the_package_of_a_concurrent_submission_with_the_same_key() {
+            // Given
+            UUID concurrentlySubmittedPackageId = UUID.randomUUID();
+            when(idempotencyKeyStore.findPackageId(sender.getId(), "kiosk-1-42")).thenReturn(Optional.empty());
+            when(employeeRepository.findById(sender.getId())).thenReturn(Optional.of(sender));
+            when(employeeRepository.findById(recipient.getId())).thenReturn(Optional.of(recipient));
+            when(packageShippingServiceClient.createShippingOrder(any(ShippingOrder.class), eq(sender.getId() + ":kiosk-1-42")))
+                    .thenReturn(URI.create("http://example.com/order/123"));
+            when(idempotencyKeyStore.claim(eq(sender.getId()), eq("kiosk-1-42"), any(UUID.class))).thenReturn(Optional.of(concurrentlySubmittedPackageId));
+
+            // When
+            UUID submittedPackageId = packageSelfServiceService.submitPackage(packageDTO, "kiosk-1-42");
+
+            // Then
+            assertEquals(concurrentlySubmittedPackageId, submittedPackageId);
+            verify(packageRepository, never()).save(any(PackageEntity.class)); // The concurrent submission persisted the package
+            verify(packageSummaryService, never()).recordSubmitted(any(UUID.class));
+        }
+
+        @Test
+        void should_throw_sender_not_found_exception() {
+            // Given
+            when(packageRepository.searchBySenderIdAndPackageName(any(UUID.class), any(String.class), eq(false), any(PageRequest.class)))
+                    .thenReturn(new SliceImpl<>(List.of()));
+            when(employeeRepository.existsById(any(UUID.class))).thenReturn(false);
+
+            // When
+            Executable executable = () -> packageSelfServiceService.searchPackageDetails(UUID.randomUUID().toString(), "Sample", PackageNameMatch.PREFIX, false, 0, 20, Set.of());
+
+            // Then
+            assertThrows(SenderNotFoundException.class, executable);
+        }
+    }
+
+    @Nested
+    @DisplayName("getPackageSummary method")
+    class GetPackageSummaryTests {
+
+        @Test
+        void should_return_the_senders_summary() {
+            // Given
+            PackageSummary packageSummary = new PackageSummary(Map.of(PackageStatus.DELIVERED, 1L), LocalDate.now(), LocalDateTime.now());
+            when(employeeRepository.findById(sender.getId())).thenReturn(Optional.of(sender));
+            when(packageSummaryService.getSummary(sender.getId())).thenReturn(packageSummary);
+
+            // When
+            PackageSummary result = packageSelfServiceService.getPackageSummary(sender.getId().toString());
+
+            // Then
+            assertEquals(packageSummary, result);
+            verifyNoInteractions(packageRepository, packageShippingServiceClient); // Verify no package is queried or enriched
+        }
+
+        @Test
+        void should_return_the_package_of_a_submission_repeated_with_the_same_idempotency_key() {
+            // Given
+            when(idempotencyKeyStore.findPackageId(sender.getId(), "kiosk-1-42")).thenReturn(Optional.of(packageId));
+
+            // When
+            UUID submittedPackageId = packageSelfServiceService.submitPackage(packageDTO, "kiosk-1-42");
+
+            // Then
+            assertEquals(packageId, submittedPackageId);
+            verifyNoInteractions(employeeRepository, packageShippingServiceClient, packageRepository, packageSummaryService); // Nothing is repeated
+        }
+
+        @Test
+        void should_forward_the_idempotency_key_and_return_the_package_of_a_concurrent_submission_with_the_same_key() {
+            // Given
+            UUID concurrentlySubmittedPackageId = UUID.randomUUID();
+            when(idempotencyKeyStore.findPackageId(sender.getId(), "kiosk-1-42")).thenReturn(Optional.empty());
+            when(employeeRepository.findById(sender.getId())).thenReturn(Optional.of(sender));
+            when(employeeRepository.findById(recipient.getId())).thenReturn(Optional.of(recipient));
+            when(packageShippingServiceClient.createShippingOrder(any(ShippingOrder.class), eq(sender.getId() + ":kiosk-1-42")))
+                    .thenReturn(URI.create("http://example.com/order/123"));
+            when(idempotencyKeyStore.claim(eq(sender.getId()), eq("kiosk-1-42"), any(UUID.class))).thenReturn(Optional.of(concurrentlySubmittedPackageId));
+
+            // When
+            UUID submittedPackageId = packageSelfServiceService.submitPackage(packageDTO, "kiosk-1-42");
+
+            // Then
+            assertEquals(concurrentlySubmittedPackageId, submittedPackageId);
+            verify(packageRepository, never()).save(any(PackageEntity.class)); // The concurrent submission persisted the package
+            verify(packageSummaryService, never()).recordSubmitted(any(UUID.class));
         }
 
         @Test
@@ -237,10 +597,24 @@ class PackageSelfServiceServiceTest {
             when(employeeRepository.findById(any(UUID.class))).thenReturn(Optional.empty());
 
             // When
-            Executable executable = () -> packageSelfServiceService.listPackageDetails(UUID.randomUUID().toString(), Optional.empty());
+            Executable executable = () -> packageSelfServiceService.getPackageSummary(UUID.randomUUID().toString());
 
             // Then
             assertThrows(SenderNotFoundException.class, executable);
         }
     }
+
+    private ShippingOrderDetails orderDetails(OrderStatus orderStatus) {
+        return new ShippingOrderDetails(
+                packageId.toString(), // package ID
+                "Sample Package", // package name
+                PackageSize.M, // package size
+                recipient.getPostalCode(), // postal code
+                recipient.getStreet(), // street name
+                recipient.getName(), // receiver name
+                orderStatus, // order status
+                LocalDate.now().plusDays(1), // expected delivery date
+                LocalDateTime.now() // actual delivery date
+        );
+    }
 }
@@ -0,0 +1,176 @@
+package com.zlatko.packageselfservicebackend.services;
+
+import com.zlatko.packageselfservicebackend.clients.dtos.ShippingOrderDetails;
+import com.zlatko.packageselfservicebackend.clients.dtos.enums.OrderStatus;
+import com.zlatko.packageselfservicebackend.clients.dtos.enums.PackageSize;
+import com.zlatko.packageselfservicebackend.model.dtos.PackageSummary;
+import com.zlatko.packageselfservicebackend.model.dtos.enums.PackageStatus;
+import com.zlatko.packageselfservicebackend.model.entities.EmployeeEntity;
+import com.zlatko.packageselfservicebackend.model.entities.PackageEntity;
+import com.zlatko.packageselfservicebackend.repositories.EmployeeRepository;
+import com.zlatko.packageselfservicebackend.utils.UuidV7;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the incremental maintenance of the sender package summaries against PostgreSQL. Skipped without Docker.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({PackageSummaryService.class, PackageListCache.class, SimpleMeterRegistry.class})
+@Testcontainers(disabledWithoutDocker = true)
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class PackageSummaryServiceTest {
+
+    // Employees inserted by the V1 migration
+    private static final UUID SENDER_ID = UUID.fromString("c1a5a8e8-1b0e-4c6c-8342-576b9a9e6b5f");
+    private static final UUID RECEIVER_ID = UUID.fromString("d2b7f9e9-2c1d-4e7a-8b3f-7d0e6c2a8c7f");
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:17.0");
+
+    @Autowired
+    private PackageSummaryService packageSummaryService;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private PackageEntity firstPackage;
+    private PackageEntity secondPackage;
+
+    @BeforeEach
+    void setUp() {
+        firstPackage = submitPackage();
+        secondPackage = submitPackage();
+    }
+
+    @Nested
+    class RecordObservedTests {
+
+        @Test
+        void should_count_submitted_packages_as_in_progress() {
+            // When
+            PackageSummary packageSummary = packageSummaryService.getSummary(SENDER_ID);
+
+            // Then
+            assertThat(packageSummary.packageCounts()).containsEntry(PackageStatus.IN_PROGRESS, 2L).containsEntry(PackageStatus.DELIVERED, 0L);
+            assertThat(packageSummary.nextExpectedDeliveryDate()).isNull();
+        }
+
+        @Test
+        void should_move_packages_between_counts_and_track_the_next_and_last_delivery() {
+            // Given
+            LocalDate today = LocalDate.now();
+            LocalDateTime deliveredAt = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+            observe(firstPackage, OrderStatus.SENT, today.plusDays(3), null);
+            observe(secondPackage, OrderStatus.SENT, today.plusDays(1), null);
+
+            // When
+            observe(secondPackage, OrderStatus.DELIVERED, today.plusDays(1), deliveredAt);
+            PackageSummary packageSummary = packageSummaryService.getSummary(SENDER_ID);
+
+            // Then
+            assertThat(packageSummary.packageCounts())
+                    .containsEntry(PackageStatus.IN_PROGRESS, 0L)
+                    .containsEntry(PackageStatus.SENT, 1L)
+                    .containsEntry(PackageStatus.DELIVERED, 1L);
+            assertThat(packageSummary.nextExpectedDeliveryDate()).isEqualTo(today.plusDays(3)); // recomputed after the earliest one got delivered
+            assertThat(packageSummary.lastDeliveryDateTime()).isEqualTo(deliveredAt);
+        }
+
+        @Test
+        void should_count_a_change_observed_from_a_stale_package_state_only_once() {
+            // Given
+            PackageEntity staleState = PackageEntity.builder()
+                    .id(firstPackage.getId())
+                    .sender(firstPackage.getSender())
+                    .dateOfRegistration(firstPackage.getDateOfRegistration())
+                    .status(PackageStatus.IN_PROGRESS)
+                    .build();
+            observe(firstPackage, OrderStatus.SENT, LocalDate.now().plusDays(2), null);
+
+            // When
+            observe(staleState, OrderStatus.SENT, LocalDate.now().plusDays(2), null);
+            PackageSummary packageSummary = packageSummaryService.getSummary(SENDER_ID);
+
+            // Then
+            assertThat(packageSummary.packageCounts()).containsEntry(PackageStatus.IN_PROGRESS, 1L).containsEntry(PackageStatus.SENT, 1L);
+        }
+    }
+
+    @Nested
+    class ArchiveTests {
+
+        @Test
+        void should_remove_archived_packages_from_the_counts_and_the_next_expected_delivery() {
+            // Given
+            LocalDateTime registeredTwoYearsAgo = LocalDateTime.now().minusYears(2).truncatedTo(ChronoUnit.SECONDS);
+            jdbcTemplate.queryForObject("SELECT create_packages_partitions(?, 0)", Integer.class, registeredTwoYearsAgo.toLocalDate());
+            PackageEntity oldPackage = submitPackage(registeredTwoYearsAgo);
+            observe(oldPackage, OrderStatus.SENT, LocalDate.now().minusDays(1), null);
+            observe(firstPackage, OrderStatus.SENT, LocalDate.now().plusDays(2), null);
+
+            // When
+            jdbcTemplate.queryForObject("SELECT archive_packages_partitions(12)", Long.class);
+            PackageSummary packageSummary = packageSummaryService.getSummary(SENDER_ID);
+
+            // Then
+            assertThat(packageSummary.packageCounts()).containsEntry(PackageStatus.IN_PROGRESS, 1L).containsEntry(PackageStatus.SENT, 1L);
+            assertThat(packageSummary.nextExpectedDeliveryDate()).isEqualTo(LocalDate.now().plusDays(2)); // recomputed without the archived package
+        }
+    }
+
+    private PackageEntity submitPackage() {
+        return submitPackage(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    private PackageEntity submitPackage(LocalDateTime dateOfRegistration) {
+        EmployeeEntity sender = employeeRepository.getReferenceById(SENDER_ID);
+        PackageEntity packageEntity = PackageEntity.builder()
+                .id(UuidV7.generate())
+                .sender(sender)
+                .dateOfRegistration(dateOfRegistration)
+                .status(PackageStatus.IN_PROGRESS)
+                .build();
+        jdbcTemplate.update("""
+                INSERT INTO packages (id, package_name, weight_in_grams, sender_id, receiver_id, date_of_registration, downstream_order_url)
+                VALUES (?, ?, 500, ?, ?, ?, 'http://localhost:8443/shippingOrders/1')""",
+                packageEntity.getId(), packageEntity.getId().toString(), SENDER_ID, RECEIVER_ID, packageEntity.getDateOfRegistration());
+        packageSummaryService.recordSubmitted(SENDER_ID);
+        return packageEntity;
+    }
+
+    /**
+     * Records the downstream state and applies it to the in-memory package, as if it was read again.
+     */
+    private void observe(PackageEntity packageEntity, OrderStatus orderStatus, LocalDate expectedDeliveryDate, LocalDateTime actualDeliveryDateTime) {
+        packageSummaryService.recordObserved(packageEntity, new ShippingOrderDetails(packageEntity.getId().toString(), "Package", PackageSize.M,
+                "62704", "123 Oak St", "Bob Smith", orderStatus, expectedDeliveryDate, actualDeliveryDateTime));
+        packageEntity.setStatus(PackageStatus.valueOf(orderStatus.name()));
+        packageEntity.setExpectedDeliveryDate(expectedDeliveryDate);
+        packageEntity.setActualDeliveryDateTime(actualDeliveryDateTime);
+    }
+}
@@ -0,0 +1,123 @@
+package com.zlatko.packageselfservicebackend.services;
+
+import com.zlatko.packageselfservicebackend.model.dtos.PackageDetails;
+import com.zlatko.packageselfservicebackend.model.dtos.enums.PackageStatus;
+import com.zlatko.packageselfservicebackend.model.entities.PackageEntity;
+import com.zlatko.packageselfservicebackend.utils.GlobalConstants;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class PackageWatcherTest {
+
+    private static final PackageDetails SENT = packageDetails(PackageStatus.SENT);
+
+    private final PackageEntity packageEntity = PackageEntity.builder().id(UUID.randomUUID()).build();
+    private final AtomicInteger checks = new AtomicInteger();
+
+    @Nested
+    class AwaitTests {
+
+        @Test
+        void should_share_one_downstream_check_between_the_watchers_of_a_package() {
+            // Given: checked once, the next check is an hour later
+            PackageWatcher packageWatcher = new PackageWatcher(new SimpleMeterRegistry(), Duration.ofHours(1));
+            Function<PackageEntity, PackageDetails> check = watched -> {
+                checks.incrementAndGet();
+                return SENT;
+            };
+
+            // When: every watcher has seen the current version
+            List<Optional<PackageDetails>> watched;
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<CompletableFuture<Optional<PackageDetails>>> watchers = IntStream.range(0, 10)
+                        .mapToObj(i -> CompletableFuture.supplyAsync(() -> packageWatcher.await(packageEntity,
+                                PackageWatcher.version(SENT), Duration.ofMillis(500), check), executor))
+                        .toList();
+                watched = watchers.stream().map(CompletableFuture::join).toList();
+            }
+
+            // Then
+            assertThat(watched).allMatch(Optional::isEmpty);
+            assertThat(checks).hasValue(1);
+        }
+
+        @Test
+        void should_return_the_current_package_details_without_a_last_seen_version() {
+            // Given
+            PackageWatcher packageWatcher = new PackageWatcher(new SimpleMeterRegistry(), Duration.ofMillis(10));
+
+            // When
+            Optional<PackageDetails> packageDetails = packageWatcher.await(packageEntity, null, Duration.ofSeconds(10), watched -> SENT);
+
+            // Then
+            assertThat(packageDetails).contains(SENT);
+        }
+
+        @Test
+        void should_throw_a_failure_of_the_first_check() {
+            // Given
+            PackageWatcher packageWatcher = new PackageWatcher(new SimpleMeterRegistry(), Duration.ofMillis(10));
+
+            // When + Then
+            assertThatThrownBy(() -> packageWatcher.await(packageEntity, null, Duration.ofSeconds(10), watched -> {
+                throw new IllegalStateException("Downstream unavailable");
+            })).isInstanceOf(IllegalStateException.class).hasMessage("Downstream unavailable");
+        }
+    }
+
+    @Nested
+    class VersionTests {
+
+        @Test
+        void should_change_the_version_with_the_status_or_either_delivery_date() {
+            // Given
+            LocalDate day = LocalDate.of(2024, 5, 1);
+            List<PackageDetails> states = List.of(
+                    packageDetails(PackageStatus.SENT, null, null),
+                    packageDetails(PackageStatus.SENT, day, null),
+                    packageDetails(PackageStatus.SENT, day.plusDays(1), null),
+                    packageDetails(PackageStatus.DELIVERED, day, null),
+                    packageDetails(PackageStatus.DELIVERED, day, day.atTime(10, 0)),
+                    packageDetails(PackageStatus.DELIVERED, null, day.atTime(10, 0)));
+
+            // When
+            List<String> versions = states.stream().map(PackageWatcher::version).toList();
+
+            // Then
+            assertThat(versions).doesNotHaveDuplicates().allMatch(version -> version.matches(GlobalConstants.PACKAGE_VERSION_REGEX_PATTERN));
+        }
+
+        @Test
+        void should_give_the_same_state_the_same_version_on_every_package() {
+            // When + Then
+            assertThat(PackageWatcher.version(packageDetails(PackageStatus.SENT))).isEqualTo(PackageWatcher.version(SENT));
+        }
+    }
+
+    private static PackageDetails packageDetails(PackageStatus status) {
+        return packageDetails(status, null, null);
+    }
+
+    private static PackageDetails packageDetails(PackageStatus status, LocalDate expectedDeliveryDate, LocalDateTime actualDeliveryDateTime) {
+        return new PackageDetails(UUID.randomUUID().toString(), "Sample Package", null, status, expectedDeliveryDate, actualDeliveryDateTime, null);
+    }
+}
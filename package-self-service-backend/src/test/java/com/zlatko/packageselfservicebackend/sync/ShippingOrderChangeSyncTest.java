@@ -0,0 +1,127 @@
+package com.zlatko.packageselfservicebackend.sync;
+
+import com.zlatko.packageselfservicebackend.clients.PackageShippingServiceClient;
+import com.zlatko.packageselfservicebackend.clients.dtos.ShippingOrderChanges;
+import com.zlatko.packageselfservicebackend.clients.dtos.ShippingOrderDetails;
+import com.zlatko.packageselfservicebackend.clients.dtos.enums.OrderStatus;
+import com.zlatko.packageselfservicebackend.clients.dtos.enums.PackageSize;
+import com.zlatko.packageselfservicebackend.model.entities.PackageEntity;
+import com.zlatko.packageselfservicebackend.repositories.PackageRepository;
+import com.zlatko.packageselfservicebackend.services.PackageSummaryService;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class ShippingOrderChangeSyncTest {
+
+    private static final int PAGE_SIZE = 2;
+    private static final String SELECT_CURSOR = "SELECT change_cursor FROM shipping_order_changes_cursor FOR UPDATE SKIP LOCKED";
+    private static final String UPDATE_CURSOR = "UPDATE shipping_order_changes_cursor SET change_cursor = ?";
+
+    private PackageShippingServiceClient packageShippingServiceClient;
+    private PackageRepository packageRepository;
+    private PackageSummaryService packageSummaryService;
+    private JdbcTemplate jdbcTemplate;
+    private ShippingOrderChangeSync shippingOrderChangeSync;
+
+    @BeforeEach
+    void setUp() {
+        packageShippingServiceClient = mock(PackageShippingServiceClient.class);
+        packageRepository = mock(PackageRepository.class);
+        packageSummaryService = mock(PackageSummaryService.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        shippingOrderChangeSync = new ShippingOrderChangeSync(packageShippingServiceClient, packageRepository, packageSummaryService,
+                jdbcTemplate, new TransactionTemplate(mock(PlatformTransactionManager.class)), PAGE_SIZE);
+    }
+
+    @Nested
+    class SyncChangesTests {
+
+        @Test
+        void should_apply_the_pages_from_the_stored_cursor_and_advance_it_after_each_page() {
+            // Given
+            ShippingOrderDetails firstOrder = orderDetails("order-1", OrderStatus.SENT);
+            ShippingOrderDetails secondOrder = orderDetails("order-2", OrderStatus.DELIVERED);
+            ShippingOrderDetails thirdOrder = orderDetails("order-3", OrderStatus.SENT);
+            PackageEntity firstPackage = packageOf("order-1");
+            PackageEntity thirdPackage = packageOf("order-3");
+            when(jdbcTemplate.queryForList(SELECT_CURSOR, String.class)).thenReturn(List.of("10:cursor"), List.of("11:cursor"));
+            when(packageShippingServiceClient.getShippingOrderChanges("10:cursor", PAGE_SIZE))
+                    .thenReturn(new ShippingOrderChanges(List.of(firstOrder, secondOrder), "11:cursor", true));
+            when(packageShippingServiceClient.getShippingOrderChanges("11:cursor", PAGE_SIZE))
+                    .thenReturn(new ShippingOrderChanges(List.of(thirdOrder), "12:cursor", false));
+            // The second order has no package, e.g. it was created by another client of the package-shipping-service
+            when(packageRepository.findByShippingOrderIds(Set.of("order-1", "order-2"))).thenReturn(List.of(firstPackage));
+            when(packageRepository.findByShippingOrderIds(Set.of("order-3"))).thenReturn(List.of(thirdPackage));
+
+            // When
+            shippingOrderChangeSync.syncChanges();
+
+            // Then
+            InOrder inOrder = inOrder(packageSummaryService, jdbcTemplate);
+            inOrder.verify(packageSummaryService).recordObserved(firstPackage, firstOrder);
+            inOrder.verify(jdbcTemplate).update(UPDATE_CURSOR, "11:cursor");
+            inOrder.verify(packageSummaryService).recordObserved(thirdPackage, thirdOrder);
+            inOrder.verify(jdbcTemplate).update(UPDATE_CURSOR, "12:cursor");
+            verify(packageSummaryService, never()).recordObserved(any(), eq(secondOrder));
+        }
+
+        @Test
+        void should_keep_the_cursor_when_the_change_feed_fails() {
+            // Given
+            when(jdbcTemplate.queryForList(SELECT_CURSOR, String.class)).thenReturn(Collections.singletonList(null));
+            when(packageShippingServiceClient.getShippingOrderChanges(null, PAGE_SIZE)).thenThrow(new RuntimeException("Connection refused"));
+
+            // When
+            assertThrows(RuntimeException.class, () -> shippingOrderChangeSync.syncChanges());
+
+            // Then
+            // the next run starts again from the stored cursor
+            verify(jdbcTemplate, never()).update(eq(UPDATE_CURSOR), anyString());
+        }
+
+        @Test
+        void should_skip_the_run_while_another_instance_holds_the_cursor() {
+            // Given: the cursor row is locked by the sync of another instance
+            when(jdbcTemplate.queryForList(SELECT_CURSOR, String.class)).thenReturn(List.of());
+
+            // When
+            shippingOrderChangeSync.syncChanges();
+
+            // Then
+            verify(packageShippingServiceClient, never()).getShippingOrderChanges(any(), anyInt());
+            verify(jdbcTemplate, never()).update(eq(UPDATE_CURSOR), anyString());
+        }
+    }
+
+    private static ShippingOrderDetails orderDetails(String orderId, OrderStatus orderStatus) {
+        return new ShippingOrderDetails(orderId, "Package", PackageSize.M, "62704", "123 Oak St", "Bob Smith", orderStatus,
+                LocalDate.now(), null);
+    }
+
+    private static PackageEntity packageOf(String orderId) {
+        return PackageEntity.builder().downstreamOrderUrl("http://localhost:8443/shippingOrders/" + orderId).build();
+    }
+}
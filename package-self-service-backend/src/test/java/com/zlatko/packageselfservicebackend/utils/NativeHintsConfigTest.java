@@ -0,0 +1,51 @@
+package com.zlatko.packageselfservicebackend.utils;
+
+import com.zlatko.packageselfservicebackend.clients.PackageShippingServiceClient;
+import com.zlatko.packageselfservicebackend.clients.dtos.ShippingOrder;
+import com.zlatko.packageselfservicebackend.clients.dtos.ShippingOrderDetails;
+import com.zlatko.packageselfservicebackend.model.entities.PackageEntity;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBindingProcessor;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class NativeHintsConfigTest {
+
+    @Nested
+    class RegisterHintsTests {
+
+        @Test
+        void should_register_entities_and_resilience4j_fallback_methods() throws NoSuchMethodException {
+            // Given
+            RuntimeHints hints = new RuntimeHints();
+
+            // When
+            new NativeHintsConfig.ApplicationRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+            // Then
+            assertThat(RuntimeHintsPredicates.reflection().onConstructor(PackageEntity.class.getDeclaredConstructor())).accepts(hints);
+            assertThat(RuntimeHintsPredicates.reflection().onField(PackageEntity.class, "receiver")).accepts(hints);
+            assertThat(RuntimeHintsPredicates.reflection().onMethod(PackageShippingServiceClient.class, PackageShippingServiceClient.CREATE_SHIPPING_ORDER_FALLBACK)).accepts(hints);
+            assertThat(RuntimeHintsPredicates.reflection().onMethod(PackageShippingServiceClient.class, PackageShippingServiceClient.GET_ORDER_DETAILS_FALLBACK)).accepts(hints);
+        }
+
+        @Test
+        void should_register_downstream_records_for_binding() {
+            // Given
+            RuntimeHints hints = new RuntimeHints();
+
+            // When
+            new RegisterReflectionForBindingProcessor().registerReflectionHints(hints.reflection(), NativeHintsConfig.class);
+
+            // Then
+            assertThat(RuntimeHintsPredicates.reflection().onType(ShippingOrder.class)).accepts(hints);
+            assertThat(RuntimeHintsPredicates.reflection().onMethod(ShippingOrderDetails.class, "orderStatus")).accepts(hints);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.zlatko.packageselfservicebackend.utils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class ServerTimingTest {
+
+    @AfterEach
+    void tearDown() {
+        ServerTiming.clear();
+    }
+
+    @Nested
+    class HeaderValueTests {
+
+        @Test
+        void should_sum_repeated_stages_and_describe_their_count() {
+            // Given
+            ServerTiming serverTiming = ServerTiming.start();
+
+            // When
+            serverTiming.add("sender", 1_500_000);
+            serverTiming.add("shipping", 10_000_000);
+            serverTiming.add("shipping", 20_000_000);
+
+            // Then
+            assertThat(serverTiming.toHeaderValue()).isEqualTo("sender;dur=1.50, shipping;dur=30.00;desc=\"2 calls\"");
+            assertThat(serverTiming.toLogValue()).isEqualTo("sender=1.50 shipping=30.00");
+        }
+
+        @Test
+        void should_prefix_downstream_stages_and_skip_malformed_ones() {
+            // Given
+            ServerTiming serverTiming = ServerTiming.start();
+
+            // When
+            ServerTiming.recordDownstream("shipping-", List.of("db;dur=2.5, app;desc=\"no duration\", broken;dur=abc"));
+            ServerTiming.recordDownstream("shipping-", List.of("db;dur=0.5"));
+
+            // Then
+            assertThat(serverTiming.toHeaderValue()).isEqualTo("shipping-db;dur=3.00;desc=\"2 calls\"");
+        }
+    }
+
+    @Nested
+    class RecordTests {
+
+        @Test
+        void should_run_supplier_when_no_recorder_is_bound() {
+            // When
+            String result = ServerTiming.record("sender", () -> "result");
+
+            // Then
+            assertThat(result).isEqualTo("result");
+        }
+
+        @Test
+        void should_record_on_other_threads_when_function_is_propagated() {
+            // Given
+            ServerTiming serverTiming = ServerTiming.start();
+
+            // When
+            String result = CompletableFuture.supplyAsync(() -> "input")
+                    .thenApplyAsync(ServerTiming.propagate(input -> ServerTiming.record("enrich", () -> input + "-enriched")))
+                    .join();
+
+            // Then
+            assertThat(result).isEqualTo("input-enriched");
+            assertThat(serverTiming.toHeaderValue()).startsWith("enrich;dur=");
+        }
+    }
+}
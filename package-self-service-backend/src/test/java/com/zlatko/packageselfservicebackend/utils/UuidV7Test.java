@@ -0,0 +1,74 @@
+package com.zlatko.packageselfservicebackend.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class UuidV7Test {
+
+    @Nested
+    class GenerateTests {
+
+        @Test
+        void should_generate_version_7_uuid_with_current_timestamp() {
+            // Given
+            long before = System.currentTimeMillis();
+
+            // When
+            UUID uuid = UuidV7.generate();
+
+            // Then
+            assertThat(uuid.version()).isEqualTo(7);
+            assertThat(uuid.variant()).isEqualTo(2);
+            assertThat(uuid.toString()).matches(GlobalConstants.UUID_REGEX_PATTERN);
+            assertThat(UuidV7.timestampMillis(uuid)).isBetween(before, System.currentTimeMillis() + 1);
+        }
+
+        @Test
+        void should_generate_strictly_increasing_uuids_within_the_same_millisecond() {
+            // Given
+            List<UUID> uuids = new ArrayList<>();
+
+            // When
+            for (int i = 0; i < 10_000; i++) {
+                uuids.add(UuidV7.generate());
+            }
+
+            // Then
+            for (int i = 1; i < uuids.size(); i++) {
+                // Unsigned comparison of the time-ordered most significant bits
+                assertThat(Long.compareUnsigned(uuids.get(i).getMostSignificantBits(), uuids.get(i - 1).getMostSignificantBits())).isPositive();
+            }
+        }
+
+        @Test
+        void should_generate_unique_uuids_across_threads() {
+            // Given
+            ConcurrentHashMap.KeySetView<UUID, Boolean> uuids = ConcurrentHashMap.newKeySet();
+
+            // When
+            try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+                for (int thread = 0; thread < 8; thread++) {
+                    executor.submit(() -> {
+                        for (int i = 0; i < 10_000; i++) {
+                            uuids.add(UuidV7.generate());
+                        }
+                    });
+                }
+            }
+
+            // Then
+            assertThat(uuids).hasSize(80_000);
+        }
+    }
+}
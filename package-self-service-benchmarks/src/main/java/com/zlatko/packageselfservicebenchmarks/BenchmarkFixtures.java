@@ -0,0 +1,86 @@
+package com.zlatko.packageselfservicebenchmarks;
+
+import com.zlatko.packageselfservicebackend.clients.dtos.ShippingOrderDetails;
+import com.zlatko.packageselfservicebackend.clients.dtos.enums.OrderStatus;
+import com.zlatko.packageselfservicebackend.clients.dtos.enums.PackageSize;
+import com.zlatko.packageselfservicebackend.model.dtos.Package;
+import com.zlatko.packageselfservicebackend.model.dtos.PackageDetails;
+import com.zlatko.packageselfservicebackend.model.entities.EmployeeEntity;
+import com.zlatko.packageselfservicebackend.model.entities.PackageEntity;
+import com.zlatko.packageselfservicebackend.services.PackageDetailsMapper;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Realistic input data shared by the benchmarks, based on the sample employees of the Flyway migration.
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    static EmployeeEntity employee(String id, String name) {
+        EmployeeEntity employee = new EmployeeEntity();
+        employee.setId(UUID.fromString(id));
+        employee.setName(name);
+        employee.setStreet("123 Oak St");
+        employee.setCity("Springfield");
+        employee.setState("IL");
+        employee.setPostalCode("62704");
+        employee.setCountry("USA");
+        return employee;
+    }
+
+    static EmployeeEntity sender() {
+        return employee("c1a5a8e8-1b0e-4c6c-8342-576b9a9e6b5f", "Alice Johnson");
+    }
+
+    static EmployeeEntity recipient() {
+        return employee("d2b7f9e9-2c1d-4e7a-8b3f-7d0e6c2a8c7f", "Bob Smith");
+    }
+
+    static PackageEntity packageEntity(int index) {
+        UUID orderId = UUID.randomUUID();
+        return PackageEntity.builder()
+                .id(UUID.randomUUID())
+                .packageName("Birthday Present " + index)
+                .weightInGrams(500)
+                .sender(sender())
+                .receiver(recipient())
+                .downstreamOrderUrl("http://localhost:8443/shippingOrders/" + orderId)
+                .dateOfRegistration(LocalDateTime.now())
+                .build();
+    }
+
+    static ShippingOrderDetails shippingOrderDetails(PackageEntity packageEntity) {
+        return new ShippingOrderDetails(
+                packageEntity.getId().toString(),
+                packageEntity.getPackageName(),
+                PackageSize.M,
+                packageEntity.getReceiver().getPostalCode(),
+                packageEntity.getReceiver().getStreet(),
+                packageEntity.getReceiver().getName(),
+                OrderStatus.SENT,
+                LocalDate.now().plusWeeks(1),
+                null
+        );
+    }
+
+    static List<PackageDetails> packageDetailsList(int size) {
+        return IntStream.range(0, size)
+                .mapToObj(BenchmarkFixtures::packageEntity)
+                .map(packageEntity -> PackageDetailsMapper.toPackageDetails(packageEntity, shippingOrderDetails(packageEntity)))
+                .toList();
+    }
+
+    static Package validPackage() {
+        return new Package("Birthday Present", 500, recipient().getId().toString(), sender().getId().toString());
+    }
+
+    static Package senderIsRecipientPackage() {
+        return new Package("Birthday Present", 500, sender().getId().toString(), sender().getId().toString());
+    }
+}
@@ -0,0 +1,68 @@
+package com.zlatko.packageselfservicebenchmarks;
+
+import com.zlatko.packageselfservicebackend.utils.CorrelationIdFilter;
+import com.zlatko.packageselfservicebackend.utils.GlobalConstants;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Benchmarks the CorrelationIdFilter with and without an incoming X-Correlation-ID. <br>
+ * The mock request and response are created per invocation, their cost is measured separately by mockExchange.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CorrelationIdFilterBenchmark {
+
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> { };
+
+    private CorrelationIdFilter filter;
+    private String correlationId;
+
+    @Setup
+    public void setUp() {
+        filter = new CorrelationIdFilter();
+        correlationId = UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public void mockExchange(Blackhole blackhole) {
+        blackhole.consume(new MockHttpServletRequest());
+        blackhole.consume(new MockHttpServletResponse());
+    }
+
+    @Benchmark
+    public MockHttpServletResponse doFilterWithoutCorrelationId() throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest(), response, NO_OP_CHAIN);
+        return response;
+    }
+
+    @Benchmark
+    public MockHttpServletResponse doFilterWithCorrelationId() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(GlobalConstants.X_CORRELATION_ID, correlationId);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, NO_OP_CHAIN);
+        return response;
+    }
+}
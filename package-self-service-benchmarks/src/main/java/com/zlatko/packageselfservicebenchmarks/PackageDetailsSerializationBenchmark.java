@@ -0,0 +1,57 @@
+package com.zlatko.packageselfservicebenchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.zlatko.packageselfservicebackend.model.dtos.PackageDetails;
+import com.zlatko.packageselfservicebackend.model.dtos.PackageDetailsFields;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the Jackson serialization of the list endpoint's response body,
+ * with an ObjectMapper configured like the Spring Boot default one (ISO dates instead of timestamps).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PackageDetailsSerializationBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    private int listSize;
+
+    private ObjectWriter writer;
+    private List<PackageDetails> packageDetails;
+
+    @Setup
+    public void setUp() {
+        writer = JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build()
+                .writer(PackageDetailsFields.filterProvider(Set.of())); // all fields, like the controller without a fields parameter
+        packageDetails = BenchmarkFixtures.packageDetailsList(listSize);
+    }
+
+    @Benchmark
+    public byte[] serializePackageDetailsList() throws JsonProcessingException {
+        return writer.writeValueAsBytes(packageDetails);
+    }
+}
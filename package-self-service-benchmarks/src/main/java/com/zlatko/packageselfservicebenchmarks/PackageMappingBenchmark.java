@@ -0,0 +1,75 @@
+package com.zlatko.packageselfservicebenchmarks;
+
+import com.zlatko.packageselfservicebackend.clients.dtos.ShippingOrderDetails;
+import com.zlatko.packageselfservicebackend.clients.dtos.enums.PackageSize;
+import com.zlatko.packageselfservicebackend.model.dtos.PackageDetails;
+import com.zlatko.packageselfservicebackend.model.entities.EmployeeEntity;
+import com.zlatko.packageselfservicebackend.model.entities.PackageEntity;
+import com.zlatko.packageselfservicebackend.services.PackageDetailsMapper;
+import com.zlatko.packageselfservicebackend.services.PackageSelfServiceService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the mapping done per package by the PackageSelfServiceService: <br>
+ *  - package size from the weight <br>
+ *  - recipient address construction <br>
+ *  - package entity and downstream order details to package details <br>
+ *  - package entity alone to package details (sparse fieldsets without downstream fields)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PackageMappingBenchmark {
+
+    // One weight per package size, so every branch of the switch is measured
+    @Param({"100", "500", "5000", "20000"})
+    private int weightInGrams;
+
+    private PackageSelfServiceService service;
+    private EmployeeEntity recipient;
+    private PackageEntity packageEntity;
+    private ShippingOrderDetails shippingOrderDetails;
+
+    @Setup
+    public void setUp() {
+        // mapPackageSize does not use any of the service's dependencies
+        service = new PackageSelfServiceService(null, null, null, null, null, null);
+        recipient = BenchmarkFixtures.recipient();
+        packageEntity = BenchmarkFixtures.packageEntity(1);
+        shippingOrderDetails = BenchmarkFixtures.shippingOrderDetails(packageEntity);
+    }
+
+    @Benchmark
+    public PackageSize mapPackageSize() {
+        return service.mapPackageSize(weightInGrams);
+    }
+
+    @Benchmark
+    public String constructRecipientAddress() {
+        return PackageDetailsMapper.constructRecipientAddress(recipient);
+    }
+
+    @Benchmark
+    public PackageDetails toPackageDetails() {
+        return PackageDetailsMapper.toPackageDetails(packageEntity, shippingOrderDetails);
+    }
+
+    @Benchmark
+    public PackageDetails toLocalPackageDetails() {
+        return PackageDetailsMapper.toPackageDetails(packageEntity);
+    }
+}
@@ -0,0 +1,80 @@
+package com.zlatko.packageselfservicebenchmarks;
+
+import com.zlatko.packageselfservicebackend.model.dtos.Package;
+import com.zlatko.packageselfservicebackend.model.dtos.annotations.SenderIsNotRecipientValidator;
+import com.zlatko.packageselfservicebackend.utils.GlobalConstants;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the bean-validation pass done on every submitted Package: <br>
+ *  - the full validation of a valid and of an invalid (sender is recipient) package <br>
+ *  - the SenderIsNotRecipientValidator on its own <br>
+ *  - the UUID regex on its own
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PackageValidationBenchmark {
+
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private SenderIsNotRecipientValidator senderIsNotRecipientValidator;
+    private Pattern uuidPattern;
+    private Package validPackage;
+    private Package senderIsRecipientPackage;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        senderIsNotRecipientValidator = new SenderIsNotRecipientValidator();
+        uuidPattern = Pattern.compile(GlobalConstants.UUID_REGEX_PATTERN);
+        validPackage = BenchmarkFixtures.validPackage();
+        senderIsRecipientPackage = BenchmarkFixtures.senderIsRecipientPackage();
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Package>> validateValidPackage() {
+        return validator.validate(validPackage);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Package>> validateSenderIsRecipientPackage() {
+        return validator.validate(senderIsRecipientPackage);
+    }
+
+    @Benchmark
+    public boolean senderIsNotRecipientValidator() {
+        return senderIsNotRecipientValidator.isValid(validPackage, null);
+    }
+
+    @Benchmark
+    public boolean uuidRegex() {
+        return uuidPattern.matcher(validPackage.senderId()).matches();
+    }
+}
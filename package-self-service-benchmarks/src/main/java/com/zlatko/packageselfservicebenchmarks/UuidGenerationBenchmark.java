@@ -0,0 +1,52 @@
+package com.zlatko.packageselfservicebenchmarks;
+
+import com.zlatko.packageselfservicebackend.utils.UuidV7;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares random (version 4) with time-ordered (version 7) UUID generation, single threaded and
+ * with 8 threads to show the contention on the shared SecureRandom and on the UuidV7 counter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UuidGenerationBenchmark {
+
+    @Benchmark
+    public UUID randomUuid() {
+        return UUID.randomUUID();
+    }
+
+    @Benchmark
+    public UUID uuidV7() {
+        return UuidV7.generate();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public UUID randomUuidContended() {
+        return UUID.randomUUID();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public UUID uuidV7Contended() {
+        return UuidV7.generate();
+    }
+
+    @Benchmark
+    public String uuidV7String() {
+        return UuidV7.generate().toString();
+    }
+}
@@ -0,0 +1,70 @@
+package com.zlatko.packageselfserviceloadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latency histogram (in microseconds) and error count of one endpoint.
+ */
+class EndpointStats {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(2);
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final String endpoint;
+    private final Histogram histogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final LongAdder errors = new LongAdder();
+
+    EndpointStats(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    String endpoint() {
+        return endpoint;
+    }
+
+    void record(long latencyNanos, boolean success) {
+        histogram.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS));
+        if (!success) {
+            errors.increment();
+        }
+    }
+
+    void reset() {
+        histogram.reset();
+        errors.reset();
+    }
+
+    String summary(double seconds) {
+        long count = histogram.getTotalCount();
+        return "%-8s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f".formatted(
+                endpoint, count, errors.sum(), count / seconds,
+                millis(50), millis(90), millis(99), millis(99.9), histogram.getMaxValue() / MICROS_PER_MILLI);
+    }
+
+    static String summaryHeader() {
+        return "%-8s %9s %7s %10s %9s %9s %9s %9s %9s".formatted(
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+    }
+
+    /**
+     * Writes the full percentile distribution in the HdrHistogram format (in milliseconds),
+     * which can be plotted and compared between runs.
+     */
+    void writePercentileDistribution(Path outputDirectory) throws IOException {
+        Files.createDirectories(outputDirectory);
+        try (PrintStream out = new PrintStream(Files.newOutputStream(outputDirectory.resolve(endpoint + ".hgrm")))) {
+            histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+        }
+    }
+
+    private double millis(double percentile) {
+        return histogram.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+    }
+}
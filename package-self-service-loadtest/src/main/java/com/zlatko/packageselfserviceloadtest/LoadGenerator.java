@@ -0,0 +1,190 @@
+package com.zlatko.packageselfserviceloadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Drives a mix of submit, detail and list traffic against the backend. <br>
+ * Open model ({@code rate > 0}): requests are started on a fixed schedule, independent of the responses,
+ * and latency is measured from the scheduled start to avoid coordinated omission. <br>
+ * Closed model: a fixed number of virtual users send requests back to back.
+ */
+@Slf4j
+class LoadGenerator {
+
+    private static final String API_PATH = "/api/package-self-service";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(90);
+
+    private final LoadTestConfig config;
+    private final String baseUrl;
+    private final List<String> employeeIds;
+    private final HttpClient httpClient;
+    private final KnownPackages knownPackages = new KnownPackages();
+
+    final EndpointStats submitStats = new EndpointStats("submit");
+    final EndpointStats detailStats = new EndpointStats("detail");
+    final EndpointStats listStats = new EndpointStats("list");
+
+    LoadGenerator(LoadTestConfig config, String baseUrl, List<String> employeeIds) {
+        this.config = config;
+        this.baseUrl = baseUrl;
+        this.employeeIds = employeeIds;
+        this.httpClient = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    /**
+     * Submits packages for every sender, so detail and list requests have data from the start.
+     */
+    void prefill() {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String senderId : employeeIds) {
+                executor.submit(() -> {
+                    for (int i = 0; i < config.prefillPerSender(); i++) {
+                        submit(senderId, System.nanoTime(), null);
+                    }
+                });
+            }
+        }
+        log.info("Prefilled {} packages", knownPackages.size());
+    }
+
+    /**
+     * Runs the traffic mix for the given duration, recording into the endpoint stats.
+     */
+    void run(Duration duration) {
+        long end = System.nanoTime() + duration.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            if (config.rate() > 0) {
+                long intervalNanos = 1_000_000_000L / config.rate();
+                long scheduledStart = System.nanoTime();
+                while (scheduledStart < end) {
+                    long start = scheduledStart;
+                    executor.submit(() -> sendRandomRequest(start));
+                    scheduledStart += intervalNanos;
+                    LockSupport.parkNanos(scheduledStart - System.nanoTime());
+                }
+            } else {
+                for (int i = 0; i < config.concurrency(); i++) {
+                    executor.submit(() -> {
+                        while (System.nanoTime() < end) {
+                            sendRandomRequest(System.nanoTime());
+                        }
+                    });
+                }
+            }
+        }
+    }
+
+    void resetStats() {
+        submitStats.reset();
+        detailStats.reset();
+        listStats.reset();
+    }
+
+    private void sendRandomRequest(long scheduledStart) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String senderId = employeeIds.get(random.nextInt(employeeIds.size()));
+        int pick = random.nextInt(config.submitWeight() + config.detailWeight() + config.listWeight());
+        if (pick < config.submitWeight()) {
+            submit(senderId, scheduledStart, submitStats);
+        } else if (pick < config.submitWeight() + config.detailWeight()) {
+            KnownPackage knownPackage = knownPackages.random();
+            if (knownPackage == null) {
+                submit(senderId, scheduledStart, submitStats);
+            } else {
+                send(HttpRequest.newBuilder(URI.create("%s%s/%s?senderId=%s".formatted(baseUrl, API_PATH, knownPackage.packageId(), knownPackage.senderId())))
+                        .GET(), scheduledStart, detailStats);
+            }
+        } else {
+            send(HttpRequest.newBuilder(URI.create("%s%s?senderId=%s".formatted(baseUrl, API_PATH, senderId))).GET(), scheduledStart, listStats);
+        }
+    }
+
+    private void submit(String senderId, long scheduledStart, EndpointStats stats) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String recipientId = employeeIds.get(random.nextInt(employeeIds.size()));
+        while (recipientId.equals(senderId)) {
+            recipientId = employeeIds.get(random.nextInt(employeeIds.size()));
+        }
+        String body = """
+                {"packageName":"load-test-%s","weightInGrams":%d,"recipientId":"%s","senderId":"%s"}"""
+                .formatted(UUID.randomUUID(), random.nextInt(50, 20_000), recipientId, senderId);
+        HttpResponse<String> response = send(HttpRequest.newBuilder(URI.create(baseUrl + API_PATH))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)), scheduledStart, stats);
+        if (response != null && response.statusCode() == 201) {
+            response.headers().firstValue("Location")
+                    .map(location -> location.substring(location.lastIndexOf('/') + 1))
+                    .ifPresent(packageId -> knownPackages.add(new KnownPackage(senderId, packageId)));
+        }
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request, long scheduledStart, EndpointStats stats) {
+        HttpResponse<String> response = null;
+        try {
+            response = httpClient.send(request.timeout(REQUEST_TIMEOUT).build(), HttpResponse.BodyHandlers.ofString());
+        } catch (Exception e) {
+            log.debug("Request failed", e);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (stats != null) {
+            stats.record(System.nanoTime() - scheduledStart, response != null && response.statusCode() < 400);
+        }
+        return response;
+    }
+
+    private record KnownPackage(String senderId, String packageId) {
+    }
+
+    /**
+     * Packages submitted during the run, to pick detail requests from.
+     */
+    private static class KnownPackages {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final List<KnownPackage> packages = new ArrayList<>();
+
+        void add(KnownPackage knownPackage) {
+            lock.lock();
+            try {
+                packages.add(knownPackage);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        KnownPackage random() {
+            lock.lock();
+            try {
+                return packages.isEmpty() ? null : packages.get(ThreadLocalRandom.current().nextInt(packages.size()));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return packages.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
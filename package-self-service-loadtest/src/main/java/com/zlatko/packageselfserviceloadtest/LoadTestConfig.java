@@ -0,0 +1,79 @@
+package com.zlatko.packageselfserviceloadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Configuration of a load test run, read from {@code loadtest.*} system properties. <br>
+ * Every other system property (e.g. {@code resilience4j.ratelimiter.instances.package-self-service-service.limit-for-period})
+ * is picked up by the backend's Spring environment as usual.
+ *
+ * @param rate target requests per second (open model), when 0 the concurrency is used instead
+ * @param concurrency number of virtual users sending requests back to back (closed model)
+ * @param warmup warmup duration, requests are sent but not reported
+ * @param duration measured duration
+ * @param submitWeight relative weight of package submissions in the traffic mix
+ * @param detailWeight relative weight of package detail requests in the traffic mix
+ * @param listWeight relative weight of package list requests in the traffic mix
+ * @param employees number of employees (senders and recipients) to seed
+ * @param prefillPerSender number of packages submitted per sender before the warmup
+ * @param stubLatencyMedian median latency of the stub package-shipping-service
+ * @param stubLatencySigma sigma of the log-normal latency distribution of the stub, 0 for a fixed latency
+ * @param stubErrorRate fraction of stub requests answered with a 500 Internal Server Error
+ * @param postgresImage the Postgres image to start, must be available locally when running without network access
+ * @param datasourceUrl an existing database to use instead of a container, empty for a container
+ * @param outputDirectory directory for the HdrHistogram percentile distribution files
+ */
+record LoadTestConfig(
+        int rate,
+        int concurrency,
+        Duration warmup,
+        Duration duration,
+        int submitWeight,
+        int detailWeight,
+        int listWeight,
+        int employees,
+        int prefillPerSender,
+        Duration stubLatencyMedian,
+        double stubLatencySigma,
+        double stubErrorRate,
+        String postgresImage,
+        String datasourceUrl,
+        Path outputDirectory
+) {
+
+    static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig(
+                Integer.getInteger("loadtest.rate", 0),
+                Integer.getInteger("loadtest.concurrency", 20),
+                Duration.ofSeconds(Integer.getInteger("loadtest.warmup-seconds", 10)),
+                Duration.ofSeconds(Integer.getInteger("loadtest.duration-seconds", 60)),
+                Integer.getInteger("loadtest.mix.submit", 10),
+                Integer.getInteger("loadtest.mix.detail", 60),
+                Integer.getInteger("loadtest.mix.list", 30),
+                Integer.getInteger("loadtest.employees", 50),
+                Integer.getInteger("loadtest.prefill-per-sender", 5),
+                Duration.ofMillis(Integer.getInteger("loadtest.stub.latency-median-ms", 20)),
+                Double.parseDouble(System.getProperty("loadtest.stub.latency-sigma", "0.5")),
+                Double.parseDouble(System.getProperty("loadtest.stub.error-rate", "0.0")),
+                System.getProperty("loadtest.postgres-image", "postgres:17.0"),
+                System.getProperty("loadtest.datasource.url", ""),
+                Path.of(System.getProperty("loadtest.output-dir", "target/loadtest"))
+        );
+    }
+
+    @Override
+    public String toString() {
+        return """
+                model: %s
+                warmup: %ss, duration: %ss
+                mix: submit=%d, detail=%d, list=%d
+                employees: %d, prefill per sender: %d
+                stub: latency median=%sms, sigma=%s, error rate=%s"""
+                .formatted(rate > 0 ? "open, %d req/s".formatted(rate) : "closed, %d virtual users".formatted(concurrency),
+                        warmup.toSeconds(), duration.toSeconds(),
+                        submitWeight, detailWeight, listWeight,
+                        employees, prefillPerSender,
+                        stubLatencyMedian.toMillis(), stubLatencySigma, stubErrorRate);
+    }
+}
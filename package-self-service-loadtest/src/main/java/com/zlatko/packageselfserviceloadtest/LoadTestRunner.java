@@ -0,0 +1,107 @@
+package com.zlatko.packageselfserviceloadtest;
+
+import com.zlatko.packageselfservicebackend.PackageSelfServiceBackendApplication;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * End-to-end load test of the package-self-service-backend. <br>
+ * Starts Postgres (Testcontainers), a stub package-shipping-service and the backend in-process, seeds employees,
+ * prefills packages, then drives a warmup and a measured run and reports the latency percentiles per endpoint. <br>
+ * Run: {@code mvn exec:java -Dloadtest.rate=200 -Dloadtest.duration-seconds=120}
+ */
+@Slf4j
+public class LoadTestRunner {
+
+    public static void main(String[] args) throws IOException {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        log.info("Load test configuration:\n{}", config);
+
+        PostgreSQLContainer<?> postgres = config.datasourceUrl().isEmpty()
+                ? new PostgreSQLContainer<>(DockerImageName.parse(config.postgresImage()).asCompatibleSubstituteFor("postgres"))
+                : null;
+        if (postgres != null) {
+            postgres.start();
+        }
+        try (StubShippingService stub = new StubShippingService(config);
+             ConfigurableApplicationContext backend = startBackend(postgres, config, stub)) {
+            String baseUrl = "http://localhost:%d".formatted(((WebServerApplicationContext) backend).getWebServer().getPort());
+            List<String> employeeIds = seedEmployees(backend, config.employees());
+
+            LoadGenerator generator = new LoadGenerator(config, baseUrl, employeeIds);
+            generator.prefill();
+
+            log.info("Warming up for {}s", config.warmup().toSeconds());
+            generator.run(config.warmup());
+            generator.resetStats();
+
+            log.info("Measuring for {}s", config.duration().toSeconds());
+            long start = System.nanoTime();
+            generator.run(config.duration());
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+            report(config, generator, seconds);
+        } finally {
+            if (postgres != null) {
+                postgres.stop();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startBackend(PostgreSQLContainer<?> postgres, LoadTestConfig config, StubShippingService stub) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("server.port", 0);
+        properties.put("app.client.packageShippingService.baseurl", stub.baseUrl());
+        if (postgres != null) {
+            properties.put("spring.datasource.url", postgres.getJdbcUrl());
+            properties.put("spring.datasource.username", postgres.getUsername());
+            properties.put("spring.datasource.password", postgres.getPassword());
+        } else {
+            // Credentials are passed as -Dspring.datasource.username/password
+            properties.put("spring.datasource.url", config.datasourceUrl());
+        }
+        return new SpringApplicationBuilder(PackageSelfServiceBackendApplication.class)
+                .properties(properties)
+                .run();
+    }
+
+    private static List<String> seedEmployees(ConfigurableApplicationContext backend, int count) {
+        JdbcTemplate jdbcTemplate = backend.getBean(JdbcTemplate.class);
+        List<String> employeeIds = new ArrayList<>(jdbcTemplate.queryForList("SELECT id::text FROM employees", String.class));
+        List<Object[]> newEmployees = new ArrayList<>();
+        for (int i = employeeIds.size(); i < count; i++) {
+            UUID id = UUID.randomUUID();
+            employeeIds.add(id.toString());
+            newEmployees.add(new Object[]{id, "Load Test Employee " + i, i + " Load St", "Springfield", "IL", "62704", "USA"});
+        }
+        // The backend disables auto-commit, so the inserts need a transaction
+        new TransactionTemplate(backend.getBean(PlatformTransactionManager.class)).executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate("INSERT INTO employees (id, name, street, city, state, postal_code, country) VALUES (?, ?, ?, ?, ?, ?, ?)", newEmployees));
+        log.info("Seeded {} employees, {} in total", newEmployees.size(), employeeIds.size());
+        return employeeIds;
+    }
+
+    private static void report(LoadTestConfig config, LoadGenerator generator, double seconds) throws IOException {
+        StringBuilder report = new StringBuilder(EndpointStats.summaryHeader());
+        for (EndpointStats stats : Stream.of(generator.submitStats, generator.detailStats, generator.listStats).toList()) {
+            report.append('\n').append(stats.summary(seconds));
+            stats.writePercentileDistribution(config.outputDirectory());
+        }
+        log.info("Results over {}s:\n{}", "%.1f".formatted(seconds), report);
+        log.info("Percentile distributions written to {}", config.outputDirectory().toAbsolutePath());
+    }
+}
@@ -0,0 +1,181 @@
+package com.zlatko.packageselfserviceloadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-process stub of the package-shipping-service API with configurable latency and error distributions. <br>
+ * The latency of every request is drawn from a log-normal distribution around the configured median,
+ * a configurable fraction of requests fails with a 500 Internal Server Error. <br>
+ * Orders are kept in memory and package names are unique, like in the real service. <br>
+ * The change feed returns the orders in creation order, their status never changes afterwards. Its cursor is
+ * {@code <number of returned orders>:<last order ID>}, so the backend's sync job reads it like the real one.
+ */
+@Slf4j
+class StubShippingService implements AutoCloseable {
+
+    private static final String SHIPPING_ORDERS = "/shippingOrders";
+    private static final String SHIPPING_ORDER_CHANGES = SHIPPING_ORDERS + "/changes";
+    private static final String[] ORDER_STATUSES = {"IN_PROGRESS", "SENT", "DELIVERED"};
+
+    private final LoadTestConfig config;
+    private final Map<String, String> packageNamesByOrderId = new ConcurrentHashMap<>();
+    private final Map<String, String> orderIdsByPackageName = new ConcurrentHashMap<>();
+    // Guarded by itself
+    private final List<String> orderIdsInCreationOrder = new ArrayList<>();
+    private final HttpServer server;
+
+    StubShippingService(LoadTestConfig config) throws IOException {
+        this.config = config;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        this.server.createContext(SHIPPING_ORDERS, this::handle);
+        this.server.start();
+        log.info("Stub package-shipping-service started on {}", baseUrl());
+    }
+
+    String baseUrl() {
+        return "http://%s:%d".formatted(server.getAddress().getHostString(), server.getAddress().getPort());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            simulateLatency();
+            if (ThreadLocalRandom.current().nextDouble() < config.stubErrorRate()) {
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            if ("POST".equals(exchange.getRequestMethod()) && path.equals(SHIPPING_ORDERS)) {
+                createShippingOrder(exchange);
+            } else if ("GET".equals(exchange.getRequestMethod()) && path.equals(SHIPPING_ORDER_CHANGES)) {
+                getOrderChanges(exchange);
+            } else if ("GET".equals(exchange.getRequestMethod()) && path.startsWith(SHIPPING_ORDERS + "/")) {
+                getOrderDetails(exchange, path.substring(SHIPPING_ORDERS.length() + 1));
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+        }
+    }
+
+    private void createShippingOrder(HttpExchange exchange) throws IOException {
+        String packageName = extractPackageName(exchange.getRequestBody());
+        String orderId = UUID.randomUUID().toString();
+        if (orderIdsByPackageName.putIfAbsent(packageName, orderId) != null) {
+            exchange.sendResponseHeaders(409, -1);
+            return;
+        }
+        packageNamesByOrderId.put(orderId, packageName);
+        synchronized (orderIdsInCreationOrder) {
+            orderIdsInCreationOrder.add(orderId);
+        }
+        exchange.getResponseHeaders().add("Location", baseUrl() + SHIPPING_ORDERS + "/" + orderId);
+        exchange.sendResponseHeaders(201, -1);
+    }
+
+    private void getOrderDetails(HttpExchange exchange, String orderId) throws IOException {
+        String packageName = packageNamesByOrderId.get(orderId);
+        if (packageName == null) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+        sendJson(exchange, orderDetails(orderId, packageName));
+    }
+
+    private void getOrderChanges(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = queryParameters(exchange.getRequestURI().getRawQuery());
+        String since = parameters.get("since");
+        long sincePosition = since == null ? 0 : Long.parseLong(since.substring(0, since.indexOf(':')));
+        int limit = Integer.parseInt(parameters.getOrDefault("limit", "500"));
+        int position;
+        List<String> changedOrderIds;
+        boolean hasMore;
+        synchronized (orderIdsInCreationOrder) {
+            // A cursor stored by an earlier run against the same database restarts the feed
+            position = sincePosition > orderIdsInCreationOrder.size() ? 0 : (int) sincePosition;
+            int end = Math.min(orderIdsInCreationOrder.size(), position + limit);
+            changedOrderIds = List.copyOf(orderIdsInCreationOrder.subList(position, end));
+            hasMore = end < orderIdsInCreationOrder.size();
+        }
+        String cursor = changedOrderIds.isEmpty() ? since : (position + changedOrderIds.size()) + ":" + changedOrderIds.getLast();
+        String orders = String.join(",", changedOrderIds.stream()
+                .map(orderId -> orderDetails(orderId, packageNamesByOrderId.get(orderId)))
+                .toList());
+        sendJson(exchange, """
+                {"orders":[%s],"cursor":%s,"hasMore":%s}"""
+                .formatted(orders, cursor == null ? "null" : "\"" + cursor + "\"", hasMore));
+    }
+
+    private static String orderDetails(String orderId, String packageName) {
+        return """
+                {"packageId":"%s","packageName":"%s","packageSize":"M","postalCode":"62704","streetName":"123 Oak St",\
+                "receiverName":"Load Test","orderStatus":"%s","expectedDeliveryDate":"%s","actualDeliveryDateTime":null}"""
+                .formatted(orderId, packageName, ORDER_STATUSES[Math.floorMod(orderId.hashCode(), ORDER_STATUSES.length)], LocalDate.now().plusWeeks(1));
+    }
+
+    private static void sendJson(HttpExchange exchange, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static Map<String, String> queryParameters(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                int separator = parameter.indexOf('=');
+                if (separator > 0) {
+                    parameters.put(parameter.substring(0, separator), URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * Extracts the package name from the shipping order JSON without a full JSON parser,
+     * the load test generates package names without quotes or escapes.
+     */
+    private static String extractPackageName(InputStream requestBody) throws IOException {
+        String json = new String(requestBody.readAllBytes(), StandardCharsets.UTF_8);
+        int start = json.indexOf(':', json.indexOf("\"packageName\"")) + 1;
+        start = json.indexOf('"', start) + 1;
+        return json.substring(start, json.indexOf('"', start));
+    }
+
+    private void simulateLatency() {
+        double sigma = config.stubLatencySigma();
+        double factor = sigma > 0 ? Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()) : 1.0;
+        long latencyNanos = (long) (config.stubLatencyMedian().toNanos() * factor);
+        if (latencyNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(latencyNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,76 @@
+package com.zlatko.packageselfserviceloadtest;
+
+import com.zlatko.packageselfservicebackend.utils.UuidV7;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * Compares the insert throughput and the primary key index size of random (version 4) and
+ * time-ordered (version 7) UUID keys in Postgres. <br>
+ * Every key type gets its own table with a UUID primary key, filled with the same number of rows in batches. <br>
+ * Run: {@code mvn exec:java -Dexec.mainClass=com.zlatko.packageselfserviceloadtest.UuidInsertBenchmark -Dloadtest.uuid.rows=2000000}
+ */
+@Slf4j
+public class UuidInsertBenchmark {
+
+    public static void main(String[] args) throws SQLException {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        int rows = Integer.getInteger("loadtest.uuid.rows", 1_000_000);
+        int batchSize = Integer.getInteger("loadtest.uuid.batch-size", 1_000);
+
+        PostgreSQLContainer<?> postgres = config.datasourceUrl().isEmpty()
+                ? new PostgreSQLContainer<>(DockerImageName.parse(config.postgresImage()).asCompatibleSubstituteFor("postgres"))
+                : null;
+        if (postgres != null) {
+            postgres.start();
+        }
+        try (Connection connection = postgres != null
+                ? DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+                : DriverManager.getConnection(config.datasourceUrl(), System.getProperty("spring.datasource.username"), System.getProperty("spring.datasource.password"))) {
+            StringBuilder report = new StringBuilder("%-8s %10s %12s %12s %12s".formatted("key", "rows", "rows/s", "table", "pkey index"));
+            report.append('\n').append(run(connection, "uuid_v4_bench", UUID::randomUUID, rows, batchSize));
+            report.append('\n').append(run(connection, "uuid_v7_bench", UuidV7::generate, rows, batchSize));
+            log.info("UUID insert benchmark, {} rows in batches of {}:\n{}", rows, batchSize, report);
+        } finally {
+            if (postgres != null) {
+                postgres.stop();
+            }
+        }
+    }
+
+    private static String run(Connection connection, String table, Supplier<UUID> keys, int rows, int batchSize) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + table);
+            statement.execute("CREATE TABLE " + table + " (id UUID PRIMARY KEY, payload VARCHAR(255) NOT NULL)");
+        }
+        connection.setAutoCommit(false);
+        long start = System.nanoTime();
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + table + " (id, payload) VALUES (?, ?)")) {
+            for (int i = 1; i <= rows; i++) {
+                insert.setObject(1, keys.get());
+                insert.setString(2, "package-" + i);
+                insert.addBatch();
+                if (i % batchSize == 0 || i == rows) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement();
+             ResultSet sizes = statement.executeQuery("SELECT pg_size_pretty(pg_relation_size('%1$s')), pg_size_pretty(pg_relation_size('%1$s_pkey'))".formatted(table))) {
+            sizes.next();
+            return "%-8s %10d %12.0f %12s %12s".formatted(table.substring("uuid_".length(), "uuid_v4".length()), rows, rows / seconds, sizes.getString(1), sizes.getString(2));
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.zlatko.packageshippingservice.controller;
 
 import com.zlatko.packageshippingservice.model.dto.ShippingOrder;
+import com.zlatko.packageshippingservice.model.dto.ShippingOrderChanges;
 import com.zlatko.packageshippingservice.model.dto.ShippingOrderDetails;
 import com.zlatko.packageshippingservice.model.enums.OrderStatus;
 import com.zlatko.packageshippingservice.service.ShippingOrderService;
@@ -14,6 +15,7 @@ import java.util.Optional;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -27,10 +29,16 @@ import java.util.List;
 public class ShippingOrderController {
     private final ShippingOrderService shippingOrderService;
 
+    /**
+     * A request repeated with the same Idempotency-Key (e.g. a retry after a timeout) gets the Location of the order created by the first one.
+     */
     @PostMapping
-    public ResponseEntity<Void> createShippingOrder(@Valid @RequestBody ShippingOrder shippingOrderDTO, HttpServletRequest request) {
+    public ResponseEntity<Void> createShippingOrder(@Valid @RequestBody ShippingOrder shippingOrderDTO,
+                                                    @Pattern(regexp = GlobalConstants.IDEMPOTENCY_KEY_REGEX_PATTERN, message = "Invalid Idempotency-Key format.")
+                                                    @RequestHeader(value = GlobalConstants.IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                                    HttpServletRequest request) {
 
-        UUID createdOrderId = shippingOrderService.createShippingOrder(shippingOrderDTO);
+        UUID createdOrderId = shippingOrderService.createShippingOrder(shippingOrderDTO, idempotencyKey);
         log.trace("Created shipping order with ID: {}", createdOrderId);
 
         URI location = getOrderUri(request.getRequestURL().toString(), createdOrderId);
@@ -68,14 +76,31 @@ public class ShippingOrderController {
         return ResponseEntity.ok(orders);
     }
 
+    /**
+     * Change feed: the orders created or modified after the {@code since} cursor, oldest modification first. <br>
+     * Clients keep the returned cursor and request the next page with it right away while {@code hasMore}, later otherwise.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<ShippingOrderChanges> listOrderChanges(
+            @Pattern(regexp = GlobalConstants.CHANGE_CURSOR_REGEX_PATTERN, message = "Invalid since cursor format.")
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "500") @Min(1) @Max(1000) int limit) {
+        ShippingOrderChanges changes = shippingOrderService.getShippingOrderChanges(since, limit);
+        log.trace("Returning {} shipping order changes since {}", changes.orders().size(), since);
+        return ResponseEntity.ok(changes);
+    }
+
+    /**
+     * The order details are returned as the JSON bytes cached by the service, they are written as is.
+     */
     @GetMapping("/{orderId}")
-    public ResponseEntity<ShippingOrderDetails> getOrderDetails(
+    public ResponseEntity<byte[]> getOrderDetails(
             @Pattern(regexp = GlobalConstants.UUID_REGEX_PATTERN, message = "Invalid orderId format.")
             @PathVariable String orderId) {
-        Optional<ShippingOrderDetails> orderDetails = shippingOrderService.getOrderDetails(orderId);
-        log.trace("Returning shipping order details {}", orderDetails);
+        Optional<byte[]> orderDetails = shippingOrderService.getOrderDetailsJson(orderId);
+        log.trace("Returning shipping order details of {}, found: {}", orderId, orderDetails.isPresent());
         return orderDetails
-                .map(ResponseEntity::ok)
+                .map(json -> ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json))
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 }
@@ -0,0 +1,175 @@
+package com.zlatko.packageshippingservice.diagnostics;
+
+import com.zlatko.packageshippingservice.utils.GlobalConstants;
+import java.util.function.Supplier;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.Setter;
+import org.slf4j.MDC;
+
+/**
+ * Custom JDK Flight Recorder events of the shipping order operations, in the "Package Shipping Service" category of JDK Mission Control. <br>
+ * Every event carries the X-Correlation-ID of the request and the outcome (the simple name of the exception, if any),
+ * so a slow order or query can be found in a recording and matched with the logs of both services. <br>
+ * The events are only recorded while a recording is running (see {@link FlightRecordingEndpoint}), otherwise
+ * {@link #record(DomainEvent, Supplier)} only runs the operation.
+ */
+public final class DomainEvents {
+
+    private static final String CATEGORY = "Package Shipping Service";
+    private static final String SUCCESS = "success";
+
+    private DomainEvents() {
+    }
+
+    /**
+     * Runs the operation as the duration of the event. <br>
+     * The operation may set the dimensions only known with its result on the event.
+     *
+     * @param event the event describing the operation
+     * @param operation the operation
+     * @return the result of the operation
+     */
+    public static <E extends DomainEvent, T> T record(E event, Supplier<T> operation) {
+        if (!event.isEnabled()) {
+            return operation.get();
+        }
+        event.start();
+        try {
+            return operation.get();
+        } catch (RuntimeException e) {
+            event.failed(e);
+            throw e;
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Fields of all domain events. Stack traces are not recorded, the events are identified by their dimensions.
+     */
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public abstract static class DomainEvent extends Event {
+        @Label("Correlation ID")
+        String correlationId;
+        @Label("Outcome")
+        @Description("success, or the simple name of the exception")
+        String outcome;
+
+        void start() {
+            correlationId = MDC.get(GlobalConstants.X_CORRELATION_ID);
+            outcome = SUCCESS;
+            begin();
+        }
+
+        void failed(Throwable failure) {
+            outcome = failure.getClass().getSimpleName();
+        }
+    }
+
+    @Name("com.zlatko.packageshipping.CreateShippingOrder")
+    @Label("Create Shipping Order")
+    @Description("Creation of a shipping order, including the wait for its (group) commit")
+    public static class CreateShippingOrder extends DomainEvent {
+        @Label("Package Name")
+        String packageName;
+        @Label("Package Size")
+        String packageSize;
+        @Label("Idempotency Key")
+        String idempotencyKey;
+        @Label("Order ID")
+        @Setter
+        String orderId;
+        @Label("Replayed")
+        @Description("The order created earlier with the same Idempotency-Key was returned")
+        @Setter
+        boolean replayed;
+
+        public CreateShippingOrder(String packageName, String packageSize, String idempotencyKey) {
+            this.packageName = packageName;
+            this.packageSize = packageSize;
+            this.idempotencyKey = idempotencyKey;
+        }
+    }
+
+    @Name("com.zlatko.packageshipping.GetOrderDetails")
+    @Label("Get Order Details")
+    @Description("Lookup of the serialized details of an order, served from the order details cache when present")
+    public static class GetOrderDetails extends DomainEvent {
+        @Label("Order ID")
+        String orderId;
+        @Label("Cache Miss")
+        @Setter
+        boolean cacheMiss;
+        @Label("Found")
+        @Setter
+        boolean found;
+
+        public GetOrderDetails(String orderId) {
+            this.orderId = orderId;
+        }
+    }
+
+    @Name("com.zlatko.packageshipping.ListShippingOrders")
+    @Label("List Shipping Orders")
+    @Description("Page of the shipping orders, optionally filtered by status")
+    public static class ListShippingOrders extends DomainEvent {
+        @Label("Status")
+        String status;
+        @Label("Offset")
+        int offset;
+        @Label("Limit")
+        int limit;
+        @Label("Orders")
+        @Setter
+        int orders;
+
+        public ListShippingOrders(String status, int offset, int limit) {
+            this.status = status;
+            this.offset = offset;
+            this.limit = limit;
+        }
+    }
+
+    @Name("com.zlatko.packageshipping.GetShippingOrderChanges")
+    @Label("Get Shipping Order Changes")
+    @Description("Page of the change feed")
+    public static class GetShippingOrderChanges extends DomainEvent {
+        @Label("Since")
+        String since;
+        @Label("Limit")
+        int limit;
+        @Label("Orders")
+        @Setter
+        int orders;
+        @Label("Has More")
+        @Setter
+        boolean hasMore;
+
+        public GetShippingOrderChanges(String since, int limit) {
+            this.since = since;
+            this.limit = limit;
+        }
+    }
+
+    @Name("com.zlatko.packageshipping.RepositoryQuery")
+    @Label("Repository Query")
+    @Description("Invocation of a Spring Data repository method")
+    @Category({CATEGORY, "Repository"})
+    public static class RepositoryQuery extends DomainEvent {
+        @Label("Repository")
+        String repository;
+        @Label("Method")
+        String method;
+
+        public RepositoryQuery(String repository, String method) {
+            this.repository = repository;
+            this.method = method;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.zlatko.packageshippingservice.diagnostics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Data source proxy reporting every executed JDBC statement, with its duration, to the {@link QueryRecorder}. <br>
+ * Connections and statements are wrapped in JDK dynamic proxies. A statement remembers its SQL, its batch size and the types
+ * of its bind parameters (never their values), everything else is passed through. <br>
+ * The duration covers the execute call, which includes reading the rows: the PostgreSQL driver fetches all of them
+ * during the call unless a fetch size is set. <br>
+ * Closing the data source closes the target, so the connection pool is still shut down with the application context.
+ */
+public class InstrumentedDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private static final Class<?>[] NO_PARAMETERS = {};
+
+    private final Supplier<QueryRecorder> queryRecorder;
+
+    /**
+     * @param targetDataSource the data source to instrument
+     * @param queryRecorder supplies the recorder on the first statement, so creating the data source doesn't need its meter registry
+     */
+    public InstrumentedDataSource(DataSource targetDataSource, Supplier<QueryRecorder> queryRecorder) {
+        super(targetDataSource);
+        this.queryRecorder = queryRecorder;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(super.getConnection()));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(super.getConnection(username, password)));
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (getTargetDataSource() instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(InstrumentedDataSource.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Passes everything through to the connection, wrapping the created statements.
+     */
+    private final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            return switch (method.getName()) {
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "prepareStatement" -> proxy(PreparedStatement.class,
+                        new StatementHandler((Statement) InstrumentedDataSource.invoke(target, method, args), (String) args[0]));
+                case "prepareCall" -> proxy(CallableStatement.class,
+                        new StatementHandler((Statement) InstrumentedDataSource.invoke(target, method, args), (String) args[0]));
+                case "createStatement" -> proxy(Statement.class,
+                        new StatementHandler((Statement) InstrumentedDataSource.invoke(target, method, args), null));
+                default -> InstrumentedDataSource.invoke(target, method, args);
+            };
+        }
+    }
+
+    /**
+     * Times the execute calls of a statement and tracks what is needed to report them. <br>
+     * A statement is used by one thread at a time, like its connection.
+     */
+    private final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private String sql;
+        // Type of each bind parameter by index - 1, Void for null, kept until clearParameters like the values
+        private Class<?>[] parameterTypes = NO_PARAMETERS;
+        private int batchSize;
+
+        StatementHandler(Statement target, String sql) {
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(method, args);
+            }
+            switch (name) {
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "clearParameters" -> parameterTypes = NO_PARAMETERS;
+                case "addBatch" -> {
+                    batchSize++;
+                    if (sql == null && args != null) {
+                        sql = (String) args[0];
+                    }
+                }
+                case "clearBatch" -> batchSize = 0;
+                default -> {
+                    // setString(1, value), setNull(2, Types.INTEGER), ... but not the named parameters of a CallableStatement
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                        bindParameter(index, name.equals("setNull") || args[1] == null ? Void.class : args[1].getClass());
+                    }
+                }
+            }
+            return InstrumentedDataSource.invoke(target, method, args);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            String executedSql = args != null && args.length > 0 && args[0] instanceof String statementSql ? statementSql : sql;
+            boolean batch = method.getName().contains("Batch");
+            boolean failed = true;
+            long start = System.nanoTime();
+            try {
+                Object result = InstrumentedDataSource.invoke(target, method, args);
+                failed = false;
+                return result;
+            } finally {
+                queryRecorder.get().record(executedSql, System.nanoTime() - start, batch ? batchSize : 1, failed, parameterTypes);
+                if (batch) {
+                    batchSize = 0;
+                }
+            }
+        }
+
+        private void bindParameter(int index, Class<?> type) {
+            if (index < 1) {
+                return;
+            }
+            if (index > parameterTypes.length) {
+                parameterTypes = Arrays.copyOf(parameterTypes, index);
+            }
+            parameterTypes[index - 1] = type;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.zlatko.packageshippingservice.diagnostics;
+
+import java.util.Comparator;
+import java.util.List;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * JDBC statement diagnostics of the {@link QueryRecorder}, exposed at {@code /actuator/queries}: <br>
+ *  - GET lists the statements by total time (at most {@code limit}) and the slow queries, latest first <br>
+ *  - DELETE empties the slow query ring buffer <br>
+ * The latency distributions of the statements are published as the {@code jdbc.statements} metrics, tagged by the same
+ * statement ids.
+ */
+@Component
+@Endpoint(id = "queries")
+@ConditionalOnProperty(value = "app.diagnostics.queries.enabled", matchIfMissing = true)
+public class QueriesEndpoint {
+
+    private static final int DEFAULT_LIMIT = 20;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final QueryRecorder queryRecorder;
+
+    public QueriesEndpoint(QueryRecorder queryRecorder) {
+        this.queryRecorder = queryRecorder;
+    }
+
+    /**
+     * @param limit the maximum number of statements, 20 by default
+     * @return the statements by total time and the slow queries
+     */
+    @ReadOperation
+    public QueriesReport queries(@Nullable Integer limit) {
+        List<StatementReport> statements = queryRecorder.statements().stream()
+                .sorted(Comparator.comparingLong((QueryRecorder.StatementStatistics statement) -> statement.totalNanos.sum()).reversed())
+                .limit(limit == null ? DEFAULT_LIMIT : limit)
+                .map(QueriesEndpoint::toReport)
+                .toList();
+        return new QueriesReport(statements, queryRecorder.slowQueries());
+    }
+
+    /**
+     * Empties the slow query ring buffer, the statement totals are kept like their metrics.
+     */
+    @DeleteOperation
+    public void clearSlowQueries() {
+        queryRecorder.clearSlowQueries();
+    }
+
+    private static StatementReport toReport(QueryRecorder.StatementStatistics statement) {
+        long count = statement.count.sum();
+        long totalNanos = statement.totalNanos.sum();
+        return new StatementReport(statement.id, statement.operation, statement.sql, count, statement.executions.sum(),
+                statement.errors.sum(), totalNanos / NANOS_PER_MILLI, count == 0 ? 0 : totalNanos / NANOS_PER_MILLI / count,
+                statement.maxNanos.get() / NANOS_PER_MILLI);
+    }
+
+    /**
+     * @param statements the statements by total time
+     * @param slowQueries the slow queries, latest first
+     */
+    public record QueriesReport(List<StatementReport> statements, List<QueryRecorder.SlowQuery> slowQueries) {
+    }
+
+    /**
+     * @param id the statement id, also the statement tag of its metrics
+     * @param operation the first keyword of the SQL, e.g. select
+     * @param sql the normalized SQL
+     * @param count how many times the statement was executed
+     * @param executions the batched executions included, equal to count without batches
+     * @param errors how many executions threw an exception
+     * @param totalMillis the total time of the executions
+     * @param meanMillis the mean time of an execution
+     * @param maxMillis the longest execution
+     */
+    public record StatementReport(String id, String operation, String sql, long count, long executions, long errors,
+                                  double totalMillis, double meanMillis, double maxMillis) {
+    }
+}
@@ -0,0 +1,233 @@
+package com.zlatko.packageshippingservice.diagnostics;
+
+import com.zlatko.packageshippingservice.utils.GlobalConstants;
+import com.zlatko.packageshippingservice.utils.ServerTiming;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records the JDBC statements reported by the {@link InstrumentedDataSource}: <br>
+ *  - per statement, keyed by its normalized SQL (literals replaced by ?), a {@code jdbc.statements} timer tagged by the
+ *  statement id (hash of the normalized SQL) and operation, at most {@code max-statements} distinct ones, the others are
+ *  recorded as "other" <br>
+ *  - per request, the statements as the {@code sql} Server-Timing stage (counted by the {@link com.zlatko.packageshippingservice.utils.ServerTimingFilter}) <br>
+ *  - the statements slower than {@code slow-query-threshold}, with the types of their bind parameters and the
+ *  X-Correlation-ID of the request, in a ring buffer of the last {@code slow-query-capacity} ones <br>
+ * Statements that are not slow only cost a map lookup by their SQL string and a few counter updates.
+ */
+@Component
+@ConditionalOnProperty(value = "app.diagnostics.queries.enabled", matchIfMissing = true)
+public class QueryRecorder {
+
+    static final String OTHER = "other";
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    // Not part of an identifier (e.g. the p1_0 alias of Hibernate) or a $1 placeholder
+    private static final Pattern NUMERIC_LITERAL = Pattern.compile("(?<![\\w.$])\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin \\(\\?(?:, ?\\?)+\\)");
+
+    private final MeterRegistry meterRegistry;
+    private final long slowQueryThresholdNanos;
+    private final int maxStatements;
+    // By normalized SQL
+    private final Map<String, StatementStatistics> statements = new ConcurrentHashMap<>();
+    // By SQL as executed, so each distinct SQL string is only normalized once
+    private final Map<String, StatementStatistics> statementsBySql = new ConcurrentHashMap<>();
+    private final StatementStatistics other;
+    private final AtomicReferenceArray<SlowQuery> slowQueries;
+    private final AtomicLong slowQueryCount = new AtomicLong();
+
+    public QueryRecorder(MeterRegistry meterRegistry,
+                         @Value("${app.diagnostics.queries.slow-query-threshold:PT0.1S}") Duration slowQueryThreshold,
+                         @Value("${app.diagnostics.queries.slow-query-capacity:100}") int slowQueryCapacity,
+                         @Value("${app.diagnostics.queries.max-statements:500}") int maxStatements) {
+        this.meterRegistry = meterRegistry;
+        this.slowQueryThresholdNanos = slowQueryThreshold.toNanos();
+        this.maxStatements = maxStatements;
+        this.other = new StatementStatistics(OTHER, OTHER, OTHER, timer(OTHER, OTHER));
+        this.slowQueries = new AtomicReferenceArray<>(slowQueryCapacity);
+    }
+
+    /**
+     * Records an executed statement.
+     *
+     * @param sql the SQL of the statement, null if unknown (e.g. an empty batch of a plain statement)
+     * @param nanos the duration of the execution
+     * @param executions the number of batched executions, 1 if not a batch
+     * @param failed whether the execution threw an exception
+     * @param parameterTypes the types of the bind parameters by index - 1, Void for null, only read if the statement was slow
+     */
+    public void record(@Nullable String sql, long nanos, int executions, boolean failed, Class<?>[] parameterTypes) {
+        StatementStatistics statement = statement(sql == null ? OTHER : sql);
+        statement.record(nanos, executions, failed);
+        ServerTiming.recordNanos(GlobalConstants.STAGE_SQL, nanos);
+        if (nanos >= slowQueryThresholdNanos && slowQueries.length() > 0) {
+            long index = slowQueryCount.getAndIncrement();
+            slowQueries.set((int) (index % slowQueries.length()), new SlowQuery(Instant.now(), nanos / 1_000_000.0, statement.id,
+                    statement.sql, executions, parameterTypeNames(parameterTypes), MDC.get(GlobalConstants.X_CORRELATION_ID),
+                    Thread.currentThread().toString(), failed));
+        }
+    }
+
+    /**
+     * @return the recorded statements, in no particular order
+     */
+    public Collection<StatementStatistics> statements() {
+        List<StatementStatistics> all = new ArrayList<>(statements.values());
+        if (other.count.sum() > 0) {
+            all.add(other);
+        }
+        return all;
+    }
+
+    /**
+     * @return the slow queries in the ring buffer, latest first
+     */
+    public List<SlowQuery> slowQueries() {
+        long count = slowQueryCount.get();
+        List<SlowQuery> latest = new ArrayList<>();
+        for (long index = count - 1; index >= Math.max(0, count - slowQueries.length()); index--) {
+            SlowQuery slowQuery = slowQueries.get((int) (index % slowQueries.length()));
+            if (slowQuery != null) {
+                latest.add(slowQuery);
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Empties the slow query ring buffer.
+     */
+    public void clearSlowQueries() {
+        for (int i = 0; i < slowQueries.length(); i++) {
+            slowQueries.set(i, null);
+        }
+    }
+
+    /**
+     * Normalizes the SQL of a statement, so statements only differing by their literals are recorded as one: <br>
+     * whitespace is collapsed, string and numeric literals are replaced by ? and IN lists by a single ?.
+     *
+     * @param sql the SQL as executed
+     * @return the normalized SQL
+     */
+    static String normalize(String sql) {
+        String normalized = WHITESPACE.matcher(sql.strip()).replaceAll(" ");
+        normalized = STRING_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = NUMERIC_LITERAL.matcher(normalized).replaceAll("?");
+        return IN_LIST.matcher(normalized).replaceAll("in (?)");
+    }
+
+    private StatementStatistics statement(String sql) {
+        StatementStatistics statement = statementsBySql.get(sql);
+        if (statement != null) {
+            return statement;
+        }
+        String normalized = normalize(sql);
+        statement = statements.get(normalized);
+        if (statement == null) {
+            if (statements.size() >= maxStatements) {
+                return other;
+            }
+            statement = statements.computeIfAbsent(normalized, key -> {
+                String id = "%08x".formatted(key.hashCode());
+                String operation = operation(key);
+                return new StatementStatistics(id, operation, key, timer(id, operation));
+            });
+        }
+        // SQL with inlined literals could fill the map, it is then normalized on every execution instead
+        if (statementsBySql.size() < maxStatements * 4) {
+            statementsBySql.put(sql, statement);
+        }
+        return statement;
+    }
+
+    private Timer timer(String id, String operation) {
+        return Timer.builder(GlobalConstants.METRIC_JDBC_STATEMENTS)
+                .tag(GlobalConstants.METRIC_TAG_STATEMENT, id)
+                .tag(GlobalConstants.METRIC_TAG_OPERATION, operation)
+                .register(meterRegistry);
+    }
+
+    private static String operation(String normalizedSql) {
+        int end = 0;
+        while (end < normalizedSql.length() && Character.isLetter(normalizedSql.charAt(end))) {
+            end++;
+        }
+        return end == 0 ? OTHER : normalizedSql.substring(0, end).toLowerCase(Locale.ROOT);
+    }
+
+    private static List<String> parameterTypeNames(Class<?>[] parameterTypes) {
+        return Arrays.stream(parameterTypes)
+                .map(type -> type == null ? "unset" : type == Void.class ? "null" : type.getSimpleName())
+                .toList();
+    }
+
+    /**
+     * Totals of a statement since the start of the application.
+     */
+    public static final class StatementStatistics {
+        final String id;
+        final String operation;
+        final String sql;
+        private final Timer timer;
+        final LongAdder count = new LongAdder();
+        final LongAdder executions = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        StatementStatistics(String id, String operation, String sql, Timer timer) {
+            this.id = id;
+            this.operation = operation;
+            this.sql = sql;
+            this.timer = timer;
+        }
+
+        void record(long nanos, int executions, boolean failed) {
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+            count.increment();
+            this.executions.add(executions);
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            if (failed) {
+                errors.increment();
+            }
+        }
+    }
+
+    /**
+     * @param time when the statement completed
+     * @param durationMillis how long the statement took
+     * @param statementId the id of the statement, also the statement tag of its metrics
+     * @param sql the normalized SQL
+     * @param executions the number of batched executions, 1 if not a batch
+     * @param parameterTypes the simple names of the types of the bind parameters, "null" for null values
+     * @param correlationId the X-Correlation-ID of the request, null outside of requests
+     * @param thread the thread that executed the statement
+     * @param failed whether the statement threw an exception
+     */
+    public record SlowQuery(Instant time, double durationMillis, String statementId, String sql, int executions,
+                            List<String> parameterTypes, @Nullable String correlationId, String thread, boolean failed) {
+    }
+}
@@ -0,0 +1,60 @@
+package com.zlatko.packageshippingservice.diagnostics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+/**
+ * Records every Spring Data repository method invocation as a {@link DomainEvents.RepositoryQuery} JFR event. <br>
+ * The event advice is added to each repository proxy, the same way Spring Boot adds its repository metrics listener.
+ */
+@Configuration(proxyBeanMethods = false)
+public class RepositoryQueryEventsConfig {
+
+    @Bean
+    public static BeanPostProcessor repositoryQueryEventsBeanPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> repositoryFactoryBean) {
+                    repositoryFactoryBean.addRepositoryFactoryCustomizer(repositoryFactory -> repositoryFactory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, repositoryInformation) -> proxyFactory.addAdvice(
+                                    new RepositoryQueryEventInterceptor(repositoryInformation.getRepositoryInterface().getSimpleName()))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Records the invocation as the duration of the event, while a recording is running.
+     */
+    static class RepositoryQueryEventInterceptor implements MethodInterceptor {
+
+        private final String repository;
+
+        RepositoryQueryEventInterceptor(String repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            DomainEvents.RepositoryQuery event = new DomainEvents.RepositoryQuery(repository, invocation.getMethod().getName());
+            if (!event.isEnabled()) {
+                return invocation.proceed();
+            }
+            event.start();
+            try {
+                return invocation.proceed();
+            } catch (Throwable e) {
+                event.failed(e);
+                throw e;
+            } finally {
+                event.commit();
+            }
+        }
+    }
+}
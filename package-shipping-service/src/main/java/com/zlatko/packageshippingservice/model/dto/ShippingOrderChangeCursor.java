@@ -0,0 +1,48 @@
+package com.zlatko.packageshippingservice.model.dto;
+
+import com.zlatko.packageshippingservice.model.entity.ShippingOrderEntity;
+import java.math.BigInteger;
+import java.util.UUID;
+
+/**
+ * Position in the change feed: the last returned modification, as {@code <transactionId>:<orderId>}. <br>
+ * The transaction id is an unsigned 64-bit xid8, beyond the range of a long, so it is held as a BigInteger. <br>
+ * Clients treat it as opaque and pass it back as the {@code since} parameter.
+ */
+public record ShippingOrderChangeCursor(BigInteger transactionId, UUID orderId) {
+
+    // Declared first, it is used by the constructor of START
+    private static final BigInteger MAX_TRANSACTION_ID = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+
+    // Before every modification, normal transaction ids start at 3
+    public static final ShippingOrderChangeCursor START = new ShippingOrderChangeCursor(BigInteger.ZERO, new UUID(0, 0));
+
+    public ShippingOrderChangeCursor {
+        if (transactionId.signum() < 0 || transactionId.compareTo(MAX_TRANSACTION_ID) > 0) {
+            throw new IllegalArgumentException("Transaction id out of the xid8 range: " + transactionId);
+        }
+    }
+
+    public static ShippingOrderChangeCursor of(ShippingOrderEntity entity) {
+        return new ShippingOrderChangeCursor(new BigInteger(entity.getModificationXid()), entity.getId());
+    }
+
+    /**
+     * Parses a cursor, see {@link com.zlatko.packageshippingservice.utils.GlobalConstants#CHANGE_CURSOR_REGEX_PATTERN}.
+     *
+     * @param cursor the cursor, null for the start of the feed
+     * @return the parsed cursor
+     */
+    public static ShippingOrderChangeCursor parse(String cursor) {
+        if (cursor == null) {
+            return START;
+        }
+        int separator = cursor.indexOf(':');
+        return new ShippingOrderChangeCursor(new BigInteger(cursor.substring(0, separator)), UUID.fromString(cursor.substring(separator + 1)));
+    }
+
+    @Override
+    public String toString() {
+        return transactionId + ":" + orderId;
+    }
+}
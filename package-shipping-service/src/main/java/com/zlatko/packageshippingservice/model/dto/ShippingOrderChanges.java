@@ -0,0 +1,13 @@
+package com.zlatko.packageshippingservice.model.dto;
+
+import java.util.List;
+
+/**
+ * A page of the change feed: the modified orders in modification order, the cursor to request the next page with,
+ * and whether more modified orders were already available.
+ */
+public record ShippingOrderChanges(
+        List<ShippingOrderDetails> orders,
+        String cursor,
+        boolean hasMore
+) {}
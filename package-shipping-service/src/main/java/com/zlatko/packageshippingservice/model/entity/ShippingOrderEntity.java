@@ -2,6 +2,7 @@ package com.zlatko.packageshippingservice.model.entity;
 
 import com.zlatko.packageshippingservice.model.enums.OrderStatus;
 import com.zlatko.packageshippingservice.model.enums.PackageSize;
+import com.zlatko.packageshippingservice.utils.GeneratedUuidV7;
 import jakarta.persistence.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -11,10 +12,18 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import org.hibernate.annotations.UuidGenerator;
 
 @Entity
-@Table(name = "shipping_orders")
+@Table(name = "shipping_orders", indexes = {
+        // Package name lookup of every created order (see ShippingOrderIntake)
+        @Index(name = "shipping_orders_package_name_idx", columnList = "package_name"),
+        // Idempotency-Key lookup of the created orders, at most one order per key
+        @Index(name = "shipping_orders_idempotency_key_idx", columnList = "idempotency_key", unique = true),
+        // Candidates of the status progression (see OrderStatusProgressionJob)
+        @Index(name = "shipping_orders_status_expected_delivery_date_idx", columnList = "status, expected_delivery_date"),
+        // Order of the change feed (see ShippingOrderRepository#findModifiedAfter)
+        @Index(name = "shipping_orders_modification_xid_id_idx", columnList = "modification_xid, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor // Default constructor required by JPA
@@ -22,8 +31,7 @@ import org.hibernate.annotations.UuidGenerator;
 @Builder // Builder pattern
 public class ShippingOrderEntity {
     @Id
-    @GeneratedValue
-    @UuidGenerator // Use Hibernate's built-in UUID generator
+    @GeneratedUuidV7 // Time-ordered UUIDs keep the primary key index inserts local
     private UUID id;
 
     @Column(nullable = false)
@@ -49,4 +57,18 @@ public class ShippingOrderEntity {
     private LocalDate expectedDeliveryDate;
 
     private LocalDateTime actualDeliveryDateTime;
+
+    // Idempotency-Key of the request that created the order, a request repeated with the same key returns this order
+    @Column(length = 128, updatable = false)
+    private String idempotencyKey;
+
+    // Incremented by every update, including the batched status progression, so a stale copy can't overwrite a newer status
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+
+    // Id of the transaction that last inserted or updated the order, stamped by the database (see schema.sql).
+    // Read as its decimal text: xid8 is an unsigned 64-bit integer without a JDBC type, its text is the only exact read
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = "xid8 default pg_current_xact_id()")
+    private String modificationXid;
 }
\ No newline at end of file
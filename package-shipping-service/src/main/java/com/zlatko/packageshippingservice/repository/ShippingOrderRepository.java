@@ -2,13 +2,69 @@ package com.zlatko.packageshippingservice.repository;
 
 import com.zlatko.packageshippingservice.model.entity.ShippingOrderEntity;
 import com.zlatko.packageshippingservice.model.enums.OrderStatus;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface ShippingOrderRepository extends JpaRepository<ShippingOrderEntity, UUID> {
     Optional<ShippingOrderEntity> findByPackageName(String packageName);
+    Optional<ShippingOrderEntity> findByIdempotencyKey(String idempotencyKey);
     Page<ShippingOrderEntity> findAllByStatus(OrderStatus status, Pageable pageable);
+
+    /**
+     * Moves one batch of the orders of a partition from one status to the next, in a single statement and transaction. <br>
+     * The orders are partitioned by the last (random) byte of their id, so the partitions can be progressed concurrently
+     * without competing for the same rows. Orders locked by another transaction are skipped instead of waited for,
+     * they are picked up by a later batch. The version is incremented like an entity update would. <br>
+     * The ids of the progressed orders are returned (so it is a query rather than a modifying statement), to invalidate their cached details.
+     *
+     * @param fromStatus the ordinal of the current status (the status column is ordinal)
+     * @param toStatus the ordinal of the next status
+     * @param expectedDeliveryDateUpTo the latest expected delivery date of the progressed orders
+     * @param actualDeliveryDateTime the actual delivery date time to set if not set yet, null to keep it unset
+     * @param partitions the number of partitions
+     * @param partition the partition to progress, from 0 to partitions - 1
+     * @param batchSize the maximum number of orders to progress
+     * @return the IDs of the progressed orders
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE shipping_orders
+            SET status = :toStatus, version = version + 1,
+                actual_delivery_date_time = COALESCE(actual_delivery_date_time, CAST(:actualDeliveryDateTime AS TIMESTAMP))
+            WHERE id IN (SELECT id FROM shipping_orders
+                         WHERE status = :fromStatus AND expected_delivery_date <= :expectedDeliveryDateUpTo
+                           AND get_byte(uuid_send(id), 15) % :partitions = :partition
+                         LIMIT :batchSize FOR UPDATE SKIP LOCKED)
+            RETURNING id""", nativeQuery = true)
+    List<UUID> progressStatus(int fromStatus, int toStatus, LocalDate expectedDeliveryDateUpTo, LocalDateTime actualDeliveryDateTime,
+                       int partitions, int partition, int batchSize);
+
+    /**
+     * Returns the orders modified after the cursor, in modification order (the writing transaction id, then the order id). <br>
+     * Transaction ids are assigned when a transaction starts writing, but its modifications only become visible when it commits,
+     * so a younger transaction can commit first. Only the modifications of transactions older than the oldest still running one
+     * are returned, so no modification can become visible behind a cursor that was already handed out. <br>
+     * The cursor's transaction id is bound as a numeric and cast through its text, xid8 has neither a JDBC type nor a cast from numeric.
+     *
+     * @param afterXid the transaction id of the cursor
+     * @param afterId the order id of the cursor
+     * @param limit the maximum number of orders to return
+     * @return the modified orders
+     */
+    @Query(value = """
+            SELECT * FROM shipping_orders
+            WHERE (modification_xid, id) > (CAST(CAST(:afterXid AS TEXT) AS xid8), :afterId)
+              AND modification_xid < pg_snapshot_xmin(pg_current_snapshot())
+            ORDER BY modification_xid, id
+            LIMIT :limit""", nativeQuery = true)
+    List<ShippingOrderEntity> findModifiedAfter(BigInteger afterXid, UUID afterId, int limit);
 }
@@ -0,0 +1,83 @@
+package com.zlatko.packageshippingservice.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zlatko.packageshippingservice.utils.GlobalConstants;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded in-memory cache of the serialized (ready to send) order details, keyed by order id. <br>
+ * Entries are invalidated by the status changes of this instance, and expire after {@code expire-after-write} for the
+ * changes made by other instances. Unknown orders are not cached, so a created order is found right away. <br>
+ * A miss is loaded by the calling thread: the pending load is published first, so concurrent misses of the same order
+ * wait for it instead of querying again, and an invalidation during the load drops its (possibly stale) result. Loading
+ * inside the cache itself would hold a lock during the query, pinning the virtual thread to its carrier. <br>
+ * Hits, misses, evictions and the size are published as {@code cache.*} metrics tagged with {@code cache=shipping.orders.details}.
+ */
+@Component
+public class OrderDetailsCache {
+
+    private final AsyncCache<UUID, byte[]> cache;
+
+    public OrderDetailsCache(MeterRegistry meterRegistry,
+                             @Value("${app.orders.details-cache.maximum-size:100000}") long maximumSize,
+                             @Value("${app.orders.details-cache.expire-after-write:PT30S}") Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, GlobalConstants.CACHE_ORDER_DETAILS);
+    }
+
+    /**
+     * Returns the cached order details, loading them on a miss. A failed load is not cached, its exception is thrown
+     * to the loading caller and to the callers waiting for the load.
+     *
+     * @param orderId the ID of the order
+     * @param loader loads the serialized order details, or an empty Optional if no such order exists
+     * @return the serialized order details, or an empty Optional if no such order exists
+     */
+    public Optional<byte[]> get(UUID orderId, Function<UUID, Optional<byte[]>> loader) {
+        CompletableFuture<byte[]> orderDetails = cache.getIfPresent(orderId); // records the hit or miss
+        if (orderDetails == null) {
+            CompletableFuture<byte[]> loading = new CompletableFuture<>();
+            orderDetails = cache.asMap().putIfAbsent(orderId, loading);
+            if (orderDetails == null) {
+                try {
+                    // Completing with null (unknown order) or exceptionally removes the entry
+                    loading.complete(loader.apply(orderId).orElse(null));
+                } catch (RuntimeException e) {
+                    loading.completeExceptionally(e);
+                    throw e;
+                }
+                orderDetails = loading;
+            }
+        }
+        try {
+            return Optional.ofNullable(orderDetails.join());
+        } catch (CompletionException e) {
+            // A caller waiting for another one's load gets the load's own failure
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * Invalidates the cached details of the given orders, to be called after their change is committed.
+     *
+     * @param orderIds the IDs of the changed orders
+     */
+    public void invalidateAll(Collection<UUID> orderIds) {
+        cache.synchronous().invalidateAll(orderIds);
+    }
+}
@@ -0,0 +1,120 @@
+package com.zlatko.packageshippingservice.service;
+
+import com.zlatko.packageshippingservice.model.enums.OrderStatus;
+import com.zlatko.packageshippingservice.repository.ShippingOrderRepository;
+import com.zlatko.packageshippingservice.utils.GlobalConstants;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the shipping orders through their lifecycle based on their expected delivery date: <br>
+ *  - IN_PROGRESS orders are SENT {@code sent-days-before-expected-delivery} days before their expected delivery date <br>
+ *  - SENT orders are DELIVERED {@code delivered-days-after-expected-delivery} days after it, at the time of the run <br>
+ * Each transition is applied with set-based UPDATEs of {@code batch-size} orders, one transaction per batch so the row locks
+ * are short-lived, by {@code workers} virtual threads each progressing its own partition of the orders. <br>
+ * The cached details of the progressed orders are invalidated after each batch.
+ */
+@Component
+@ConditionalOnProperty(value = "app.orders.progression.enabled", matchIfMissing = true)
+@Slf4j
+public class OrderStatusProgressionJob {
+
+    private final ShippingOrderRepository shippingOrderRepository;
+    private final OrderDetailsCache orderDetailsCache;
+    private final MeterRegistry meterRegistry;
+    private final int workers;
+    private final int batchSize;
+    private final int sentDaysBeforeExpectedDelivery;
+    private final int deliveredDaysAfterExpectedDelivery;
+
+    public OrderStatusProgressionJob(ShippingOrderRepository shippingOrderRepository,
+                                     OrderDetailsCache orderDetailsCache,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${app.orders.progression.workers:4}") int workers,
+                                     @Value("${app.orders.progression.batch-size:5000}") int batchSize,
+                                     @Value("${app.orders.progression.sent-days-before-expected-delivery:5}") int sentDaysBeforeExpectedDelivery,
+                                     @Value("${app.orders.progression.delivered-days-after-expected-delivery:0}") int deliveredDaysAfterExpectedDelivery) {
+        this.shippingOrderRepository = shippingOrderRepository;
+        this.orderDetailsCache = orderDetailsCache;
+        this.meterRegistry = meterRegistry;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.sentDaysBeforeExpectedDelivery = sentDaysBeforeExpectedDelivery;
+        this.deliveredDaysAfterExpectedDelivery = deliveredDaysAfterExpectedDelivery;
+    }
+
+    /**
+     * Applies the transitions in lifecycle order, so an order overdue for both is SENT and DELIVERED by the same run.
+     */
+    @Scheduled(fixedDelayString = "${app.orders.progression.interval:PT1M}")
+    @Timed(GlobalConstants.METRIC_PROGRESS_ORDER_STATUSES)
+    public void progressOrderStatuses() {
+        for (Transition transition : transitions(LocalDateTime.now())) {
+            long progressed = progress(transition);
+            meterRegistry.counter(GlobalConstants.METRIC_PROGRESSED_ORDERS, "status", transition.to().name()).increment(progressed);
+            log.info("Order status progression: {} orders moved from {} to {}", progressed, transition.from(), transition.to());
+        }
+    }
+
+    /**
+     * The transitions of a run, relative to its start time.
+     *
+     * @param now the start time of the run
+     * @return the transitions in lifecycle order
+     */
+    List<Transition> transitions(LocalDateTime now) {
+        return List.of(
+                new Transition(OrderStatus.IN_PROGRESS, OrderStatus.SENT, now.toLocalDate().plusDays(sentDaysBeforeExpectedDelivery), null),
+                new Transition(OrderStatus.SENT, OrderStatus.DELIVERED, now.toLocalDate().minusDays(deliveredDaysAfterExpectedDelivery), now));
+    }
+
+    /**
+     * Progresses all partitions concurrently and waits for them.
+     *
+     * @param transition the transition to apply
+     * @return the number of progressed orders
+     */
+    long progress(Transition transition) {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<CompletableFuture<Long>> partitions = IntStream.range(0, workers)
+                    .mapToObj(partition -> CompletableFuture.supplyAsync(() -> progressPartition(transition, partition), executor))
+                    .toList();
+            return partitions.stream().mapToLong(CompletableFuture::join).sum();
+        }
+    }
+
+    /**
+     * Progresses batches of the partition until a batch comes back partially filled, i.e. the partition is drained.
+     */
+    private long progressPartition(Transition transition, int partition) {
+        long progressed = 0;
+        List<UUID> updated;
+        do {
+            updated = shippingOrderRepository.progressStatus(transition.from().ordinal(), transition.to().ordinal(),
+                    transition.expectedDeliveryDateUpTo(), transition.actualDeliveryDateTime(), workers, partition, batchSize);
+            orderDetailsCache.invalidateAll(updated);
+            progressed += updated.size();
+        } while (updated.size() == batchSize);
+        return progressed;
+    }
+
+    /**
+     * Moves the orders in the {@code from} status with an expected delivery date up to {@code expectedDeliveryDateUpTo}
+     * to the {@code to} status, setting their actual delivery date time if given.
+     */
+    record Transition(OrderStatus from, OrderStatus to, LocalDate expectedDeliveryDateUpTo, LocalDateTime actualDeliveryDateTime) {
+    }
+}
@@ -0,0 +1,224 @@
+package com.zlatko.packageshippingservice.service;
+
+import com.zlatko.packageshippingservice.model.entity.ShippingOrderEntity;
+import com.zlatko.packageshippingservice.model.exceptions.DuplicatePackageNameException;
+import com.zlatko.packageshippingservice.repository.ShippingOrderRepository;
+import com.zlatko.packageshippingservice.utils.GlobalConstants;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Group commit of the created shipping orders: the orders of concurrent requests are inserted in a single transaction,
+ * so they share one commit (and WAL flush) instead of paying for one each. <br>
+ * A request reserves its package name, queues its order and waits until the batch containing it is committed, so an
+ * acknowledged order is always durable. A request repeated with the Idempotency-Key of a queued or committing order
+ * waits for the same commit and gets the same order. A single writer thread takes up to {@code max-batch-size} queued orders, waiting
+ * at most {@code linger} for more after the first one. Orders queued while a batch is being committed go into the next one. <br>
+ * If a batch fails, its orders are committed one by one, so only the failing order is rejected. <br>
+ * The queue holds at most {@code queue-capacity} orders, requests wait for a free slot when it is full.
+ */
+@Component
+@ConditionalOnProperty(value = "app.orders.intake.group-commit.enabled", matchIfMissing = true)
+@Slf4j
+public class ShippingOrderIntake implements SmartLifecycle {
+
+    private final ShippingOrderRepository shippingOrderRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final DistributionSummary batchSizes;
+    private final int maxBatchSize;
+    private final Duration linger;
+    private final BlockingQueue<PendingOrder> queue;
+    // Package names of the queued orders, which the database lookup can't see yet
+    private final Set<String> reservedPackageNames = ConcurrentHashMap.newKeySet();
+    // Queued or committing orders by Idempotency-Key, removed once committed (and found by the key lookup) or failed
+    private final Map<String, PendingOrder> pendingOrdersByIdempotencyKey = new ConcurrentHashMap<>();
+    private volatile boolean running;
+    private Thread writer;
+
+    public ShippingOrderIntake(ShippingOrderRepository shippingOrderRepository,
+                               TransactionTemplate transactionTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.orders.intake.max-batch-size:100}") int maxBatchSize,
+                               @Value("${app.orders.intake.linger:PT0.002S}") Duration linger,
+                               @Value("${app.orders.intake.queue-capacity:10000}") int queueCapacity) {
+        this.shippingOrderRepository = shippingOrderRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSizes = meterRegistry.summary(GlobalConstants.METRIC_INTAKE_BATCH_SIZE);
+        this.maxBatchSize = maxBatchSize;
+        this.linger = linger;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * Creates the shipping order in the next batch and waits for its commit.
+     *
+     * @param shippingOrder the order to create, without ID
+     * @return the ID of the created order, or of the order created by the first request with the same Idempotency-Key
+     * @throws DuplicatePackageNameException if the package name is taken by a created or queued order
+     */
+    public UUID create(ShippingOrderEntity shippingOrder) {
+        if (!running) {
+            throw new IllegalStateException("The shipping order intake is stopped.");
+        }
+        PendingOrder pendingOrder = new PendingOrder(shippingOrder, new CompletableFuture<>());
+        String idempotencyKey = shippingOrder.getIdempotencyKey();
+        if (idempotencyKey == null) {
+            return queue(pendingOrder);
+        }
+        PendingOrder firstOrder = pendingOrdersByIdempotencyKey.putIfAbsent(idempotencyKey, pendingOrder);
+        if (firstOrder != null) {
+            return await(firstOrder);
+        }
+        try {
+            // The first order may have been committed since the caller looked the key up
+            Optional<ShippingOrderEntity> createdOrder = shippingOrderRepository.findByIdempotencyKey(idempotencyKey);
+            if (createdOrder.isPresent()) {
+                pendingOrder.created().complete(createdOrder.get().getId());
+                return createdOrder.get().getId();
+            }
+            return queue(pendingOrder);
+        } catch (RuntimeException e) {
+            pendingOrder.created().completeExceptionally(e);
+            throw e;
+        } finally {
+            pendingOrdersByIdempotencyKey.remove(idempotencyKey, pendingOrder);
+        }
+    }
+
+    private UUID queue(PendingOrder pendingOrder) {
+        String packageName = pendingOrder.shippingOrder().getPackageName();
+        if (!reservedPackageNames.add(packageName)) {
+            throw new DuplicatePackageNameException("The selected packageName was already taken.");
+        }
+        try {
+            if (shippingOrderRepository.findByPackageName(packageName).isPresent()) {
+                throw new DuplicatePackageNameException("The selected packageName was already taken.");
+            }
+            queue.put(pendingOrder);
+            return await(pendingOrder);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing the shipping order.", e);
+        } finally {
+            // Committed orders are found by the lookup from now on
+            reservedPackageNames.remove(packageName);
+        }
+    }
+
+    private static UUID await(PendingOrder pendingOrder) {
+        try {
+            return pendingOrder.created().join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        writer = Thread.ofVirtual().name("shipping-order-intake").start(this::writeBatches);
+    }
+
+    /**
+     * Stops accepting orders and waits for the queued ones to be committed.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Started before and stopped after the web server, so no request finds the intake stopped.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void writeBatches() {
+        List<PendingOrder> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                PendingOrder first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long lingerUntil = System.nanoTime() + linger.toNanos();
+                while (batch.size() < maxBatchSize) {
+                    // Takes the already queued orders right away, then waits for more until the linger time is up
+                    PendingOrder next = queue.poll(lingerUntil - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Commits the batch in one transaction and completes its orders, falling back to one transaction per order on failure.
+     */
+    void commit(List<PendingOrder> batch) {
+        batchSizes.record(batch.size());
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    shippingOrderRepository.saveAll(batch.stream().map(PendingOrder::shippingOrder).toList()));
+            batch.forEach(pendingOrder -> pendingOrder.created().complete(pendingOrder.shippingOrder().getId()));
+        } catch (RuntimeException e) {
+            log.warn("Committing a batch of {} shipping orders failed, committing them one by one", batch.size(), e);
+            batch.forEach(this::commitAlone);
+        }
+    }
+
+    private void commitAlone(PendingOrder pendingOrder) {
+        try {
+            // The ID generated by the rolled back batch is dropped, so the order is persisted as new again
+            pendingOrder.shippingOrder().setId(null);
+            ShippingOrderEntity created = transactionTemplate.execute(status -> shippingOrderRepository.save(pendingOrder.shippingOrder()));
+            pendingOrder.created().complete(created.getId());
+        } catch (RuntimeException e) {
+            pendingOrder.created().completeExceptionally(e);
+        }
+    }
+
+    /**
+     * A queued order and the completion of its commit.
+     */
+    record PendingOrder(ShippingOrderEntity shippingOrder, CompletableFuture<UUID> created) {
+    }
+}
@@ -1,13 +1,22 @@
 package com.zlatko.packageshippingservice.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zlatko.packageshippingservice.diagnostics.DomainEvents;
 import com.zlatko.packageshippingservice.model.dto.ShippingOrder;
+import com.zlatko.packageshippingservice.model.dto.ShippingOrderChangeCursor;
+import com.zlatko.packageshippingservice.model.dto.ShippingOrderChanges;
 import com.zlatko.packageshippingservice.model.dto.ShippingOrderDetails;
 import com.zlatko.packageshippingservice.model.entity.ShippingOrderEntity;
 import com.zlatko.packageshippingservice.model.enums.OrderStatus;
 import com.zlatko.packageshippingservice.model.enums.PackageSize;
 import com.zlatko.packageshippingservice.model.exceptions.DuplicatePackageNameException;
 import com.zlatko.packageshippingservice.repository.ShippingOrderRepository;
+import com.zlatko.packageshippingservice.utils.GlobalConstants;
+import com.zlatko.packageshippingservice.utils.ServerTiming;
+import io.micrometer.core.annotation.Timed;
 import java.util.UUID;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
@@ -16,88 +25,170 @@ import java.util.List;
 import java.util.Optional;
 
 /**
- * Service for managing shipping orders
+ * Service for managing shipping orders. <br>
+ * Every operation is recorded as a JFR event (see DomainEvents) while a flight recording is running.
  */
 @Service
 public class ShippingOrderService {
     private final ShippingOrderRepository shippingOrderRepository;
+    private final OrderDetailsCache orderDetailsCache;
+    private final ObjectMapper objectMapper;
+    private final Optional<ShippingOrderIntake> shippingOrderIntake;
 
-    public ShippingOrderService(ShippingOrderRepository shippingOrderRepository) {
+    public ShippingOrderService(ShippingOrderRepository shippingOrderRepository, OrderDetailsCache orderDetailsCache, ObjectMapper objectMapper,
+                                Optional<ShippingOrderIntake> shippingOrderIntake) {
         this.shippingOrderRepository = shippingOrderRepository;
+        this.orderDetailsCache = orderDetailsCache;
+        this.objectMapper = objectMapper;
+        this.shippingOrderIntake = shippingOrderIntake;
     }
 
     /**
-     * Create a new shipping order
+     * Create a new shipping order, committed together with the concurrently created ones if the ShippingOrderIntake is enabled
      * @param shippingOrder The details of the shipping order to create
+     * @param idempotencyKey The Idempotency-Key of the request, or null. A repeated request returns the order created by the first one
      * @return  The ID of the created shipping order
      */
-    public UUID createShippingOrder(ShippingOrder shippingOrder) {
-        Optional<ShippingOrderEntity> existingOrder = shippingOrderRepository.findByPackageName(shippingOrder.packageName());
+    @Timed(GlobalConstants.METRIC_CREATE_SHIPPING_ORDER)
+    public UUID createShippingOrder(ShippingOrder shippingOrder, String idempotencyKey) {
+        DomainEvents.CreateShippingOrder event = new DomainEvents.CreateShippingOrder(shippingOrder.packageName(), shippingOrder.packageSize(), idempotencyKey);
+        return DomainEvents.record(event, () -> {
+            UUID orderId = create(shippingOrder, idempotencyKey, event);
+            event.setOrderId(orderId.toString());
+            return orderId;
+        });
+    }
 
-        if (existingOrder.isPresent()) {
-            throw new DuplicatePackageNameException("The selected packageName was already taken.");
+    private UUID create(ShippingOrder shippingOrder, String idempotencyKey, DomainEvents.CreateShippingOrder event) {
+        if (idempotencyKey != null) {
+            Optional<ShippingOrderEntity> createdOrder = ServerTiming.record(GlobalConstants.STAGE_DB, () -> shippingOrderRepository.findByIdempotencyKey(idempotencyKey));
+            if (createdOrder.isPresent()) {
+                event.setReplayed(true);
+                return createdOrder.get().getId();
+            }
         }
 
-        ShippingOrderEntity entity = new ShippingOrderEntity(
-                null,
-                shippingOrder.packageName(),
-                shippingOrder.postalCode(),
-                shippingOrder.streetName(),
-                shippingOrder.receiverName(),
-                PackageSize.valueOf(shippingOrder.packageSize()),
-                OrderStatus.IN_PROGRESS, // Set status to IN_PROGRESS by default. There should be a mechanism to update the status later
-                java.time.LocalDate.now().plusWeeks(1), // Set expected delivery date to one week from now
-                null
+        ShippingOrderEntity entity = ShippingOrderEntity.builder()
+                .packageName(shippingOrder.packageName())
+                .postalCode(shippingOrder.postalCode())
+                .streetName(shippingOrder.streetName())
+                .receiverName(shippingOrder.receiverName())
+                .packageSize(PackageSize.valueOf(shippingOrder.packageSize()))
+                .status(OrderStatus.IN_PROGRESS) // Moved along by the OrderStatusProgressionJob
+                .expectedDeliveryDate(java.time.LocalDate.now().plusWeeks(1)) // Set expected delivery date to one week from now
+                .idempotencyKey(idempotencyKey)
+                .build();
+        try {
+            return ServerTiming.record(GlobalConstants.STAGE_DB, () -> insert(entity));
+        } catch (DataIntegrityViolationException e) {
+            // A request with the same Idempotency-Key created its order concurrently (e.g. on another instance)
+            Optional<ShippingOrderEntity> createdOrder = idempotencyKey == null ? Optional.empty()
+                    : ServerTiming.record(GlobalConstants.STAGE_DB, () -> shippingOrderRepository.findByIdempotencyKey(idempotencyKey));
+            if (createdOrder.isEmpty()) {
+                throw e;
+            }
+            event.setReplayed(true);
+            return createdOrder.get().getId();
+        }
+    }
 
-        );
-        ShippingOrderEntity createdOrder = shippingOrderRepository.save(entity);
-        return createdOrder.getId();
+    private UUID insert(ShippingOrderEntity entity) {
+        if (shippingOrderIntake.isPresent()) {
+            return shippingOrderIntake.get().create(entity);
+        }
+
+        if (shippingOrderRepository.findByPackageName(entity.getPackageName()).isPresent()) {
+            throw new DuplicatePackageNameException("The selected packageName was already taken.");
+        }
+
+        return shippingOrderRepository.save(entity).getId();
     }
 
     /**
      * Retrieve a list of all shipping orders
      * @return A list of all shipping orders
      */
+    @Timed(GlobalConstants.METRIC_LIST_SHIPPING_ORDERS)
     public List<ShippingOrderDetails> listShippingOrders(OrderStatus status, int offset, int limit) {
-        Page<ShippingOrderEntity> allByStatus;
-        if (status==null) {
-            allByStatus = shippingOrderRepository.findAll(PageRequest.of(offset, limit));
-        } else {
-            allByStatus = shippingOrderRepository.findAllByStatus(status, PageRequest.of(offset, limit));
-        }
-        return allByStatus.stream()
-                .map(entity -> new ShippingOrderDetails(
-                        entity.getId().toString(),
-                        entity.getPackageName(),
-                        entity.getPackageSize(),
-                        entity.getPostalCode(),
-                        entity.getStreetName(),
-                        entity.getReceiverName(),
-                        entity.getStatus(),
-                        entity.getExpectedDeliveryDate(),
-                        entity.getActualDeliveryDateTime()
-                ))
-                .toList();
+        DomainEvents.ListShippingOrders event = new DomainEvents.ListShippingOrders(status == null ? null : status.name(), offset, limit);
+        return DomainEvents.record(event, () -> {
+            Page<ShippingOrderEntity> allByStatus;
+            if (status==null) {
+                allByStatus = ServerTiming.record(GlobalConstants.STAGE_DB, () -> shippingOrderRepository.findAll(PageRequest.of(offset, limit)));
+            } else {
+                allByStatus = ServerTiming.record(GlobalConstants.STAGE_DB, () -> shippingOrderRepository.findAllByStatus(status, PageRequest.of(offset, limit)));
+            }
+            event.setOrders(allByStatus.getNumberOfElements());
+            return allByStatus.stream()
+                    .map(this::toShippingOrderDetails)
+                    .toList();
+        });
     }
 
     /**
-     * Retrieve the details of a shipping order by its ID
+     * Retrieve the details of a shipping order by its ID, serialized to JSON. <br>
+     * Served from the OrderDetailsCache, so a hit skips both the query and the serialization.
      * @param orderId The ID of the order to retrieve
-     * @return The details of the order with the given ID, or an empty Optional if no such order exists
+     * @return The JSON details of the order with the given ID, or an empty Optional if no such order exists
      */
-    public Optional<ShippingOrderDetails> getOrderDetails(String orderId) {
+    @Timed(GlobalConstants.METRIC_GET_ORDER_DETAILS)
+    public Optional<byte[]> getOrderDetailsJson(String orderId) {
         UUID uuid = UUID.fromString(orderId);
-        return shippingOrderRepository.findById(uuid)
-                .map(entity -> new ShippingOrderDetails(
-                        entity.getId().toString(),
-                        entity.getPackageName(),
-                        entity.getPackageSize(),
-                        entity.getPostalCode(),
-                        entity.getStreetName(),
-                        entity.getReceiverName(),
-                        entity.getStatus(),
-                        entity.getExpectedDeliveryDate(),
-                        entity.getActualDeliveryDateTime()
-                ));
+        DomainEvents.GetOrderDetails event = new DomainEvents.GetOrderDetails(orderId);
+        return DomainEvents.record(event, () -> {
+            Optional<byte[]> orderDetails = orderDetailsCache.get(uuid, id -> {
+                event.setCacheMiss(true);
+                return ServerTiming.record(GlobalConstants.STAGE_DB, () -> shippingOrderRepository.findById(id))
+                        .map(this::toShippingOrderDetails)
+                        .map(this::toJson);
+            });
+            event.setFound(orderDetails.isPresent());
+            return orderDetails;
+        });
+    }
+
+    /**
+     * Retrieve the orders created or modified after the cursor, oldest modification first
+     * @param since The cursor returned by the previous call, or null to start from the first order
+     * @param limit The maximum number of orders to return
+     * @return The modified orders and the cursor to continue from
+     */
+    @Timed(GlobalConstants.METRIC_LIST_SHIPPING_ORDER_CHANGES)
+    public ShippingOrderChanges getShippingOrderChanges(String since, int limit) {
+        ShippingOrderChangeCursor after = ShippingOrderChangeCursor.parse(since);
+        DomainEvents.GetShippingOrderChanges event = new DomainEvents.GetShippingOrderChanges(since, limit);
+        return DomainEvents.record(event, () -> {
+            // One more than the limit tells whether there is a next page
+            List<ShippingOrderEntity> modified = ServerTiming.record(GlobalConstants.STAGE_DB,
+                    () -> shippingOrderRepository.findModifiedAfter(after.transactionId(), after.orderId(), limit + 1));
+            boolean hasMore = modified.size() > limit;
+            List<ShippingOrderEntity> page = hasMore ? modified.subList(0, limit) : modified;
+            ShippingOrderChangeCursor cursor = page.isEmpty() ? after : ShippingOrderChangeCursor.of(page.getLast());
+            event.setOrders(page.size());
+            event.setHasMore(hasMore);
+            return new ShippingOrderChanges(page.stream().map(this::toShippingOrderDetails).toList(), cursor.toString(), hasMore);
+        });
+    }
+
+    private byte[] toJson(ShippingOrderDetails shippingOrderDetails) {
+        try {
+            return objectMapper.writeValueAsBytes(shippingOrderDetails);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the order details of " + shippingOrderDetails.packageId(), e);
+        }
+    }
+
+    private ShippingOrderDetails toShippingOrderDetails(ShippingOrderEntity entity) {
+        return new ShippingOrderDetails(
+                entity.getId().toString(),
+                entity.getPackageName(),
+                entity.getPackageSize(),
+                entity.getPostalCode(),
+                entity.getStreetName(),
+                entity.getReceiverName(),
+                entity.getStatus(),
+                entity.getExpectedDeliveryDate(),
+                entity.getActualDeliveryDateTime()
+        );
     }
 }
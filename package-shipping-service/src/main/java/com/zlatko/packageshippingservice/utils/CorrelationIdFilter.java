@@ -11,7 +11,6 @@ import org.slf4j.MDC;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.util.UUID;
 
 @Component
 @Slf4j
@@ -64,11 +63,11 @@ public class CorrelationIdFilter implements Filter {
     }
 
     /**
-     * Generate a unique identifier for the request as a UUID string.
+     * Generate a unique, time-ordered identifier for the request as a UUID string.
      * @return A unique identifier
      */
     private String generateUniqueId() {
-        return UUID.randomUUID().toString();
+        return UuidV7.generate().toString();
     }
 
     /**
@@ -0,0 +1,17 @@
+package com.zlatko.packageshippingservice.utils;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import org.hibernate.annotations.IdGeneratorType;
+
+/**
+ * Generates the annotated id as a time-ordered version 7 UUID. <br>
+ * Hibernate's {@code @UuidGenerator} only offers random (version 4) and version 1 style time-based UUIDs.
+ */
+@IdGeneratorType(UuidV7IdGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface GeneratedUuidV7 {
+}
@@ -6,5 +6,41 @@ package com.zlatko.packageshippingservice.utils;
 public class GlobalConstants {
     public static final String X_CORRELATION_ID = "X-Correlation-ID";
     public static final String REQUEST_ID = "Request-Id";
+    public static final String SERVER_TIMING = "Server-Timing";
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    public static final String IDEMPOTENCY_KEY_REGEX_PATTERN = "^[\\w.:-]{1,128}$";
     public static final String UUID_REGEX_PATTERN = "^[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}$";
+    public static final String CHANGE_CURSOR_REGEX_PATTERN = "^\\d{1,20}:[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}$";
+
+    // Metric names, percentiles and histograms for all of these are configured in application.properties
+    public static final String METRIC_CREATE_SHIPPING_ORDER = "shipping.orders.create";
+    public static final String METRIC_GET_ORDER_DETAILS = "shipping.orders.details";
+    public static final String METRIC_LIST_SHIPPING_ORDERS = "shipping.orders.list";
+    public static final String METRIC_LIST_SHIPPING_ORDER_CHANGES = "shipping.orders.changes";
+    public static final String METRIC_PROGRESS_ORDER_STATUSES = "shipping.orders.progression";
+    // Counter of the orders moved to the next status, tagged by the new status
+    public static final String METRIC_PROGRESSED_ORDERS = "shipping.orders.progressed";
+    // Distribution of the number of orders committed together by the ShippingOrderIntake
+    public static final String METRIC_INTAKE_BATCH_SIZE = "shipping.orders.intake.batch.size";
+    // Cache name tag of the cache.* metrics of the OrderDetailsCache
+    public static final String CACHE_ORDER_DETAILS = "shipping.orders.details";
+    // Virtual thread pinning and carrier pool metrics of the VirtualThreadPinningEndpoint
+    public static final String METRIC_VIRTUAL_THREADS_PINNED = "jvm.threads.virtual.pinned";
+    public static final String METRIC_VIRTUAL_THREADS_SUBMIT_FAILED = "jvm.threads.virtual.submit.failed";
+    public static final String METRIC_VIRTUAL_THREADS_SCHEDULING_DELAY = "jvm.threads.virtual.scheduling.delay";
+    public static final String METRIC_VIRTUAL_THREADS_CARRIERS = "jvm.threads.virtual.carriers";
+    public static final String METRIC_VIRTUAL_THREADS_PARALLELISM = "jvm.threads.virtual.carriers.parallelism";
+    // JDBC statement metrics of the QueryRecorder, tagged by statement id and SQL operation, and statements per request (tagged by uri)
+    public static final String METRIC_JDBC_STATEMENTS = "jdbc.statements";
+    public static final String METRIC_JDBC_REQUEST_STATEMENTS = "jdbc.request.statements";
+    public static final String METRIC_TAG_STATEMENT = "statement";
+    public static final String METRIC_TAG_URI = "uri";
+    public static final String METRIC_TAG_OPERATION = "operation";
+
+    // Server-Timing stage names
+    public static final String STAGE_APP = "app";
+    public static final String STAGE_SERIALIZE = "serialize";
+    // Every executed JDBC statement, counted per request
+    public static final String STAGE_SQL = "sql";
+    public static final String STAGE_DB = "db";
 }
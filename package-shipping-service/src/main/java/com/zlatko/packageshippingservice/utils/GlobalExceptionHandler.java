@@ -6,12 +6,14 @@ import com.zlatko.packageshippingservice.model.exceptions.DuplicatePackageNameEx
 import java.util.List;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.MessageSourceResolvable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
 
 @ControllerAdvice
 @Slf4j
@@ -67,6 +69,37 @@ public class GlobalExceptionHandler {
                 .body(error);
     }
 
+    /**
+     * Handles the HandlerMethodValidationException (invalid path variables, request parameters and headers,
+     * along with the request body of the same request) and returns a 400 Bad Request response.
+     * @param ex The exception that was thrown
+     * @return The response entity with the error message
+     */
+    @ExceptionHandler(HandlerMethodValidationException.class)
+    public ResponseEntity<Error> handleValidationExceptions(
+            HandlerMethodValidationException ex) {
+
+        List<ValidationError> validationErrors = ex.getValueResults()
+                .stream()
+                .map(error -> new ValidationError(error.getMethodParameter().getParameterName(), error.getResolvableErrors().stream().map(MessageSourceResolvable::getDefaultMessage).toList().toString()))
+                .collect(Collectors.toList());
+        // A @Valid request body is validated along with the other parameters, add its errors like MethodArgumentNotValidException does
+        ex.getBeanResults().forEach(result ->
+                result.getFieldErrors().forEach(error -> validationErrors.add(new ValidationError(error.getField(), error.getDefaultMessage()))));
+
+        Error error = new Error(
+                HttpStatus.BAD_REQUEST.value(),
+                "Invalid input data",
+                validationErrors
+        );
+
+        log.trace("Returning 400 Bad Request response: {}", error);
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(error);
+    }
+
     /**
      * Handles all other exceptions and returns a 500 Internal Server Error response.
      * @param ex The exception that was thrown
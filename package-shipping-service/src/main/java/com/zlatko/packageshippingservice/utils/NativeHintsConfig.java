@@ -0,0 +1,37 @@
+package com.zlatko.packageshippingservice.utils;
+
+import com.zlatko.packageshippingservice.model.dto.error.Error;
+import com.zlatko.packageshippingservice.model.dto.error.ValidationError;
+import com.zlatko.packageshippingservice.model.entity.ShippingOrderEntity;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+/**
+ * Reflection hints for the AOT-processed (cds profile) and native (native profile) builds. <br>
+ * Controller request/response bodies are registered by Spring AOT itself, the remaining reflective access is registered here: <br>
+ *  - Jackson records returned by the GlobalExceptionHandler <br>
+ *  - the Lombok-built entity, instantiated and populated by Hibernate <br>
+ *  - the UuidV7IdGenerator, instantiated by Hibernate for {@link GeneratedUuidV7} ids <br>
+ */
+@Configuration(proxyBeanMethods = false)
+@ImportRuntimeHints(NativeHintsConfig.ApplicationRuntimeHints.class)
+@RegisterReflectionForBinding({Error.class, ValidationError.class})
+public class NativeHintsConfig {
+
+    static class ApplicationRuntimeHints implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            hints.reflection().registerType(ShippingOrderEntity.class,
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_DECLARED_METHODS,
+                    MemberCategory.DECLARED_FIELDS);
+            hints.reflection().registerType(ShippingOrderEntity.ShippingOrderEntityBuilder.class, MemberCategory.INVOKE_DECLARED_METHODS);
+            hints.reflection().registerType(UuidV7IdGenerator.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.zlatko.packageshippingservice.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Lightweight in-process recorder of named stage timings for the current request. <br>
+ * A recorder is bound to the request thread by the {@link ServerTimingFilter} and rendered as a
+ * {@code Server-Timing} response header, e.g. {@code db;dur=1.20, app;dur=3.31}. <br>
+ * Repeated stages (e.g. multiple queries) are summed up and their count is added as a description. <br>
+ * Recording is a no-op when no recorder is bound to the current thread (e.g. in unit tests).
+ */
+public final class ServerTiming {
+
+    private static final ThreadLocal<ServerTiming> CURRENT = new ThreadLocal<>();
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+
+    /**
+     * Binds a new recorder to the current thread.
+     *
+     * @return the new recorder
+     */
+    public static ServerTiming start() {
+        ServerTiming serverTiming = new ServerTiming();
+        CURRENT.set(serverTiming);
+        return serverTiming;
+    }
+
+    /**
+     * Unbinds the recorder from the current thread.
+     */
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Runs the supplier and records its duration under the given stage name.
+     *
+     * @param stage the stage name
+     * @param supplier the work to time
+     * @return the result of the supplier
+     */
+    public static <T> T record(String stage, Supplier<T> supplier) {
+        ServerTiming serverTiming = CURRENT.get();
+        if (serverTiming == null) {
+            return supplier.get();
+        }
+        long start = System.nanoTime();
+        try {
+            return supplier.get();
+        } finally {
+            serverTiming.add(stage, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Records an already measured duration under the given stage name, e.g. of a JDBC statement.
+     *
+     * @param stage the stage name
+     * @param nanos the duration in nanoseconds
+     */
+    public static void recordNanos(String stage, long nanos) {
+        ServerTiming serverTiming = CURRENT.get();
+        if (serverTiming != null) {
+            serverTiming.add(stage, nanos);
+        }
+    }
+
+    /**
+     * Adds a duration to the given stage.
+     *
+     * @param stage the stage name
+     * @param nanos the duration in nanoseconds
+     */
+    public synchronized void add(String stage, long nanos) {
+        Stage recorded = stages.computeIfAbsent(stage, name -> new Stage());
+        recorded.nanos += nanos;
+        recorded.count++;
+    }
+
+    /**
+     * Returns how many durations were added to the given stage.
+     *
+     * @param stage the stage name
+     * @return the count, 0 if the stage was not recorded
+     */
+    public synchronized int count(String stage) {
+        Stage recorded = stages.get(stage);
+        return recorded == null ? 0 : recorded.count;
+    }
+
+    /**
+     * Renders the recorded stages as a Server-Timing header value.
+     *
+     * @return the header value, empty if no stages were recorded
+     */
+    public synchronized String toHeaderValue() {
+        return stages.entrySet().stream()
+                .map(entry -> {
+                    String metric = "%s;dur=%s".formatted(entry.getKey(), formatMillis(entry.getValue().nanos));
+                    return entry.getValue().count > 1
+                            ? "%s;desc=\"%d calls\"".formatted(metric, entry.getValue().count)
+                            : metric;
+                })
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Renders the recorded stages as space separated key=value pairs (in milliseconds) for a single log line.
+     *
+     * @return the log value
+     */
+    public synchronized String toLogValue() {
+        return stages.entrySet().stream()
+                .map(entry -> "%s=%s".formatted(entry.getKey(), formatMillis(entry.getValue().nanos)))
+                .collect(Collectors.joining(" "));
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / NANOS_PER_MILLI);
+    }
+
+    private static final class Stage {
+        private long nanos;
+        private int count;
+    }
+}
@@ -0,0 +1,145 @@
+package com.zlatko.packageshippingservice.utils;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerMapping;
+
+@Component
+@Slf4j
+public class ServerTimingFilter implements Filter {
+
+    private static final String UNKNOWN_URI = "UNKNOWN";
+
+    private final MeterRegistry meterRegistry;
+    private final boolean logEnabled;
+
+    public ServerTimingFilter(MeterRegistry meterRegistry, @Value("${app.server-timing.log-enabled:false}") boolean logEnabled) {
+        this.meterRegistry = meterRegistry;
+        this.logEnabled = logEnabled;
+    }
+
+    /**
+     * Filter method that binds a {@link ServerTiming} recorder to the request and adds its stages as a
+     * Server-Timing header to the response. <br>
+     * The header has to be written before the response body, so the stages are rendered as soon as the body is
+     * requested, together with an {@code app} stage covering the request until then. <br>
+     * The body serialization is recorded as a {@code serialize} stage afterward and is only part of the optional
+     * log line, which is keyed by the X-Correlation-ID. <br>
+     * The number of JDBC statements executed for the request (the {@code sql} stage) is recorded as the
+     * {@code jdbc.request.statements} metric, tagged by the URI pattern, to spot N+1 queries.
+     *
+     * @param servletRequest The request object
+     * @param servletResponse The response object
+     * @param chain The filter chain
+     * @throws IOException If an I/O error occurs
+     * @throws ServletException If a servlet exception occurs
+     */
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain) throws IOException, ServletException {
+        ServerTimingResponseWrapper response = new ServerTimingResponseWrapper((HttpServletResponse) servletResponse, ServerTiming.start());
+        try {
+            chain.doFilter(servletRequest, response);
+        } finally {
+            response.finish();
+            recordStatements((HttpServletRequest) servletRequest, response.serverTiming);
+            if (logEnabled) {
+                log.info("{}={} {}", GlobalConstants.X_CORRELATION_ID, response.getHeader(GlobalConstants.X_CORRELATION_ID), response.serverTiming.toLogValue());
+            }
+            ServerTiming.clear();
+        }
+    }
+
+    private void recordStatements(HttpServletRequest request, ServerTiming serverTiming) {
+        Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        DistributionSummary.builder(GlobalConstants.METRIC_JDBC_REQUEST_STATEMENTS)
+                .tag(GlobalConstants.METRIC_TAG_URI, uri == null ? UNKNOWN_URI : uri.toString())
+                .register(meterRegistry)
+                .record(serverTiming.count(GlobalConstants.STAGE_SQL));
+    }
+
+    /**
+     * Response wrapper writing the Server-Timing header right before the response body is written.
+     */
+    private static class ServerTimingResponseWrapper extends HttpServletResponseWrapper {
+        private final ServerTiming serverTiming;
+        private final long start = System.nanoTime();
+        private long bodyStart;
+
+        ServerTimingResponseWrapper(HttpServletResponse response, ServerTiming serverTiming) {
+            super(response);
+            this.serverTiming = serverTiming;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeader();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeader();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeader();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeHeader();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeHeader();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            writeHeader();
+            super.sendRedirect(location);
+        }
+
+        private void writeHeader() {
+            if (bodyStart != 0) {
+                return;
+            }
+            bodyStart = System.nanoTime();
+            serverTiming.add(GlobalConstants.STAGE_APP, bodyStart - start);
+            if (!isCommitted()) {
+                setHeader(GlobalConstants.SERVER_TIMING, serverTiming.toHeaderValue());
+            }
+        }
+
+        /**
+         * Writes the header for bodiless responses, otherwise records the body serialization.
+         */
+        void finish() {
+            if (bodyStart == 0) {
+                writeHeader();
+            } else {
+                serverTiming.add(GlobalConstants.STAGE_SERIALIZE, System.nanoTime() - bodyStart);
+            }
+        }
+    }
+}
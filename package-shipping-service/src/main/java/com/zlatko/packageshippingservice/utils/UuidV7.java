@@ -0,0 +1,52 @@
+package com.zlatko.packageshippingservice.utils;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free generator of time-ordered version 7 UUIDs (RFC 9562). <br>
+ * Layout: 48 bit Unix epoch milliseconds, version, 12 bit counter (rand_a), variant, 62 random bits (rand_b). <br>
+ * Consecutive ids of one process are strictly increasing: within the same millisecond the 12 bit counter is incremented,
+ * and when it overflows the timestamp is advanced ahead of the clock until the clock catches up. <br>
+ * Time-ordered primary keys are appended to the right side of the B-tree index instead of being scattered across it
+ * like random (version 4) UUIDs, and ThreadLocalRandom avoids the contended SecureRandom behind {@link UUID#randomUUID()}. <br>
+ * The ids are not secrets, they are only used as keys.
+ */
+public final class UuidV7 {
+
+    private static final int COUNTER_BITS = 12;
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+    private static final long VERSION = 0x7000L;
+    private static final long VARIANT = 0x8000_0000_0000_0000L;
+    private static final long RAND_B_MASK = 0x3FFF_FFFF_FFFF_FFFFL;
+
+    // Last issued (milliseconds << COUNTER_BITS | counter)
+    private static final AtomicLong LAST_TIMESTAMP_AND_COUNTER = new AtomicLong();
+
+    private UuidV7() {
+    }
+
+    /**
+     * Generates a new version 7 UUID, greater than all previously generated ones of this process.
+     *
+     * @return the new UUID
+     */
+    public static UUID generate() {
+        long clock = System.currentTimeMillis() << COUNTER_BITS;
+        long timestampAndCounter = LAST_TIMESTAMP_AND_COUNTER.updateAndGet(last -> Math.max(clock, last + 1));
+        long mostSigBits = (timestampAndCounter >>> COUNTER_BITS) << 16 | VERSION | (timestampAndCounter & COUNTER_MASK);
+        long leastSigBits = VARIANT | (ThreadLocalRandom.current().nextLong() & RAND_B_MASK);
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    /**
+     * Extracts the Unix epoch milliseconds of a version 7 UUID.
+     *
+     * @param uuid a version 7 UUID
+     * @return the Unix epoch milliseconds
+     */
+    public static long timestampMillis(UUID uuid) {
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+}
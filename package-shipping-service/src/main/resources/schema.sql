@@ -0,0 +1,14 @@
+-- Runs after Hibernate updated the schema on every startup (see spring.jpa.defer-datasource-initialization), so it has to be idempotent.
+-- Stamps every inserted or updated shipping order with the id of the writing transaction, whatever the statement,
+-- including the batched status progression. The change feed is ordered by it (see ShippingOrderRepository#findModifiedAfter).
+-- The function body is single-quoted, as the script is split into statements at every semicolon outside of quotes.
+CREATE OR REPLACE FUNCTION stamp_shipping_order_modification() RETURNS TRIGGER LANGUAGE plpgsql AS
+'BEGIN
+    NEW.modification_xid := pg_current_xact_id();
+    RETURN NEW;
+END';
+
+CREATE OR REPLACE TRIGGER shipping_orders_modification
+    BEFORE INSERT OR UPDATE ON shipping_orders
+    FOR EACH ROW
+EXECUTE FUNCTION stamp_shipping_order_modification();
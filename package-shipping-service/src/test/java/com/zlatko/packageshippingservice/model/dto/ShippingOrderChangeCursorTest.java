@@ -0,0 +1,51 @@
+package com.zlatko.packageshippingservice.model.dto;
+
+import com.zlatko.packageshippingservice.model.entity.ShippingOrderEntity;
+import com.zlatko.packageshippingservice.utils.GlobalConstants;
+import java.math.BigInteger;
+import java.util.UUID;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class ShippingOrderChangeCursorTest {
+
+    private static final UUID ORDER_ID = UUID.fromString("0f8f9e96-9ecb-431d-8f17-aedb8a9c15a5");
+    // The largest xid8, beyond the range of a long
+    private static final String MAX_XID = "18446744073709551615";
+
+    @Nested
+    class Parse {
+
+        @Test
+        void givenAnOrderModifiedByTheLargestTransactionId_whenItsCursorIsParsedBack_thenTheSameCursorIsReturned() {
+            // Given: An order stamped with a transaction id above Long.MAX_VALUE
+            ShippingOrderEntity entity = new ShippingOrderEntity();
+            entity.setId(ORDER_ID);
+            entity.setModificationXid(MAX_XID);
+
+            // When: Its cursor is handed out and passed back
+            String cursor = ShippingOrderChangeCursor.of(entity).toString();
+            ShippingOrderChangeCursor parsed = ShippingOrderChangeCursor.parse(cursor);
+
+            // Then: The transaction id is kept exactly
+            assertThat(cursor).isEqualTo(MAX_XID + ":" + ORDER_ID).matches(GlobalConstants.CHANGE_CURSOR_REGEX_PATTERN);
+            assertThat(parsed.transactionId()).isEqualTo(new BigInteger(MAX_XID));
+            assertThat(parsed.orderId()).isEqualTo(ORDER_ID);
+        }
+
+        @Test
+        void givenATransactionIdBeyondTheXid8Range_whenTheCursorIsParsed_thenItIsRejected() {
+            // Given: A cursor one above the largest xid8
+            String cursor = "18446744073709551616:" + ORDER_ID;
+
+            // When + Then: It is rejected
+            assertThatThrownBy(() -> ShippingOrderChangeCursor.parse(cursor)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.zlatko.packageshippingservice.service;
+
+import com.zlatko.packageshippingservice.utils.GlobalConstants;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class OrderDetailsCacheTest {
+
+    private static final UUID ORDER_ID = UUID.fromString("0f8f9e96-9ecb-431d-8f17-aedb8a9c15a5");
+
+    private SimpleMeterRegistry meterRegistry;
+    private OrderDetailsCache orderDetailsCache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        orderDetailsCache = new OrderDetailsCache(meterRegistry, 100, Duration.ofMinutes(1));
+        loads = new AtomicInteger();
+    }
+
+    @Nested
+    class Get {
+
+        @Test
+        void givenACachedOrder_whenItIsRequestedAgain_thenItIsNotLoadedAgainAndTheHitIsCounted() {
+            // Given: The order details were loaded once
+            orderDetailsCache.get(ORDER_ID, this::load);
+
+            // When: They are requested again
+            Optional<byte[]> orderDetails = orderDetailsCache.get(ORDER_ID, this::load);
+
+            // Then: The cached details are returned, one miss and one hit are counted
+            assertThat(orderDetails).map(String::new).contains("{\"version\":1}");
+            assertThat(loads).hasValue(1);
+            assertThat(meterRegistry.get("cache.gets").tags("cache", GlobalConstants.CACHE_ORDER_DETAILS, "result", "hit").functionCounter().count()).isEqualTo(1);
+            assertThat(meterRegistry.get("cache.gets").tags("cache", GlobalConstants.CACHE_ORDER_DETAILS, "result", "miss").functionCounter().count()).isEqualTo(1);
+        }
+
+        @Test
+        void givenAnInvalidatedOrder_whenItIsRequested_thenItIsLoadedAgain() {
+            // Given: The cached order details were invalidated after a change
+            orderDetailsCache.get(ORDER_ID, this::load);
+            orderDetailsCache.invalidateAll(List.of(ORDER_ID));
+
+            // When: They are requested again
+            Optional<byte[]> orderDetails = orderDetailsCache.get(ORDER_ID, this::load);
+
+            // Then: The changed details are loaded
+            assertThat(orderDetails).map(String::new).contains("{\"version\":2}");
+        }
+
+        @Test
+        void givenAnUnknownOrder_whenItIsRequestedAgain_thenItIsLookedUpAgain() {
+            // Given: The order was not found
+            orderDetailsCache.get(ORDER_ID, id -> Optional.empty());
+
+            // When: It is requested again after it was created
+            Optional<byte[]> orderDetails = orderDetailsCache.get(ORDER_ID, this::load);
+
+            // Then: It is found
+            assertThat(orderDetails).isPresent();
+        }
+
+        @Test
+        void givenAnInvalidationDuringALoad_whenTheLoadCompletes_thenItsResultIsNotCached() {
+            // Given: The order details are changed and invalidated while being loaded
+            orderDetailsCache.get(ORDER_ID, id -> {
+                Optional<byte[]> stale = load(id);
+                orderDetailsCache.invalidateAll(List.of(ORDER_ID));
+                return stale;
+            });
+
+            // When: They are requested again
+            Optional<byte[]> orderDetails = orderDetailsCache.get(ORDER_ID, this::load);
+
+            // Then: The changed details are loaded instead of the stale ones
+            assertThat(orderDetails).map(String::new).contains("{\"version\":2}");
+        }
+
+        @Test
+        void givenALoadAwaitedByAnotherCaller_whenTheLoadFails_thenBothCallersGetItsException() throws InterruptedException {
+            // Given: A second caller waits for the order details loaded by the first one
+            CountDownLatch loading = new CountDownLatch(1);
+            CountDownLatch failing = new CountDownLatch(1);
+            CompletableFuture<Optional<byte[]>> firstCaller = CompletableFuture.supplyAsync(() -> orderDetailsCache.get(ORDER_ID, id -> {
+                loading.countDown();
+                awaitQuietly(failing);
+                throw new IllegalStateException("Query failed");
+            }));
+            loading.await();
+            AtomicReference<RuntimeException> secondCallerFailure = new AtomicReference<>();
+            Thread secondCaller = new Thread(() -> {
+                try {
+                    orderDetailsCache.get(ORDER_ID, this::load);
+                } catch (RuntimeException e) {
+                    secondCallerFailure.set(e);
+                }
+            });
+            secondCaller.start();
+            while (secondCaller.getState() != Thread.State.WAITING) {
+                Thread.onSpinWait();
+            }
+
+            // When: The load fails
+            failing.countDown();
+            secondCaller.join();
+
+            // Then: Both callers get the load's exception, not one wrapping it, and nothing was loaded again
+            assertThat(secondCallerFailure.get()).isInstanceOf(IllegalStateException.class).hasMessage("Query failed");
+            assertThatThrownBy(firstCaller::join).hasCauseInstanceOf(IllegalStateException.class);
+            assertThat(loads).hasValue(0);
+        }
+
+        private void awaitQuietly(CountDownLatch latch) {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private Optional<byte[]> load(UUID orderId) {
+            return Optional.of("{\"version\":%d}".formatted(loads.incrementAndGet()).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.zlatko.packageshippingservice.service;
+
+import com.zlatko.packageshippingservice.model.enums.OrderStatus;
+import com.zlatko.packageshippingservice.repository.ShippingOrderRepository;
+import com.zlatko.packageshippingservice.utils.GlobalConstants;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class OrderStatusProgressionJobTest {
+
+    private static final int WORKERS = 2;
+    private static final int BATCH_SIZE = 3;
+
+    private ShippingOrderRepository shippingOrderRepository;
+    private OrderDetailsCache orderDetailsCache;
+    private SimpleMeterRegistry meterRegistry;
+    private OrderStatusProgressionJob orderStatusProgressionJob;
+
+    @BeforeEach
+    void setUp() {
+        shippingOrderRepository = mock(ShippingOrderRepository.class);
+        orderDetailsCache = mock(OrderDetailsCache.class);
+        meterRegistry = new SimpleMeterRegistry();
+        orderStatusProgressionJob = new OrderStatusProgressionJob(shippingOrderRepository, orderDetailsCache, meterRegistry, WORKERS, BATCH_SIZE, 5, 1);
+    }
+
+    @Nested
+    class Transitions {
+
+        @Test
+        void givenTheConfiguredDays_whenTransitionsAreCreated_thenTheyAreRelativeToTheExpectedDeliveryDate() {
+            // Given: A run starting now
+            LocalDateTime now = LocalDateTime.of(2024, 10, 15, 12, 0);
+
+            // When: The transitions of the run are created
+            var transitions = orderStatusProgressionJob.transitions(now);
+
+            // Then: Orders are sent 5 days before and delivered 1 day after their expected delivery date, at the time of the run
+            assertThat(transitions).containsExactly(
+                    new OrderStatusProgressionJob.Transition(OrderStatus.IN_PROGRESS, OrderStatus.SENT, LocalDate.of(2024, 10, 20), null),
+                    new OrderStatusProgressionJob.Transition(OrderStatus.SENT, OrderStatus.DELIVERED, LocalDate.of(2024, 10, 14), now));
+        }
+    }
+
+    @Nested
+    class ProgressOrderStatuses {
+
+        @Test
+        void givenFullBatches_whenOrderStatusesAreProgressed_thenEachPartitionIsProgressedUntilItIsDrained() {
+            // Given: Partition 0 has 4 orders to send (a full and a partial batch), partition 1 has 1 order
+            int inProgress = OrderStatus.IN_PROGRESS.ordinal();
+            List<UUID> fullBatch = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+            List<UUID> partialBatch = List.of(UUID.randomUUID());
+            when(shippingOrderRepository.progressStatus(eq(inProgress), anyInt(), any(), any(), eq(WORKERS), eq(0), eq(BATCH_SIZE)))
+                    .thenReturn(fullBatch, partialBatch);
+            when(shippingOrderRepository.progressStatus(eq(inProgress), anyInt(), any(), any(), eq(WORKERS), eq(1), eq(BATCH_SIZE)))
+                    .thenReturn(List.of(UUID.randomUUID()));
+
+            // When: The order statuses are progressed
+            orderStatusProgressionJob.progressOrderStatuses();
+
+            // Then: Batches are repeated only after a full batch and the progressed orders are counted per new status
+            verify(shippingOrderRepository, times(2)).progressStatus(eq(inProgress), anyInt(), any(), any(), eq(WORKERS), eq(0), eq(BATCH_SIZE));
+            verify(shippingOrderRepository, times(1)).progressStatus(eq(inProgress), anyInt(), any(), any(), eq(WORKERS), eq(1), eq(BATCH_SIZE));
+            assertThat(meterRegistry.counter(GlobalConstants.METRIC_PROGRESSED_ORDERS, "status", "SENT").count()).isEqualTo(5);
+            assertThat(meterRegistry.counter(GlobalConstants.METRIC_PROGRESSED_ORDERS, "status", "DELIVERED").count()).isZero();
+            // and the cached details of the progressed orders are invalidated
+            verify(orderDetailsCache).invalidateAll(fullBatch);
+            verify(orderDetailsCache).invalidateAll(partialBatch);
+        }
+    }
+}
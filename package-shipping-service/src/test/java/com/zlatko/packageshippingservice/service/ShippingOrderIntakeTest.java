@@ -0,0 +1,181 @@
+package com.zlatko.packageshippingservice.service;
+
+import com.zlatko.packageshippingservice.model.entity.ShippingOrderEntity;
+import com.zlatko.packageshippingservice.model.exceptions.DuplicatePackageNameException;
+import com.zlatko.packageshippingservice.repository.ShippingOrderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class ShippingOrderIntakeTest {
+
+    private static final int MAX_BATCH_SIZE = 5;
+
+    private ShippingOrderRepository shippingOrderRepository;
+    private ShippingOrderIntake shippingOrderIntake;
+
+    @BeforeEach
+    void setUp() {
+        shippingOrderRepository = mock(ShippingOrderRepository.class);
+        when(shippingOrderRepository.findByPackageName(any())).thenReturn(Optional.empty());
+        // Persisting assigns the ID like the UuidV7IdGenerator would
+        when(shippingOrderRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<ShippingOrderEntity> shippingOrders = invocation.getArgument(0);
+            shippingOrders.forEach(shippingOrder -> shippingOrder.setId(UUID.randomUUID()));
+            return shippingOrders;
+        });
+        shippingOrderIntake = new ShippingOrderIntake(shippingOrderRepository, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                new SimpleMeterRegistry(), MAX_BATCH_SIZE, Duration.ofSeconds(1), 100);
+        shippingOrderIntake.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        shippingOrderIntake.stop();
+    }
+
+    @Nested
+    class Create {
+
+        @Test
+        void givenConcurrentRequests_whenOrdersAreCreated_thenTheyAreCommittedTogether() {
+            // Given: A full batch of requests creating an order at the same time
+            try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<CompletableFuture<UUID>> created = IntStream.range(0, MAX_BATCH_SIZE)
+                        .mapToObj(i -> CompletableFuture.supplyAsync(() -> shippingOrderIntake.create(shippingOrder("package-" + i)), requests))
+                        .toList();
+
+                // When: Their orders are committed
+                List<UUID> orderIds = created.stream().map(CompletableFuture::join).toList();
+
+                // Then: Each request gets the ID of its order, all were inserted in one transaction
+                assertThat(orderIds).doesNotContainNull().doesNotHaveDuplicates();
+                verify(shippingOrderRepository, times(1)).saveAll(anyList());
+            }
+        }
+
+        @Test
+        void givenAQueuedPackageName_whenItIsRequestedAgain_thenItIsRejected() throws InterruptedException {
+            // Given: An order waiting for its commit
+            CountDownLatch committing = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            when(shippingOrderRepository.saveAll(anyList())).thenAnswer(invocation -> {
+                committing.countDown();
+                release.await();
+                return invocation.getArgument(0);
+            });
+            CompletableFuture<UUID> queued = CompletableFuture.supplyAsync(() -> shippingOrderIntake.create(shippingOrder("package")),
+                    Executors.newVirtualThreadPerTaskExecutor());
+            committing.await();
+
+            // When: Another order with the same package name is created before the commit
+            // Then: It is rejected, although the database doesn't contain the first one yet
+            assertThatThrownBy(() -> shippingOrderIntake.create(shippingOrder("package"))).isInstanceOf(DuplicatePackageNameException.class);
+            release.countDown();
+            queued.join();
+        }
+
+        @Test
+        void givenAQueuedIdempotencyKey_whenTheOrderIsRequestedAgain_thenItGetsTheQueuedOrder() throws InterruptedException {
+            // Given: An order with an Idempotency-Key waiting for its commit
+            CountDownLatch committing = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            AtomicReference<ShippingOrderEntity> committed = new AtomicReference<>();
+            when(shippingOrderRepository.findByIdempotencyKey(any())).thenAnswer(invocation -> Optional.ofNullable(committed.get()));
+            when(shippingOrderRepository.saveAll(anyList())).thenAnswer(invocation -> {
+                committing.countDown();
+                release.await();
+                List<ShippingOrderEntity> shippingOrders = invocation.getArgument(0);
+                shippingOrders.forEach(shippingOrder -> shippingOrder.setId(UUID.randomUUID()));
+                committed.set(shippingOrders.getFirst());
+                return shippingOrders;
+            });
+            try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+                CompletableFuture<UUID> queued = CompletableFuture.supplyAsync(() -> shippingOrderIntake.create(shippingOrder("package", "key")), requests);
+                committing.await();
+
+                // When: The request is retried with the same key before the commit
+                CompletableFuture<UUID> retried = CompletableFuture.supplyAsync(() -> shippingOrderIntake.create(shippingOrder("package", "key")), requests);
+
+                // Then: The retry waits for the same commit instead of being rejected, gets the same order, which is inserted once
+                assertThat(retried).failsWithin(Duration.ofMillis(200)).withThrowableOfType(TimeoutException.class);
+                release.countDown();
+                assertThat(retried.join()).isNotNull().isEqualTo(queued.join());
+                verify(shippingOrderRepository, times(1)).saveAll(anyList());
+            }
+        }
+
+        @Test
+        void givenACommittedIdempotencyKey_whenTheOrderIsRequestedAgain_thenItGetsTheCommittedOrder() {
+            // Given: The first order was committed after the caller looked its key up
+            ShippingOrderEntity committed = shippingOrder("package", "key");
+            committed.setId(UUID.randomUUID());
+            when(shippingOrderRepository.findByIdempotencyKey("key")).thenReturn(Optional.of(committed));
+
+            // When: The request is retried with the same key
+            UUID orderId = shippingOrderIntake.create(shippingOrder("package", "key"));
+
+            // Then: It gets the committed order instead of being rejected as a duplicate package name
+            assertThat(orderId).isEqualTo(committed.getId());
+            verify(shippingOrderRepository, times(0)).saveAll(anyList());
+        }
+
+        @Test
+        void givenAFailingBatch_whenItIsCommitted_thenOnlyTheFailingOrderIsRejected() {
+            // Given: A batch that fails on one of its orders
+            when(shippingOrderRepository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("value too long"));
+            ShippingOrderEntity valid = shippingOrder("valid");
+            ShippingOrderEntity invalid = shippingOrder("invalid");
+            when(shippingOrderRepository.save(valid)).thenAnswer(invocation -> {
+                valid.setId(UUID.randomUUID());
+                return valid;
+            });
+            when(shippingOrderRepository.save(invalid)).thenThrow(new DataIntegrityViolationException("value too long"));
+            ShippingOrderIntake.PendingOrder validOrder = new ShippingOrderIntake.PendingOrder(valid, new CompletableFuture<>());
+            ShippingOrderIntake.PendingOrder invalidOrder = new ShippingOrderIntake.PendingOrder(invalid, new CompletableFuture<>());
+
+            // When: The batch is committed
+            shippingOrderIntake.commit(List.of(validOrder, invalidOrder));
+
+            // Then: The orders are committed one by one, only the failing one is rejected
+            assertThat(validOrder.created()).isCompletedWithValue(valid.getId());
+            assertThat(invalidOrder.created()).isCompletedExceptionally();
+        }
+    }
+
+    private static ShippingOrderEntity shippingOrder(String packageName) {
+        return shippingOrder(packageName, null);
+    }
+
+    private static ShippingOrderEntity shippingOrder(String packageName, String idempotencyKey) {
+        return ShippingOrderEntity.builder().packageName(packageName).idempotencyKey(idempotencyKey).build();
+    }
+}
@@ -5,6 +5,7 @@ import com.zlatko.packageshippingservice.controller.ShippingOrderController;
 import com.zlatko.packageshippingservice.model.dto.ShippingOrder;
 import com.zlatko.packageshippingservice.model.exceptions.DuplicatePackageNameException;
 import com.zlatko.packageshippingservice.service.ShippingOrderService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.SneakyThrows;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
@@ -12,6 +13,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,6 +26,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+// The ServerTimingFilter records the statements per request
+@Import(SimpleMeterRegistry.class)
 @WebMvcTest(ShippingOrderController.class)
 class GlobalExceptionHandlerTest {
 
@@ -51,7 +55,7 @@ class GlobalExceptionHandlerTest {
             ShippingOrder shippingOrder = new ShippingOrder("Birthday Present", "1082PP", "Gustav Mahlerlaan 10", "Robert Swaak", "M");
             doThrow(new DuplicatePackageNameException("The selected packageName was already taken"))
                     .when(shippingOrderService)
-                    .createShippingOrder(shippingOrder);
+                    .createShippingOrder(shippingOrder, null);
 
             // When: A POST request is made to /shippingOrders
             mockMvc.perform(post("/shippingOrders")
@@ -90,6 +94,27 @@ class GlobalExceptionHandlerTest {
         }
     }
 
+    @Nested
+    class HandleHandlerMethodValidationException {
+
+        @Test
+        @SneakyThrows
+        void givenInvalidCursor_whenGetChangesRequest_thenReturnsBadRequest() {
+            // Given: A change feed request with a cursor that was not returned by the change feed
+            String invalidCursor = "not-a-cursor";
+
+            // When: The request is made to /shippingOrders/changes
+            mockMvc.perform(get("/shippingOrders/changes").param("since", invalidCursor))
+                    // Then: Expect 400 Bad Request naming the invalid parameter
+                    .andExpect(status().isBadRequest())
+                    .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(jsonPath("$.status", is(400)))
+                    .andExpect(jsonPath("$.message", is("Invalid input data")))
+                    .andExpect(jsonPath("$.errors[0].field", is("since")))
+                    .andExpect(jsonPath("$.errors[0].message", is("[Invalid since cursor format.]")));
+        }
+    }
+
     @Nested
     class HandleGenericException {
 
@@ -102,7 +127,7 @@ class GlobalExceptionHandlerTest {
             // Mock the service to throw a RuntimeException
             doThrow(new RuntimeException("Unexpected error occurred"))
                     .when(shippingOrderService)
-                    .getOrderDetails(validUuid);
+                    .getOrderDetailsJson(validUuid);
 
             // When: The request is made
             mockMvc.perform(get("/shippingOrders/{orderId}", validUuid))
@@ -0,0 +1,57 @@
+#!/usr/bin/env bash
+# Compares the startup time and the first request latency of the build variants of a module:
+#   jar    - the repackaged Spring Boot jar          (mvn package)
+#   cds    - AOT-processed with a CDS archive        (mvn -Pcds package)
+#   native - GraalVM native image                    (mvn -Pnative native:compile)
+# Variants that have not been built are skipped. The module's database has to be running (docker compose up <postgres service>),
+# further Spring properties can be passed as JVM/native arguments in EXTRA_ARGS, e.g. EXTRA_ARGS="-Dspring.profiles.active=local".
+#
+# Usage: ./startup-comparison.sh package-self-service-backend|package-shipping-service [runs]
+set -euo pipefail
+
+MODULE=${1:?"Usage: $0 package-self-service-backend|package-shipping-service [runs]"}
+RUNS=${2:-5}
+JAVA=${JAVA:-java}
+PORT=${PORT:-18080}
+EXTRA_ARGS=${EXTRA_ARGS:-}
+case "$MODULE" in
+  package-self-service-backend) FIRST_REQUEST_PATH=${FIRST_REQUEST_PATH:-/api/package-self-service?senderId=c1a5a8e8-1b0e-4c6c-8342-576b9a9e6b5f} ;;
+  package-shipping-service) FIRST_REQUEST_PATH=${FIRST_REQUEST_PATH:-/shippingOrders} ;;
+  *) echo "Unknown module: $MODULE" >&2; exit 1 ;;
+esac
+TARGET="$(cd "$(dirname "$0")/$MODULE/target" && pwd)"
+
+command_for() {
+  case "$1" in
+    jar) [[ -f "$TARGET/$MODULE-1.0.0.jar" ]] && echo "$JAVA -Dserver.port=$PORT $EXTRA_ARGS -jar $TARGET/$MODULE-1.0.0.jar" ;;
+    cds) [[ -f "$TARGET/cds/application.jsa" ]] && echo "$JAVA -XX:SharedArchiveFile=$TARGET/cds/application.jsa -Dspring.aot.enabled=true -Dserver.port=$PORT $EXTRA_ARGS -jar $TARGET/cds/$MODULE-1.0.0-cds.jar" ;;
+    native) [[ -x "$TARGET/$MODULE" ]] && echo "$TARGET/$MODULE -Dserver.port=$PORT $EXTRA_ARGS" ;;
+  esac
+}
+
+millis() { date +%s%3N; }
+
+printf "%-7s %4s %14s %14s %16s %16s\n" "variant" "run" "started (s)" "ready (ms)" "1st request (ms)" "2nd request (ms)"
+for variant in jar cds native; do
+  command=$(command_for "$variant") || { echo "$variant: not built, skipped"; continue; }
+  for run in $(seq 1 "$RUNS"); do
+    log=$(mktemp)
+    start=$(millis)
+    $command > "$log" 2>&1 &
+    pid=$!
+    # Ready as soon as the actuator answers at all (it reports DOWN while a downstream dependency is unavailable)
+    until curl -s -o /dev/null "http://localhost:$PORT/actuator/health"; do
+      kill -0 "$pid" 2> /dev/null || { echo "$variant failed to start, see $log" >&2; exit 1; }
+      sleep 0.05
+    done
+    ready=$(( $(millis) - start ))
+    first=$(curl -s -o /dev/null -w "%{time_total}" "http://localhost:$PORT$FIRST_REQUEST_PATH")
+    second=$(curl -s -o /dev/null -w "%{time_total}" "http://localhost:$PORT$FIRST_REQUEST_PATH")
+    started=$(grep -o "Started [A-Za-z]* in [0-9.]* seconds" "$log" | grep -o "[0-9.]* seconds" | cut -d' ' -f1 || true)
+    kill "$pid"
+    wait "$pid" 2> /dev/null || true
+    rm -f "$log"
+    awk -v variant="$variant" -v run="$run" -v started="${started:--}" -v ready="$ready" -v first="$first" -v second="$second" \
+      'BEGIN { printf "%-7s %4d %14s %14d %16.1f %16.1f\n", variant, run, started, ready, first * 1000, second * 1000 }'
+  done
+done